@@ -34,6 +34,7 @@ import java.util.List;
 import static com.android.example.github.util.LiveDataTestUtil.getValue;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 @RunWith(AndroidJUnit4.class)
@@ -112,4 +113,99 @@ public class RepoDaoTest extends DbTest {
         data = db.repoDao().loadContributors("foo", "bar");
         assertThat(getValue(data).size(), is(1));
     }
+
+    @Test
+    public void firstContributorsInApiOrder() throws InterruptedException {
+        Repo repo = TestUtil.createRepo("foo", "bar", "desc");
+        db.repoDao().insert(repo);
+        // ties are listed in the order of the server, not by login
+        Contributor c1 = TestUtil.createContributor(repo, "a", 5);
+        c1.setPosition(1);
+        Contributor c2 = TestUtil.createContributor(repo, "b", 5);
+        c2.setPosition(0);
+        Contributor c3 = TestUtil.createContributor(repo, "c", 3);
+        c3.setPosition(2);
+        db.repoDao().insertContributors(Arrays.asList(c1, c2, c3));
+
+        List<Contributor> first = getValue(db.repoDao().loadFirstContributors("foo", "bar", 2));
+        assertThat(first, is(Arrays.asList(c2, c1)));
+        assertThat(db.repoDao().countContributors("foo", "bar"), is(3));
+    }
+
+    @Test
+    public void lastContributorPosition() {
+        Repo repo = TestUtil.createRepo("foo", "bar", "desc");
+        db.repoDao().insert(repo);
+        assertThat(db.repoDao().findLastContributorPosition("foo", "bar"), nullValue());
+
+        Contributor first = TestUtil.createContributor(repo, "a", 5);
+        first.setPosition(0);
+        Contributor afterGap = TestUtil.createContributor(repo, "c", 3);
+        afterGap.setPosition(2);
+        db.repoDao().insertContributors(Arrays.asList(first, afterGap));
+        assertThat(db.repoDao().findLastContributorPosition("foo", "bar"), is(2));
+    }
+
+    @Test
+    public void deleteContributorsExcept() throws InterruptedException {
+        Repo repo = TestUtil.createRepo("foo", "bar", "desc");
+        Repo other = TestUtil.createRepo("foo", "baz", "desc");
+        db.repoDao().insert(repo, other);
+        db.repoDao().insertContributors(Arrays.asList(
+                TestUtil.createContributor(repo, "a", 5),
+                TestUtil.createContributor(repo, "b", 4),
+                TestUtil.createContributor(other, "c", 3)));
+
+        assertThat(db.repoDao().deleteContributorsExcept("foo", "bar",
+                Collections.singletonList("a")), is(1));
+        assertThat(db.repoDao().countContributors("foo", "bar"), is(1));
+        assertThat(db.repoDao().countContributors("foo", "baz"), is(1));
+    }
+
+    @Test
+    public void appendSearchResults() throws InterruptedException {
+        Repo r1 = TestUtil.createRepo(1, "foo", "r1", "desc");
+        Repo r2 = TestUtil.createRepo(2, "foo", "r2", "desc");
+        Repo r3 = TestUtil.createRepo(3, "foo", "r3", "desc");
+        db.repoDao().insertRepos(Arrays.asList(r1, r2, r3));
+        assertThat(db.repoDao().findLastSearchResultPosition("q"), nullValue());
+
+        db.repoDao().appendSearchResults("q", new int[]{3, 1});
+        assertThat(db.repoDao().findLastSearchResultPosition("q"), is(1));
+        // 1 is already in the results, it must not be listed twice
+        db.repoDao().appendSearchResults("q", new int[]{1, 2});
+        assertThat(db.repoDao().findLastSearchResultPosition("q"), is(3));
+
+        List<Repo> results = getValue(db.repoDao().loadSearchResults("q"));
+        assertThat(results.size(), is(3));
+        assertThat(results.get(0).id, is(3));
+        assertThat(results.get(1).id, is(1));
+        assertThat(results.get(2).id, is(2));
+        assertThat(getValue(db.repoDao().loadSearchResults("other")).size(), is(0));
+
+        db.repoDao().deleteSearchResultItems("q");
+        assertThat(getValue(db.repoDao().loadSearchResults("q")).size(), is(0));
+    }
+
+    @Test
+    public void deleteSearchResultsAfterPositionGap() throws InterruptedException {
+        Repo r1 = TestUtil.createRepo(1, "foo", "r1", "desc");
+        Repo r2 = TestUtil.createRepo(2, "foo", "r2", "desc");
+        Repo r3 = TestUtil.createRepo(3, "foo", "r3", "desc");
+        Repo r4 = TestUtil.createRepo(4, "foo", "r4", "desc");
+        db.repoDao().insertRepos(Arrays.asList(r1, r2, r3, r4));
+        db.repoDao().appendSearchResults("q", new int[]{1, 2});
+        // 2 is skipped, 3 is stored at position 3 and the results have a gap
+        db.repoDao().appendSearchResults("q", new int[]{2, 3});
+        int prefetchedFrom = db.repoDao().findLastSearchResultPosition("q") + 1;
+        db.repoDao().appendSearchResults("q", new int[]{4});
+
+        // the row count, 3, would also delete the last row of the second page
+        db.repoDao().deleteSearchResultItemsFrom("q", prefetchedFrom);
+        List<Repo> results = getValue(db.repoDao().loadSearchResults("q"));
+        assertThat(results.size(), is(3));
+        assertThat(results.get(0).id, is(1));
+        assertThat(results.get(1).id, is(2));
+        assertThat(results.get(2).id, is(3));
+    }
 }
@@ -33,6 +33,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.arch.lifecycle.MutableLiveData;
+import android.arch.paging.PagedList;
 import android.support.annotation.NonNull;
 import android.support.annotation.StringRes;
 import android.support.test.InstrumentationRegistry;
@@ -44,6 +45,7 @@ import com.android.example.github.binding.FragmentBindingAdapters;
 import com.android.example.github.testing.SingleFragmentActivity;
 import com.android.example.github.ui.common.NavigationController;
 import com.android.example.github.util.EspressoTestUtil;
+import com.android.example.github.util.PagedListUtil;
 import com.android.example.github.util.RecyclerViewMatcher;
 import com.android.example.github.util.TaskExecutorWithIdlingResourceRule;
 import com.android.example.github.util.TestUtil;
@@ -69,7 +71,7 @@ public class RepoFragmentTest {
     public TaskExecutorWithIdlingResourceRule executorRule =
             new TaskExecutorWithIdlingResourceRule();
     private MutableLiveData<Resource<Repo>> repo = new MutableLiveData<>();
-    private MutableLiveData<Resource<List<Contributor>>> contributors = new MutableLiveData<>();
+    private MutableLiveData<PagedList<Contributor>> contributors = new MutableLiveData<>();
     private RepoFragment repoFragment;
     private RepoViewModel viewModel;
 
@@ -184,7 +186,7 @@ public class RepoFragmentTest {
         for (String name : names) {
             contributors.add(TestUtil.createContributor(repo, name, contributionCount--));
         }
-        this.contributors.postValue(Resource.success(contributors));
+        this.contributors.postValue(PagedListUtil.createFor(contributors));
     }
 
     private String getString(@StringRes int id, Object... args) {
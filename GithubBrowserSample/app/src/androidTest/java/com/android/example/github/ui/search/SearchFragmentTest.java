@@ -28,6 +28,7 @@ import static android.support.test.espresso.matcher.ViewMatchers.withId;
 import static android.support.test.espresso.matcher.ViewMatchers.withText;
 
 import static org.hamcrest.CoreMatchers.not;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -35,8 +36,8 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.arch.lifecycle.MutableLiveData;
+import android.arch.paging.PagedList;
 import android.support.annotation.NonNull;
-import android.support.test.espresso.contrib.RecyclerViewActions;
 import android.support.test.espresso.matcher.ViewMatchers;
 import android.support.test.rule.ActivityTestRule;
 import android.support.test.runner.AndroidJUnit4;
@@ -47,11 +48,13 @@ import com.android.example.github.binding.FragmentBindingAdapters;
 import com.android.example.github.testing.SingleFragmentActivity;
 import com.android.example.github.ui.common.NavigationController;
 import com.android.example.github.util.EspressoTestUtil;
+import com.android.example.github.util.PagedListUtil;
 import com.android.example.github.util.RecyclerViewMatcher;
 import com.android.example.github.util.TaskExecutorWithIdlingResourceRule;
 import com.android.example.github.util.TestUtil;
 import com.android.example.github.util.ViewModelUtil;
 import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoSearchResult;
 import com.android.example.github.vo.Resource;
 
 import org.junit.Before;
@@ -60,7 +63,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.util.Arrays;
-import java.util.List;
+import java.util.Collections;
 
 @RunWith(AndroidJUnit4.class)
 public class SearchFragmentTest {
@@ -76,7 +79,8 @@ public class SearchFragmentTest {
 
     private SearchViewModel viewModel;
 
-    private MutableLiveData<Resource<List<Repo>>> results = new MutableLiveData<>();
+    private MutableLiveData<Resource<RepoSearchResult>> results = new MutableLiveData<>();
+    private MutableLiveData<PagedList<Repo>> repos = new MutableLiveData<>();
     private MutableLiveData<SearchViewModel.LoadMoreState> loadMoreStatus = new MutableLiveData<>();
 
     @Before
@@ -86,6 +90,7 @@ public class SearchFragmentTest {
         viewModel = mock(SearchViewModel.class);
         doReturn(loadMoreStatus).when(viewModel).getLoadMoreStatus();
         when(viewModel.getResults()).thenReturn(results);
+        when(viewModel.getRepos()).thenReturn(repos);
 
         fragmentBindingAdapters = mock(FragmentBindingAdapters.class);
         navigationController = mock(NavigationController.class);
@@ -100,7 +105,9 @@ public class SearchFragmentTest {
         onView(withId(R.id.progress_bar)).check(matches(not(isDisplayed())));
         onView(withId(R.id.input)).perform(typeText("foo"),
                 pressKey(KeyEvent.KEYCODE_ENTER));
-        verify(viewModel).setQuery("foo");
+        // typing forwards each change, the search key submits the final query right away
+        verify(viewModel, atLeastOnce()).setQuery("foo");
+        verify(viewModel).submitQuery("foo");
         results.postValue(Resource.loading(null));
         onView(withId(R.id.progress_bar)).check(matches(isDisplayed()));
     }
@@ -108,7 +115,8 @@ public class SearchFragmentTest {
     @Test
     public void loadResults() {
         Repo repo = TestUtil.createRepo("foo", "bar", "desc");
-        results.postValue(Resource.success(Arrays.asList(repo)));
+        results.postValue(Resource.success(new RepoSearchResult("foo", 1, null)));
+        repos.postValue(PagedListUtil.createFor(Arrays.asList(repo)));
         onView(listMatcher().atPosition(0)).check(matches(hasDescendant(withText("foo/bar"))));
         onView(withId(R.id.progress_bar)).check(matches(not(isDisplayed())));
     }
@@ -116,7 +124,8 @@ public class SearchFragmentTest {
     @Test
     public void dataWithLoading() {
         Repo repo = TestUtil.createRepo("foo", "bar", "desc");
-        results.postValue(Resource.loading(Arrays.asList(repo)));
+        results.postValue(Resource.loading(new RepoSearchResult("foo", 1, null)));
+        repos.postValue(PagedListUtil.createFor(Arrays.asList(repo)));
         onView(listMatcher().atPosition(0)).check(matches(hasDescendant(withText("foo/bar"))));
         onView(withId(R.id.progress_bar)).check(matches(not(isDisplayed())));
     }
@@ -128,19 +137,18 @@ public class SearchFragmentTest {
     }
 
     @Test
-    public void loadMore() throws Throwable {
-        List<Repo> repos = TestUtil.createRepos(50, "foo", "barr", "desc");
-        results.postValue(Resource.success(repos));
-        onView(withId(R.id.repo_list)).perform(RecyclerViewActions.scrollToPosition(49));
-        onView(listMatcher().atPosition(49)).check(matches(isDisplayed()));
-        verify(viewModel).loadNextPage();
+    public void noResults() {
+        results.postValue(Resource.success(new RepoSearchResult("foo", 0, null)));
+        repos.postValue(PagedListUtil.createFor(Collections.<Repo>emptyList()));
+        onView(withId(R.id.no_results_text)).check(matches(isDisplayed()));
     }
 
     @Test
     public void navigateToRepo() throws Throwable {
         doNothing().when(viewModel).loadNextPage();
         Repo repo = TestUtil.createRepo("foo", "bar", "desc");
-        results.postValue(Resource.success(Arrays.asList(repo)));
+        results.postValue(Resource.success(new RepoSearchResult("foo", 1, null)));
+        repos.postValue(PagedListUtil.createFor(Arrays.asList(repo)));
         onView(withText("desc")).perform(click());
         verify(navigationController).navigateToRepo("foo", "bar");
     }
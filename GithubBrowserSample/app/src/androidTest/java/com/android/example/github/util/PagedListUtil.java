@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.util;
+
+import android.arch.paging.PagedList;
+import android.arch.paging.PositionalDataSource;
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Creates a PagedList that is backed by a fixed list and loads synchronously.
+ */
+public class PagedListUtil {
+    private PagedListUtil() {}
+    public static <T> PagedList<T> createFor(List<T> items) {
+        PositionalDataSource<T> dataSource = new PositionalDataSource<T>() {
+            @Override
+            public void loadInitial(@NonNull LoadInitialParams params,
+                    @NonNull LoadInitialCallback<T> callback) {
+                callback.onResult(items, 0, items.size());
+            }
+
+            @Override
+            public void loadRange(@NonNull LoadRangeParams params,
+                    @NonNull LoadRangeCallback<T> callback) {
+                int end = Math.min(items.size(), params.startPosition + params.loadSize);
+                callback.onResult(items.subList(params.startPosition, end));
+            }
+        };
+        PagedList.Config config = new PagedList.Config.Builder()
+                .setPageSize(Math.max(1, items.size()))
+                .build();
+        return new PagedList.Builder<>(dataSource, config)
+                .setMainThreadExecutor(Runnable::run)
+                .setBackgroundThreadExecutor(Runnable::run)
+                .build();
+    }
+}
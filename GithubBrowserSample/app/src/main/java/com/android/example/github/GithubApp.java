@@ -18,21 +18,40 @@ package com.android.example.github;
 
 import android.app.Activity;
 import android.app.Application;
+import android.app.Service;
 
 import com.android.example.github.di.AppInjector;
+import com.android.example.github.repository.RefreshJobService;
+import com.android.example.github.repository.ResourceMetrics;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.model.GlideUrl;
+
+import java.io.InputStream;
 
 import javax.inject.Inject;
 
 import dagger.android.DispatchingAndroidInjector;
 import dagger.android.HasActivityInjector;
+import dagger.android.HasServiceInjector;
+import okhttp3.OkHttpClient;
 import timber.log.Timber;
 
 
-public class GithubApp extends Application implements HasActivityInjector {
+public class GithubApp extends Application implements HasActivityInjector, HasServiceInjector {
 
     @Inject
     DispatchingAndroidInjector<Activity> dispatchingAndroidInjector;
 
+    @Inject
+    DispatchingAndroidInjector<Service> dispatchingServiceInjector;
+
+    @Inject
+    OkHttpClient okHttpClient;
+
+    @Inject
+    ResourceMetrics resourceMetrics;
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -40,10 +59,28 @@ public class GithubApp extends Application implements HasActivityInjector {
             Timber.plant(new Timber.DebugTree());
         }
         AppInjector.init(this);
+        // images loaded through FragmentBindingAdapters go through the shared client and cache
+        Glide.get(this).register(GlideUrl.class, InputStream.class,
+                new OkHttpUrlLoader.Factory(okHttpClient));
+        RefreshJobService.schedule(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level == TRIM_MEMORY_UI_HIDDEN) {
+            // the end of a session, export what it measured
+            resourceMetrics.export();
+        }
     }
 
     @Override
     public DispatchingAndroidInjector<Activity> activityInjector() {
         return dispatchingAndroidInjector;
     }
+
+    @Override
+    public DispatchingAndroidInjector<Service> serviceInjector() {
+        return dispatchingServiceInjector;
+    }
 }
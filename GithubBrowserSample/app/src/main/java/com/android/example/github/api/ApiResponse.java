@@ -16,15 +16,9 @@
 
 package com.android.example.github.api;
 
-import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v4.util.ArrayMap;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import retrofit2.Response;
 import timber.log.Timber;
@@ -35,23 +29,20 @@ import timber.log.Timber;
  * @param <T>
  */
 public class ApiResponse<T> {
-    private static final Pattern LINK_PATTERN = Pattern
-            .compile("<([^>]*)>[\\s]*;[\\s]*rel=\"([a-zA-Z0-9]+)\"");
-    private static final Pattern PAGE_PATTERN = Pattern.compile("\\bpage=(\\d+)");
-    private static final String NEXT_LINK = "next";
     public final int code;
     @Nullable
     public final T body;
     @Nullable
     public final String errorMessage;
-    @NonNull
-    public final Map<String, String> links;
+    private final int nextPage;
+    private final int lastPage;
 
     public ApiResponse(Throwable error) {
         code = 500;
         body = null;
         errorMessage = error.getMessage();
-        links = Collections.emptyMap();
+        nextPage = LinkHeader.NO_PAGE;
+        lastPage = LinkHeader.NO_PAGE;
     }
 
     public ApiResponse(Response<T> response) {
@@ -76,19 +67,11 @@ public class ApiResponse<T> {
         }
         String linkHeader = response.headers().get("link");
         if (linkHeader == null) {
-            links = Collections.emptyMap();
+            nextPage = LinkHeader.NO_PAGE;
+            lastPage = LinkHeader.NO_PAGE;
         } else {
-            links = new ArrayMap<>();
-            Matcher matcher = LINK_PATTERN.matcher(linkHeader);
-
-            while (matcher.find()) {
-                int count = matcher.groupCount();
-                if (count == 2) {
-                    String key = matcher.group(2);
-                    String v = matcher.group(1);
-                    links.put(key, v);
-                }
-            }
+            nextPage = LinkHeader.page(linkHeader, LinkHeader.NEXT);
+            lastPage = LinkHeader.page(linkHeader, LinkHeader.LAST);
         }
     }
 
@@ -96,20 +79,16 @@ public class ApiResponse<T> {
         return code >= 200 && code < 300;
     }
 
+    @Nullable
     public Integer getNextPage() {
-        String next = links.get(NEXT_LINK);
-        if (next == null) {
-            return null;
-        }
-        Matcher matcher = PAGE_PATTERN.matcher(next);
-        if (!matcher.find() || matcher.groupCount() != 1) {
-            return null;
-        }
-        try {
-            return Integer.parseInt(matcher.group(1));
-        } catch (NumberFormatException ex) {
-            Timber.w("cannot parse next page from %s", next);
-            return null;
-        }
+        return nextPage == LinkHeader.NO_PAGE ? null : nextPage;
+    }
+
+    /**
+     * @return the number of the last page of the result, or null if it is the only page
+     */
+    @Nullable
+    public Integer getLastPage() {
+        return lastPage == LinkHeader.NO_PAGE ? null : lastPage;
     }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.api;
+
+import android.support.annotation.NonNull;
+
+import com.android.example.github.db.HttpValidatorDao;
+import com.android.example.github.vo.HttpValidator;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Turns requests marked with {@link #CONDITIONAL_HEADER} into conditional requests using the
+ * ETag / Last-Modified validators received the last time the same url was fetched.
+ * <p>
+ * When nothing changed, GitHub answers with a 304 without a body, which does not count against the
+ * rate limit. Only endpoints whose results are fully persisted should be marked, otherwise a 304
+ * would leave the caller without data.
+ * <p>
+ * The validators of a response are not stored here, the response has not been parsed or saved
+ * yet. {@link HttpValidators} stores them along with the data.
+ */
+@Singleton
+public class ConditionalRequestInterceptor implements Interceptor {
+    public static final String CONDITIONAL_HEADER = "X-Conditional-Request";
+
+    private final HttpValidatorDao httpValidatorDao;
+
+    @Inject
+    public ConditionalRequestInterceptor(HttpValidatorDao httpValidatorDao) {
+        this.httpValidatorDao = httpValidatorDao;
+    }
+
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.header(CONDITIONAL_HEADER) == null) {
+            return chain.proceed(request);
+        }
+        String url = request.url().toString();
+        Request.Builder builder = request.newBuilder().removeHeader(CONDITIONAL_HEADER);
+        HttpValidator validator = httpValidatorDao.find(url);
+        if (validator != null) {
+            if (validator.etag != null) {
+                builder.header("If-None-Match", validator.etag);
+            }
+            if (validator.lastModified != null) {
+                builder.header("If-Modified-Since", validator.lastModified);
+            }
+        }
+        return chain.proceed(builder.build());
+    }
+}
@@ -25,26 +25,40 @@ import java.util.List;
 import io.reactivex.Flowable;
 import retrofit2.Response;
 import retrofit2.http.GET;
+import retrofit2.http.Headers;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
 
 /**
  * REST API access points
+ * <p>
+ * Endpoints that are loaded through a NetworkBoundResource are marked as conditional so that an
+ * unchanged response comes back as a 304 without a body.
  */
 public interface GithubService {
+    String CONDITIONAL = ConditionalRequestInterceptor.CONDITIONAL_HEADER + ": true";
+
     @GET("users/{login}")
+    @Headers(CONDITIONAL)
     Flowable<User> getUser(@Path("login") String login);
 
     @GET("users/{login}/repos")
+    @Headers(CONDITIONAL)
     Flowable<List<Repo>> getRepos(@Path("login") String login);
 
     @GET("repos/{owner}/{name}")
+    @Headers(CONDITIONAL)
     Flowable<Repo> getRepo(@Path("owner") String owner, @Path("name") String name);
 
     @GET("repos/{owner}/{name}/contributors")
-    Flowable<List<Contributor>> getContributors(@Path("owner") String owner, @Path("name") String name);
+    @Headers(CONDITIONAL)
+    Flowable<Response<List<Contributor>>> getContributors(@Path("owner") String owner, @Path("name") String name);
+
+    @GET("repos/{owner}/{name}/contributors")
+    Flowable<Response<List<Contributor>>> getContributors(@Path("owner") String owner, @Path("name") String name, @Query("page") int page);
 
     @GET("search/repositories")
+    @Headers(CONDITIONAL)
     Flowable<Response<RepoSearchResponse>> searchRepos(@Query("q") String query);
 
     @GET("search/repositories")
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.api;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.android.example.github.db.HttpValidatorDao;
+import com.android.example.github.vo.HttpValidator;
+import com.google.common.collect.MapMaker;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+/**
+ * Keeps the validators of conditional responses until the data of the response is saved.
+ * <p>
+ * A validator must not be stored before the data it validates: if parsing or saving the response
+ * fails, the next conditional request would get a 304 and there would be nothing to show for it.
+ * The validators are therefore carried with the parsed response and stored by
+ * {@link #saveWith(Object)}, in the transaction that saves the response.
+ */
+@Singleton
+public class HttpValidators {
+    // the validators of the responses that are not saved yet, by body instance
+    private final Map<Object, HttpValidator> pending = new MapMaker().weakKeys().makeMap();
+
+    private final HttpValidatorDao httpValidatorDao;
+
+    @Inject
+    public HttpValidators(HttpValidatorDao httpValidatorDao) {
+        this.httpValidatorDao = httpValidatorDao;
+    }
+
+    /**
+     * Returns the call adapter factory that attaches the validators to the responses, it must be
+     * added before the factory that adapts the calls.
+     */
+    @NonNull
+    public CallAdapter.Factory callAdapterFactory() {
+        return new ValidatorCallAdapterFactory();
+    }
+
+    /**
+     * Stores the validators that came with the response, or drops the previous ones if the server
+     * did not send any. The response is either the body of a call or the retrofit
+     * {@link Response} that wraps it.
+     */
+    @WorkerThread
+    public void saveWith(@Nullable Object response) {
+        Object body = response instanceof Response ? ((Response) response).body() : response;
+        if (body == null) {
+            return;
+        }
+        HttpValidator validator = pending.remove(body);
+        if (validator == null) {
+            return;
+        }
+        if (validator.etag != null || validator.lastModified != null) {
+            httpValidatorDao.insert(validator);
+        } else {
+            httpValidatorDao.delete(validator.url);
+        }
+    }
+
+    private void attach(Request request, Response<?> response) {
+        if (request.header(ConditionalRequestInterceptor.CONDITIONAL_HEADER) == null
+                || !response.isSuccessful() || response.body() == null) {
+            return;
+        }
+        pending.put(response.body(), new HttpValidator(request.url().toString(),
+                response.headers().get("ETag"), response.headers().get("Last-Modified")));
+    }
+
+    private class ValidatorCallAdapterFactory extends CallAdapter.Factory {
+        @Override
+        public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations,
+                Retrofit retrofit) {
+            CallAdapter<?, ?> delegate = retrofit.nextCallAdapter(this, returnType, annotations);
+            return new ValidatorCallAdapter<>(delegate);
+        }
+    }
+
+    private class ValidatorCallAdapter<R, T> implements CallAdapter<R, T> {
+        private final CallAdapter<R, T> delegate;
+
+        ValidatorCallAdapter(CallAdapter<R, T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Type responseType() {
+            return delegate.responseType();
+        }
+
+        @Override
+        public T adapt(@NonNull Call<R> call) {
+            return delegate.adapt(new ValidatorCall<>(call));
+        }
+    }
+
+    private class ValidatorCall<R> implements Call<R> {
+        private final Call<R> delegate;
+
+        ValidatorCall(Call<R> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Response<R> execute() throws IOException {
+            Response<R> response = delegate.execute();
+            attach(delegate.request(), response);
+            return response;
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<R> callback) {
+            delegate.enqueue(new Callback<R>() {
+                @Override
+                public void onResponse(@NonNull Call<R> call, @NonNull Response<R> response) {
+                    attach(call.request(), response);
+                    callback.onResponse(ValidatorCall.this, response);
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<R> call, @NonNull Throwable t) {
+                    callback.onFailure(ValidatorCall.this, t);
+                }
+            });
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return delegate.isExecuted();
+        }
+
+        @Override
+        public void cancel() {
+            delegate.cancel();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return delegate.isCanceled();
+        }
+
+        @SuppressWarnings("CloneDoesntCallSuperClone")
+        @Override
+        public Call<R> clone() {
+            return new ValidatorCall<>(delegate.clone());
+        }
+
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.api;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Parses the {@code Link} header GitHub uses to paginate its responses, e.g.
+ * {@code <https://api.github.com/search/repositories?q=foo&page=2>; rel="next"}.
+ * <p>
+ * Every response goes through this, so the header is scanned in place: page numbers are read
+ * straight into ints, without regular expressions or intermediate strings.
+ * <p>
+ * Kept free of Android dependencies so that it can be benchmarked on the JVM.
+ */
+public final class LinkHeader {
+    public static final int NO_PAGE = -1;
+    public static final String NEXT = "next";
+    public static final String LAST = "last";
+    private static final String REL = "rel=\"";
+    private static final String PAGE = "page=";
+
+    private LinkHeader() {
+    }
+
+    /**
+     * Returns the {@code page} query parameter of the link with the given {@code rel} or
+     * {@link #NO_PAGE} if there is no such link or it does not have a valid page.
+     */
+    public static int page(@NonNull String header, @NonNull String rel) {
+        int length = header.length();
+        int index = 0;
+        while (index < length) {
+            int urlStart = header.indexOf('<', index);
+            if (urlStart < 0) {
+                return NO_PAGE;
+            }
+            int urlEnd = header.indexOf('>', urlStart + 1);
+            if (urlEnd < 0) {
+                return NO_PAGE;
+            }
+            index = urlEnd + 1;
+            int cursor = skipWhitespace(header, index);
+            if (cursor == length || header.charAt(cursor) != ';') {
+                continue;
+            }
+            cursor = skipWhitespace(header, cursor + 1);
+            if (!header.startsWith(REL, cursor)) {
+                continue;
+            }
+            int relStart = cursor + REL.length();
+            int relEnd = relStart;
+            while (relEnd < length && isAlphanumeric(header.charAt(relEnd))) {
+                relEnd++;
+            }
+            if (relEnd == length || header.charAt(relEnd) != '"' || relEnd == relStart) {
+                continue;
+            }
+            index = relEnd + 1;
+            if (relEnd - relStart == rel.length()
+                    && header.regionMatches(relStart, rel, 0, rel.length())) {
+                return pageOf(header, urlStart + 1, urlEnd);
+            }
+        }
+        return NO_PAGE;
+    }
+
+    /**
+     * Reads the first {@code page} parameter between {@code start} and {@code end}. A parameter
+     * that merely ends with {@code page}, such as {@code per_page}, does not count.
+     */
+    private static int pageOf(String header, int start, int end) {
+        int index = start;
+        while (true) {
+            index = header.indexOf(PAGE, index);
+            if (index < 0 || index + PAGE.length() > end) {
+                return NO_PAGE;
+            }
+            if (index == start || !isWordChar(header.charAt(index - 1))) {
+                break;
+            }
+            index += PAGE.length();
+        }
+        int digit = index + PAGE.length();
+        long page = 0;
+        while (digit < end && isDigit(header.charAt(digit))) {
+            page = page * 10 + header.charAt(digit) - '0';
+            if (page > Integer.MAX_VALUE) {
+                return NO_PAGE;
+            }
+            digit++;
+        }
+        return digit == index + PAGE.length() ? NO_PAGE : (int) page;
+    }
+
+    private static int skipWhitespace(String header, int index) {
+        while (index < header.length() && Character.isWhitespace(header.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAlphanumeric(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWordChar(char c) {
+        return isAlphanumeric(c) || c == '_';
+    }
+}
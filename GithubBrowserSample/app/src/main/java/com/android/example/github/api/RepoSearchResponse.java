@@ -18,6 +18,7 @@ package com.android.example.github.api;
 
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.android.example.github.vo.Repo;
 import com.google.gson.annotations.SerializedName;
@@ -26,8 +27,14 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * POJO to hold repo search responses. This is different from the Entity in the database because
- * we are keeping a search result in 1 row and denormalizing list of results into a single column.
+ * POJO to hold repo search responses. This is different from the entities in the database: the
+ * query, its total count and next page are kept in a
+ * {@link com.android.example.github.vo.RepoSearchResult} row, and each result is a
+ * {@link com.android.example.github.vo.SearchResultItem} row of the {@code search_result_item}
+ * join table that points at the repo by id, at its position in the results.
+ * <p>
+ * The rows are written from {@link #getRepoIdArray()}, the ids of the {@link #getItems() items}
+ * in the order the API returned them.
  */
 public class RepoSearchResponse {
     @SerializedName("total_count")
@@ -35,6 +42,9 @@ public class RepoSearchResponse {
     @SerializedName("items")
     private List<Repo> items;
     private Integer nextPage;
+    // filled by RepoSearchResponseConverterFactory while items are parsed, not part of the json
+    @Nullable
+    private transient int[] repoIds;
 
     public int getTotal() {
         return total;
@@ -60,12 +70,33 @@ public class RepoSearchResponse {
         this.nextPage = nextPage;
     }
 
+    public void setRepoIds(@Nullable int[] repoIds) {
+        this.repoIds = repoIds;
+    }
+
+    /**
+     * Returns the ids of the items in the order of the results. The converter collects them while
+     * the items are parsed, otherwise they are read from the items on first use.
+     */
     @NonNull
-    public List<Integer> getRepoIds() {
-        List<Integer> repoIds = new ArrayList<>();
-        for (Repo repo : items) {
-            repoIds.add(repo.id);
+    public int[] getRepoIdArray() {
+        if (repoIds == null) {
+            int[] ids = new int[items.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = items.get(i).id;
+            }
+            repoIds = ids;
         }
         return repoIds;
     }
+
+    @NonNull
+    public List<Integer> getRepoIds() {
+        int[] ids = getRepoIdArray();
+        List<Integer> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import com.android.example.github.util.Objects;
+import com.android.example.github.vo.Contributor;
+import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoSearchResult;
+import com.android.example.github.vo.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Writes fetched {@link Repo}s, {@link Contributor}s and {@link User}s, skipping the rows that are
+ * already stored with the same values.
+ * <p>
+ * An {@code @Insert(onConflict = REPLACE)} deletes and re-inserts a row even if nothing changed,
+ * which invalidates the table and re-runs every query observing it. Reading the stored rows first
+ * is cheaper than that when most of a response is already known, which is the common case when
+ * data is revalidated.
+ * <p>
+ * The tables that a write changes are marked as {@link TableGenerations#changing changing}, the
+ * {@link WriteBatcher} commits their new generation once the transaction ended. The other writes
+ * to the tables that resources load from go through here for the same reason.
+ * <p>
+ * Should be called in a transaction so that the rows do not change between the read and the write.
+ */
+@Singleton
+public class ChangeAwareUpserter {
+    private final RepoDao repoDao;
+    private final UserDao userDao;
+    private final TableGenerations tableGenerations;
+
+    private final AtomicLong writtenRows = new AtomicLong();
+    private final AtomicLong skippedRows = new AtomicLong();
+    private final AtomicLong skippedInserts = new AtomicLong();
+
+    @Inject
+    public ChangeAwareUpserter(RepoDao repoDao, UserDao userDao,
+            TableGenerations tableGenerations) {
+        this.repoDao = repoDao;
+        this.userDao = userDao;
+        this.tableGenerations = tableGenerations;
+    }
+
+    @WorkerThread
+    public void upsertRepo(@NonNull Repo repo) {
+        if (repo.equals(repoDao.find(repo.owner.login, repo.name))) {
+            skipped(1);
+        } else {
+            tableGenerations.changing(TableGenerations.REPO);
+            repoDao.insert(repo);
+            writtenRows.incrementAndGet();
+        }
+    }
+
+    @WorkerThread
+    public void upsertRepos(@NonNull List<Repo> repos) {
+        if (repos.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(repos.size());
+        for (Repo repo : repos) {
+            ids.add(repo.id);
+        }
+        Map<String, Repo> stored = new HashMap<>();
+        for (Repo repo : repoDao.findByIds(ids)) {
+            stored.put(key(repo), repo);
+        }
+        List<Repo> changed = new ArrayList<>();
+        for (Repo repo : repos) {
+            if (!repo.equals(stored.get(key(repo)))) {
+                changed.add(repo);
+            }
+        }
+        write(TableGenerations.REPO, repos.size(), changed, repoDao::insertRepos);
+    }
+
+    /**
+     * Upserts the contributors of a single repository. Their repo name and owner must be set.
+     */
+    @WorkerThread
+    public void upsertContributors(@NonNull String owner, @NonNull String name,
+            @NonNull List<Contributor> contributors) {
+        List<String> logins = new ArrayList<>(contributors.size());
+        for (Contributor contributor : contributors) {
+            logins.add(contributor.getLogin());
+        }
+        // only the rows of this page are read, the repo may have many more
+        Map<String, Contributor> stored = new HashMap<>();
+        for (Contributor contributor : repoDao.findContributors(owner, name, logins)) {
+            stored.put(contributor.getLogin(), contributor);
+        }
+        List<Contributor> changed = new ArrayList<>();
+        for (Contributor contributor : contributors) {
+            if (!contributor.equals(stored.get(contributor.getLogin()))) {
+                changed.add(contributor);
+            }
+        }
+        write(TableGenerations.CONTRIBUTOR, contributors.size(), changed,
+                repoDao::insertContributors);
+    }
+
+    /**
+     * Removes the contributors of a repository that are not in {@code logins}.
+     */
+    @WorkerThread
+    public void deleteContributorsExcept(@NonNull String owner, @NonNull String name,
+            @NonNull List<String> logins) {
+        if (repoDao.deleteContributorsExcept(owner, name, logins) > 0) {
+            tableGenerations.changing(TableGenerations.CONTRIBUTOR);
+        }
+    }
+
+    /**
+     * Inserts a placeholder repo that contributors can reference, unless the repo is stored.
+     */
+    @WorkerThread
+    public void createRepoIfNotExists(@NonNull Repo repo) {
+        if (repoDao.createRepoIfNotExists(repo) != -1) {
+            tableGenerations.changing(TableGenerations.REPO);
+        }
+    }
+
+    @WorkerThread
+    public void upsertSearchResult(@NonNull RepoSearchResult result) {
+        RepoSearchResult stored = repoDao.findSearchResult(result.query);
+        if (stored != null && stored.totalCount == result.totalCount
+                && Objects.equals(stored.next, result.next)) {
+            skipped(1);
+        } else {
+            tableGenerations.changing(TableGenerations.REPO_SEARCH_RESULT);
+            repoDao.insert(result);
+            writtenRows.incrementAndGet();
+        }
+    }
+
+    @WorkerThread
+    public void upsertUser(@NonNull User user) {
+        if (user.equals(userDao.find(user.login))) {
+            skipped(1);
+        } else {
+            tableGenerations.changing(TableGenerations.USER);
+            userDao.insert(user);
+            writtenRows.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of rows that were written because they were new or changed.
+     */
+    public long getWrittenRows() {
+        return writtenRows.get();
+    }
+
+    /**
+     * @return the number of rows that were not written because they were already stored.
+     */
+    public long getSkippedRows() {
+        return skippedRows.get();
+    }
+
+    /**
+     * @return the number of insert statements that were not run at all because none of their rows
+     * changed. Each of them would have invalidated its table.
+     */
+    public long getSkippedInserts() {
+        return skippedInserts.get();
+    }
+
+    private <T> void write(String table, int total, List<T> changed, Insert<T> insert) {
+        if (changed.isEmpty()) {
+            skipped(total);
+            return;
+        }
+        tableGenerations.changing(table);
+        insert.insert(changed);
+        writtenRows.addAndGet(changed.size());
+        skippedRows.addAndGet(total - changed.size());
+    }
+
+    private void skipped(int rows) {
+        skippedRows.addAndGet(rows);
+        skippedInserts.incrementAndGet();
+    }
+
+    private static String key(Repo repo) {
+        return repo.owner.login + "/" + repo.name;
+    }
+
+    private interface Insert<T> {
+        void insert(List<T> rows);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.db;
+
+import com.android.example.github.vo.FetchRecord;
+import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Insert;
+import android.arch.persistence.room.OnConflictStrategy;
+import android.arch.persistence.room.Query;
+
+import java.util.List;
+
+/**
+ * Interface for database access on the last fetch and use times of network bound resources.
+ * <p>
+ * The two times are updated separately so that a fetch does not overwrite the use time and the
+ * other way around.
+ */
+@Dao
+public interface FetchRecordDao {
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertIfAbsent(FetchRecord record);
+
+    @Query("UPDATE FetchRecord SET fetchedAt = :fetchedAt WHERE resourceKey = :resourceKey")
+    void updateFetchedAt(String resourceKey, long fetchedAt);
+
+    @Query("UPDATE FetchRecord SET usedAt = :usedAt WHERE resourceKey = :resourceKey")
+    void updateUsedAt(String resourceKey, long usedAt);
+
+    @Query("SELECT * FROM FetchRecord WHERE resourceKey = :resourceKey")
+    FetchRecord find(String resourceKey);
+
+    /**
+     * Returns the records used since the first time and fetched before the second, the ones
+     * fetched the longest ago first.
+     */
+    @Query("SELECT * FROM FetchRecord WHERE usedAt >= :usedSince AND fetchedAt <= :fetchedBefore"
+            + " ORDER BY fetchedAt LIMIT :limit")
+    List<FetchRecord> findUsedSince(long usedSince, long fetchedBefore, int limit);
+
+    @Query("DELETE FROM FetchRecord WHERE resourceKey = :resourceKey")
+    void delete(String resourceKey);
+}
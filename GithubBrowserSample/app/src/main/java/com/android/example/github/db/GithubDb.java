@@ -21,18 +21,27 @@ import android.arch.persistence.room.Database;
 import android.arch.persistence.room.RoomDatabase;
 
 import com.android.example.github.vo.Contributor;
+import com.android.example.github.vo.ContributorList;
+import com.android.example.github.vo.FetchRecord;
+import com.android.example.github.vo.HttpValidator;
 import com.android.example.github.vo.Repo;
 import com.android.example.github.vo.RepoSearchResult;
+import com.android.example.github.vo.SearchResultItem;
 import com.android.example.github.vo.User;
 
 /**
  * Main database description.
  */
-@Database(entities = {User.class, Repo.class, Contributor.class,
-        RepoSearchResult.class}, version = 3)
+@Database(entities = {User.class, Repo.class, Contributor.class, ContributorList.class,
+        RepoSearchResult.class, SearchResultItem.class, FetchRecord.class, HttpValidator.class},
+        version = 9)
 public abstract class GithubDb extends RoomDatabase {
 
     abstract public UserDao userDao();
 
     abstract public RepoDao repoDao();
+
+    abstract public FetchRecordDao fetchRecordDao();
+
+    abstract public HttpValidatorDao httpValidatorDao();
 }
@@ -13,26 +13,25 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package com.android.example.github.db;
 
-import android.arch.persistence.room.TypeConverter;
-import android.arch.persistence.room.util.StringUtil;
+import com.android.example.github.vo.HttpValidator;
+import android.arch.persistence.room.Dao;
+import android.arch.persistence.room.Insert;
+import android.arch.persistence.room.OnConflictStrategy;
+import android.arch.persistence.room.Query;
 
-import java.util.Collections;
-import java.util.List;
+/**
+ * Interface for database access on HTTP cache validators.
+ */
+@Dao
+public interface HttpValidatorDao {
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(HttpValidator validator);
 
-public class GithubTypeConverters {
-    @TypeConverter
-    public static List<Integer> stringToIntList(String data) {
-        if (data == null) {
-            return Collections.emptyList();
-        }
-        return StringUtil.splitToIntList(data);
-    }
+    @Query("SELECT * FROM HttpValidator WHERE url = :url")
+    HttpValidator find(String url);
 
-    @TypeConverter
-    public static String intListToString(List<Integer> ints) {
-        return StringUtil.joinIntoString(ints);
-    }
+    @Query("DELETE FROM HttpValidator WHERE url = :url")
+    void delete(String url);
 }
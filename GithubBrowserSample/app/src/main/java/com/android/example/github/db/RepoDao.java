@@ -17,19 +17,21 @@
 package com.android.example.github.db;
 
 import com.android.example.github.vo.Contributor;
+import com.android.example.github.vo.ContributorList;
 import com.android.example.github.vo.Repo;
 import com.android.example.github.vo.RepoSearchResult;
+import com.android.example.github.vo.SearchResultItem;
 
 import android.arch.lifecycle.LiveData;
-import android.arch.lifecycle.Transformations;
+import android.arch.paging.DataSource;
 import android.arch.persistence.room.Dao;
 import android.arch.persistence.room.Insert;
 import android.arch.persistence.room.OnConflictStrategy;
 import android.arch.persistence.room.Query;
 import android.arch.persistence.room.RoomWarnings;
-import android.util.SparseIntArray;
+import android.arch.persistence.room.Transaction;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -53,12 +55,69 @@ public abstract class RepoDao {
     @Query("SELECT * FROM repo WHERE owner_login = :login AND name = :name")
     public abstract LiveData<Repo> load(String login, String name);
 
+    @Query("SELECT * FROM repo WHERE owner_login = :login AND name = :name")
+    public abstract Repo find(String login, String name);
+
+    @Query("SELECT * FROM repo WHERE id IN (:ids)")
+    public abstract List<Repo> findByIds(List<Integer> ids);
+
     @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
     @Query("SELECT login, avatarUrl, repoName, repoOwner, contributions FROM contributor "
             + "WHERE repoName = :name AND repoOwner = :owner "
             + "ORDER BY contributions DESC")
     public abstract LiveData<List<Contributor>> loadContributors(String owner, String name);
 
+    @Query("SELECT * FROM contributor WHERE repoName = :name AND repoOwner = :owner "
+            + "AND login IN (:logins)")
+    public abstract List<Contributor> findContributors(String owner, String name,
+            List<String> logins);
+
+    /**
+     * Returns the contributors that come first in the list, which are the ones of the first page.
+     */
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT login, avatarUrl, repoName, repoOwner, contributions, position "
+            + "FROM contributor WHERE repoName = :name AND repoOwner = :owner "
+            + "ORDER BY position LIMIT :limit")
+    public abstract LiveData<List<Contributor>> loadFirstContributors(String owner, String name,
+            int limit);
+
+    /**
+     * Pages through the contributors of a repo, in the order of the contributor index so that
+     * each page is read without sorting the whole list.
+     */
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT login, avatarUrl, repoName, repoOwner, contributions, position "
+            + "FROM contributor WHERE repoName = :name AND repoOwner = :owner "
+            + "ORDER BY position")
+    public abstract DataSource.Factory<Integer, Contributor> contributorsDataSource(String owner,
+            String name);
+
+    @Query("SELECT COUNT(*) FROM contributor WHERE repoName = :name AND repoOwner = :owner")
+    public abstract int countContributors(String owner, String name);
+
+    /**
+     * Returns the position of the last contributor of a repo or null if none is stored. This is a
+     * lookup on the position index.
+     */
+    @Query("SELECT position FROM contributor WHERE repoName = :name AND repoOwner = :owner "
+            + "ORDER BY position DESC LIMIT 1")
+    public abstract Integer findLastContributorPosition(String owner, String name);
+
+    /**
+     * Deletes the contributors of a repo that are not in the given list, e.g. the pages that
+     * followed a first page that was fetched again.
+     */
+    @Query("DELETE FROM contributor WHERE repoName = :name AND repoOwner = :owner "
+            + "AND login NOT IN (:logins)")
+    public abstract int deleteContributorsExcept(String owner, String name, List<String> logins);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insert(ContributorList contributorList);
+
+    @Query("SELECT * FROM ContributorList WHERE repoOwner = :owner AND repoName = :name")
+    public abstract ContributorList findContributorList(String owner, String name);
+
     @Query("SELECT * FROM Repo "
             + "WHERE owner_login = :owner "
             + "ORDER BY stars DESC")
@@ -70,25 +129,53 @@ public abstract class RepoDao {
     @Query("SELECT * FROM RepoSearchResult WHERE query = :query")
     public abstract LiveData<RepoSearchResult> search(String query);
 
-    public LiveData<List<Repo>> loadOrdered(List<Integer> repoIds) {
-        SparseIntArray order = new SparseIntArray();
-        int index = 0;
-        for (Integer repoId : repoIds) {
-            order.put(repoId, index++);
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    public abstract void insertSearchResultItems(List<SearchResultItem> items);
+
+    @Query("DELETE FROM search_result_item WHERE query = :query")
+    public abstract void deleteSearchResultItems(String query);
+
+    @Query("DELETE FROM search_result_item WHERE query = :query AND position >= :position")
+    public abstract void deleteSearchResultItemsFrom(String query, int position);
+
+    /**
+     * Returns the position of the last repo in the results of the given query or null if it has
+     * no results yet. This is a lookup on the primary key index.
+     */
+    @Query("SELECT position FROM search_result_item WHERE query = :query "
+            + "ORDER BY position DESC LIMIT 1")
+    public abstract Integer findLastSearchResultPosition(String query);
+
+    @Query("SELECT Repo.* FROM search_result_item "
+            + "INNER JOIN Repo ON Repo.id = search_result_item.repoId "
+            + "WHERE search_result_item.query = :query "
+            + "ORDER BY search_result_item.position")
+    public abstract LiveData<List<Repo>> loadSearchResults(String query);
+
+    /**
+     * Pages through the results of the given query in order. Each page is a LIMIT / OFFSET read on
+     * the join so only the rows around the visible range are kept in memory.
+     */
+    @Query("SELECT Repo.* FROM search_result_item "
+            + "INNER JOIN Repo ON Repo.id = search_result_item.repoId "
+            + "WHERE search_result_item.query = :query "
+            + "ORDER BY search_result_item.position")
+    public abstract DataSource.Factory<Integer, Repo> searchResultsDataSource(String query);
+
+    /**
+     * Appends the given repo ids to the results of the query, after the existing ones.
+     */
+    @Transaction
+    public void appendSearchResults(String query, int[] repoIds) {
+        Integer last = findLastSearchResultPosition(query);
+        int position = last == null ? 0 : last + 1;
+        List<SearchResultItem> items = new ArrayList<>(repoIds.length);
+        for (int repoId : repoIds) {
+            items.add(new SearchResultItem(query, position++, repoId));
         }
-        return Transformations.map(loadById(repoIds), repositories -> {
-            Collections.sort(repositories, (r1, r2) -> {
-                int pos1 = order.get(r1.id);
-                int pos2 = order.get(r2.id);
-                return pos1 - pos2;
-            });
-            return repositories;
-        });
+        insertSearchResultItems(items);
     }
 
-    @Query("SELECT * FROM Repo WHERE id in (:repoIds)")
-    protected abstract LiveData<List<Repo>> loadById(List<Integer> repoIds);
-
     @Query("SELECT * FROM RepoSearchResult WHERE query = :query")
     public abstract RepoSearchResult findSearchResult(String query);
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import android.support.annotation.AnyThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Counts the changes of the tables that resources are loaded from, so that data read from them
+ * can be recognized as unchanged without comparing it.
+ * <p>
+ * A write calls {@link #changing(String)} in its transaction when it changes a table, which makes
+ * the generation of the table odd, and {@link #commit()} once its transaction ended, which makes it even again.
+ * Data read by a query that started after {@link #get(String...)} returned a generation, and
+ * that arrived while it still returns the same one, is the data stored at that generation: two
+ * reads stamped with the same generation read the same rows.
+ * <p>
+ * Writes that do not change any row, e.g. the ones {@link ChangeAwareUpserter} skips, leave the
+ * generation as it is, so a resource reloaded after such a write is not dispatched again.
+ */
+@Singleton
+public class TableGenerations {
+    /** Returned when a table is being written, data read from it cannot be stamped. */
+    public static final long UNKNOWN = -1;
+
+    public static final String REPO = "Repo";
+    public static final String CONTRIBUTOR = "Contributor";
+    public static final String USER = "User";
+    public static final String REPO_SEARCH_RESULT = "RepoSearchResult";
+
+    private final ConcurrentHashMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    // the tables changed by writes that are not committed yet
+    private final Set<String> changing = new HashSet<>();
+
+    @Inject
+    public TableGenerations() {
+    }
+
+    /**
+     * Called by a write, in its transaction, when it changes a row of the table. The change is not
+     * visible to other connections before the transaction is committed, so this can come after
+     * the statement.
+     */
+    @WorkerThread
+    public synchronized void changing(@NonNull String table) {
+        if (changing.add(table)) {
+            generation(table).incrementAndGet();
+        }
+    }
+
+    /**
+     * Called once the transaction of the writes ended, whether or not it was successful.
+     */
+    @WorkerThread
+    public synchronized void commit() {
+        for (String table : changing) {
+            generation(table).incrementAndGet();
+        }
+        changing.clear();
+    }
+
+    /**
+     * Returns the generation of the given tables, or {@link #UNKNOWN} if one of them is being
+     * written. The generation only grows.
+     */
+    @AnyThread
+    public long get(@NonNull String... tables) {
+        long sum = 0;
+        for (String table : tables) {
+            long generation = generation(table).get();
+            if (generation % 2 != 0) {
+                return UNKNOWN;
+            }
+            sum += generation;
+        }
+        return sum;
+    }
+
+    private AtomicLong generation(String table) {
+        AtomicLong generation = generations.get(table);
+        if (generation == null) {
+            generations.putIfAbsent(table, new AtomicLong());
+            generation = generations.get(table);
+        }
+        return generation;
+    }
+}
@@ -33,4 +33,7 @@ public interface UserDao {
 
     @Query("SELECT * FROM user WHERE login = :login")
     LiveData<User> findByLogin(String login);
+
+    @Query("SELECT * FROM user WHERE login = :login")
+    User find(String login);
 }
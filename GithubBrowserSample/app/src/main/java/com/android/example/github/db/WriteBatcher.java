@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+
+import com.android.example.github.BuildConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.CompletableSubject;
+
+/**
+ * Collects the writes of concurrent fetches and applies them to the {@link GithubDb} in a single
+ * transaction.
+ * <p>
+ * Flushes run on a thread owned by the batcher. A write that arrives while the database is idle
+ * is flushed right away. A write that arrives within a short window of the previous flush is
+ * part of a burst: it waits for the window to close, and every write submitted until then is
+ * part of the same flush. One transaction means one commit to disk and one round of invalidation
+ * notifications for all of them, and the DAO insert statements are compiled once and reused for
+ * every write in the batch.
+ * <p>
+ * A write submitted from inside another write, i.e. on the flush thread, runs in place as part of
+ * the transaction of its caller.
+ * <p>
+ * A write is a unit of work that may touch several tables, it is either fully applied or not at
+ * all. If a write fails, the batch is rolled back and its writes are applied one by one so that
+ * only the failing one is lost.
+ * <p>
+ * Once a flush ended, the {@link TableGenerations} of the tables its writes changed are
+ * committed, before any of the writes is reported as done.
+ */
+@Singleton
+public class WriteBatcher {
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private final GithubDb db;
+    private final TableGenerations tableGenerations;
+    private final long windowMillis;
+    private final Scheduler scheduler;
+
+    private final Object lock = new Object();
+    private List<PendingWrite> pending = new ArrayList<>();
+    private boolean flushScheduled;
+    // when the last flush started, in the time of the scheduler
+    private long lastFlushMillis = Long.MIN_VALUE / 2;
+
+    // the thread that is running a flush, writes made on it are nested
+    @Nullable
+    private volatile Thread flushThread;
+
+    @Inject
+    public WriteBatcher(GithubDb db, TableGenerations tableGenerations) {
+        this(db, tableGenerations, BuildConfig.DB_WRITE_WINDOW_MILLIS,
+                Schedulers.from(Executors.newSingleThreadExecutor(new WriteThreadFactory())));
+    }
+
+    @VisibleForTesting
+    WriteBatcher(GithubDb db, TableGenerations tableGenerations, long windowMillis,
+            Scheduler scheduler) {
+        this.db = db;
+        this.tableGenerations = tableGenerations;
+        this.windowMillis = windowMillis;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Submits a write and blocks until the batch that contains it is committed, so that the data
+     * can be read back as soon as this method returns.
+     */
+    @WorkerThread
+    public void write(@NonNull Runnable write) {
+        submit(write).blockingAwait();
+    }
+
+    /**
+     * Submits a write. The returned Completable completes once it is committed or fails with the
+     * error thrown by the write.
+     */
+    @NonNull
+    public Completable submit(@NonNull Runnable write) {
+        if (Thread.currentThread() == flushThread) {
+            // waiting for a flush from inside one would never return
+            try {
+                write.run();
+                return Completable.complete();
+            } catch (RuntimeException e) {
+                return Completable.error(e);
+            }
+        }
+        PendingWrite pendingWrite = new PendingWrite(write);
+        synchronized (lock) {
+            pending.add(pendingWrite);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                long now = scheduler.now(TimeUnit.MILLISECONDS);
+                long delay = now - lastFlushMillis < windowMillis ? windowMillis : 0;
+                scheduler.scheduleDirect(this::flush, delay, TimeUnit.MILLISECONDS);
+            } else if (pending.size() == MAX_BATCH_SIZE) {
+                // don't let a burst grow the transaction without bounds
+                scheduler.scheduleDirect(this::flush);
+            }
+        }
+        return pendingWrite.done;
+    }
+
+    private void flush() {
+        List<PendingWrite> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+            flushScheduled = false;
+            lastFlushMillis = scheduler.now(TimeUnit.MILLISECONDS);
+        }
+        flushThread = Thread.currentThread();
+        try {
+            apply(batch);
+        } finally {
+            flushThread = null;
+            tableGenerations.commit();
+        }
+        for (PendingWrite pendingWrite : batch) {
+            if (!pendingWrite.done.hasThrowable()) {
+                pendingWrite.done.onComplete();
+            }
+        }
+    }
+
+    private void apply(List<PendingWrite> batch) {
+        try {
+            db.beginTransaction();
+            try {
+                for (PendingWrite pendingWrite : batch) {
+                    pendingWrite.write.run();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (RuntimeException e) {
+            for (PendingWrite pendingWrite : batch) {
+                try {
+                    db.runInTransaction(pendingWrite.write);
+                } catch (RuntimeException writeError) {
+                    pendingWrite.done.onError(writeError);
+                }
+            }
+        }
+    }
+
+    private static class WriteThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            // keeps the default priority: the loads the user is waiting for block on the flush
+            return new Thread(runnable, "db writes");
+        }
+    }
+
+    private static class PendingWrite {
+        final Runnable write;
+        final CompletableSubject done = CompletableSubject.create();
+
+        PendingWrite(Runnable write) {
+            this.write = write;
+        }
+    }
+}
@@ -30,7 +30,8 @@ import dagger.android.AndroidInjectionModule;
 @Component(modules = {
         AndroidInjectionModule.class,
         AppModule.class,
-        MainActivityModule.class
+        MainActivityModule.class,
+        ServiceBuildersModule.class
 })
 public interface AppComponent {
     void inject(GithubApp githubApp);
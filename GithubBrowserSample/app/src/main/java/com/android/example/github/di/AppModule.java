@@ -19,27 +19,47 @@ package com.android.example.github.di;
 import android.app.Application;
 import android.arch.persistence.room.Room;
 
+import com.android.example.github.api.ConditionalRequestInterceptor;
 import com.android.example.github.api.GithubService;
+import com.android.example.github.api.HttpValidators;
+import com.android.example.github.db.FetchRecordDao;
 import com.android.example.github.db.GithubDb;
+import com.android.example.github.db.HttpValidatorDao;
 import com.android.example.github.db.RepoDao;
 import com.android.example.github.db.UserDao;
+import com.android.example.github.repository.HistogramResourceMetrics;
+import com.android.example.github.repository.ResourceMetrics;
+import com.android.example.github.util.RepoSearchResponseConverterFactory;
+import com.google.gson.Gson;
 
 import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
+import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
 import retrofit2.converter.gson.GsonConverterFactory;
 
-@Module(includes = ViewModelModule.class)
+@Module(includes = {ViewModelModule.class, NetworkModule.class})
 class AppModule {
     @Singleton
     @Provides
-    static GithubService provideGithubService() {
+    static GithubService provideGithubService(OkHttpClient okHttpClient,
+            ConditionalRequestInterceptor conditionalRequestInterceptor,
+            HttpValidators httpValidators) {
+        Gson gson = new Gson();
+        OkHttpClient client = okHttpClient.newBuilder()
+                .addInterceptor(conditionalRequestInterceptor)
+                .build();
         return new Retrofit.Builder()
                 .baseUrl("https://api.github.com/")
-                .addConverterFactory(GsonConverterFactory.create())
+                .client(client)
+                // search responses are the largest payloads, they are read in a single pass
+                .addConverterFactory(new RepoSearchResponseConverterFactory(gson))
+                .addConverterFactory(GsonConverterFactory.create(gson))
+                // keeps the validators of a response until it is saved
+                .addCallAdapterFactory(httpValidators.callAdapterFactory())
                 .addCallAdapterFactory(RxJava2CallAdapterFactory.createAsync())
                 .build()
                 .create(GithubService.class);
@@ -48,7 +68,10 @@ class AppModule {
     @Singleton
     @Provides
     static GithubDb provideDb(Application app) {
-        return Room.databaseBuilder(app, GithubDb.class, "github.db").build();
+        // everything in the database is a cache of the GitHub API, so it is safe to drop it
+        return Room.databaseBuilder(app, GithubDb.class, "github.db")
+                .fallbackToDestructiveMigration()
+                .build();
     }
 
     @Singleton
@@ -62,4 +85,22 @@ class AppModule {
     static RepoDao provideRepoDao(GithubDb db) {
         return db.repoDao();
     }
+
+    @Singleton
+    @Provides
+    static FetchRecordDao provideFetchRecordDao(GithubDb db) {
+        return db.fetchRecordDao();
+    }
+
+    @Singleton
+    @Provides
+    static HttpValidatorDao provideHttpValidatorDao(GithubDb db) {
+        return db.httpValidatorDao();
+    }
+
+    @Singleton
+    @Provides
+    static ResourceMetrics provideResourceMetrics(HistogramResourceMetrics metrics) {
+        return metrics;
+    }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.di;
+
+import android.app.Application;
+
+import com.android.example.github.BuildConfig;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * Provides the {@link OkHttpClient} shared by every HTTP consumer in the app.
+ * <p>
+ * Sharing one client means sharing its disk cache, its connection pool (so TLS sessions are
+ * reused across Retrofit and Glide) and its dispatcher limits. Clients that need extra interceptors
+ * should derive from it with {@link OkHttpClient#newBuilder()}.
+ */
+@Module
+class NetworkModule {
+    @Singleton
+    @Provides
+    static Cache provideHttpCache(Application app) {
+        return new Cache(new File(app.getCacheDir(), "http"), BuildConfig.HTTP_CACHE_SIZE);
+    }
+
+    @Singleton
+    @Provides
+    static OkHttpClient provideOkHttpClient(Cache cache) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(BuildConfig.HTTP_MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(BuildConfig.HTTP_MAX_REQUESTS_PER_HOST);
+        return new OkHttpClient.Builder()
+                .cache(cache)
+                .connectionPool(new ConnectionPool(BuildConfig.HTTP_MAX_IDLE_CONNECTIONS,
+                        BuildConfig.HTTP_KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .build();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+
+import com.android.example.github.BuildConfig;
+import com.android.example.github.db.FetchRecordDao;
+import com.android.example.github.vo.FetchRecord;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * Fetches the resources the user has recently looked at again, so that the next time they are
+ * opened the {@link FreshnessPolicy} finds them fresh and they are served from the database.
+ * <p>
+ * A resource counts as recently used while it was observed in the last few days, the refresh
+ * itself does not count as a use. A resource that is saved along with another one that is
+ * refreshed, e.g. the repo of a repo page, is not refreshed on its own. The stalest ones are
+ * refreshed first, a few at a time with a pause between batches so that the refresh does not
+ * compete with the foreground for the network.
+ * <p>
+ * Each fetch goes through the {@link NetworkBoundResource} of its key, so it sends the same
+ * conditional request, saves the same way, records its fetch time and is shared with a screen
+ * that loads the same key at the same time.
+ */
+@Singleton
+public class BackgroundRefresher {
+    // resources observed longer ago than this are not in use anymore
+    private static final long RECENTLY_USED_MILLIS = TimeUnit.DAYS.toMillis(3);
+
+    // resources fetched more recently than this are left alone
+    private static final long MIN_AGE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    // the most resources that are refreshed in one run
+    private static final int MAX_RESOURCES = 100;
+
+    private final FetchRecordDao fetchRecordDao;
+    private final RepoRepository repoRepository;
+    private final UserRepository userRepository;
+    private final int batchSize;
+    private final long batchIntervalMillis;
+    private final Scheduler ioScheduler;
+    private final Scheduler mainScheduler;
+
+    @Inject
+    BackgroundRefresher(FetchRecordDao fetchRecordDao, RepoRepository repoRepository,
+            UserRepository userRepository) {
+        this(fetchRecordDao, repoRepository, userRepository,
+                BuildConfig.BACKGROUND_REFRESH_BATCH_SIZE,
+                BuildConfig.BACKGROUND_REFRESH_BATCH_INTERVAL_MILLIS, Schedulers.io(),
+                AndroidSchedulers.mainThread());
+    }
+
+    @VisibleForTesting
+    BackgroundRefresher(FetchRecordDao fetchRecordDao, RepoRepository repoRepository,
+            UserRepository userRepository, int batchSize, long batchIntervalMillis,
+            Scheduler ioScheduler, Scheduler mainScheduler) {
+        this.fetchRecordDao = fetchRecordDao;
+        this.repoRepository = repoRepository;
+        this.userRepository = userRepository;
+        this.batchSize = batchSize;
+        this.batchIntervalMillis = batchIntervalMillis;
+        this.ioScheduler = ioScheduler;
+        this.mainScheduler = mainScheduler;
+    }
+
+    /**
+     * Refreshes the recently used resources, stalest first. A resource that fails to refresh is
+     * skipped, the returned Completable completes once every batch has run. Disposing it stops
+     * before the next batch; requests that are shared with a screen keep running.
+     */
+    @NonNull
+    public Completable refresh() {
+        return Single.fromCallable(this::findStaleKeys)
+                .subscribeOn(ioScheduler)
+                .flattenAsFlowable(keys -> keys)
+                .buffer(batchSize)
+                .zipWith(Flowable.range(0, Integer.MAX_VALUE), (batch, index) -> index == 0
+                        ? refreshBatch(batch)
+                        : Completable.timer(batchIntervalMillis, TimeUnit.MILLISECONDS,
+                                ioScheduler).andThen(refreshBatch(batch)))
+                .concatMap(Completable::toFlowable)
+                .ignoreElements();
+    }
+
+    @WorkerThread
+    private List<String> findStaleKeys() {
+        long now = now();
+        List<FetchRecord> records = fetchRecordDao.findUsedSince(now - RECENTLY_USED_MILLIS,
+                now - MIN_AGE_MILLIS, MAX_RESOURCES);
+        Set<String> savedWithOthers = new HashSet<>();
+        for (FetchRecord record : records) {
+            savedWithOthers.addAll(RepoRepository.keysSavedWith(record.resourceKey));
+        }
+        List<String> keys = new ArrayList<>(records.size());
+        for (FetchRecord record : records) {
+            if (!savedWithOthers.contains(record.resourceKey)) {
+                keys.add(record.resourceKey);
+            }
+        }
+        return keys;
+    }
+
+    private Completable refreshBatch(List<String> keys) {
+        List<Completable> fetches = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            fetches.add(refresh(key));
+        }
+        return Completable.merge(fetches);
+    }
+
+    private Completable refresh(String key) {
+        return Completable.defer(() -> {
+            NetworkBoundResource<?, ?> resource = resourceFor(key);
+            if (resource == null) {
+                Timber.w("no resource for %s", key);
+                return Completable.complete();
+            }
+            return resource.fetch();
+        })
+                // resources dispatch their loading state when they are created
+                .subscribeOn(mainScheduler)
+                .doOnError(e -> Timber.w(e, "could not refresh %s", key))
+                .onErrorComplete();
+    }
+
+    @Nullable
+    private NetworkBoundResource<?, ?> resourceFor(String key) {
+        NetworkBoundResource<?, ?> resource = repoRepository.resourceFor(key);
+        return resource != null ? resource : userRepository.resourceFor(key);
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.android.example.github.util.ObjectCache;
+import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.User;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * In memory cache of the {@link Repo}s and {@link User}s that were recently read or written.
+ * <p>
+ * The repositories serve the first emission of {@code loadRepo} and {@code loadUser} from here
+ * before the database query returns. They keep it coherent by putting every repo and user they
+ * save into it, and by interning the single rows that {@code loadRepo}, {@code loadUser} and
+ * {@code loadRepoPage} read, so that an unchanged row keeps its instance.
+ * <p>
+ * List reads, such as the repos of an owner or search results, are not interned: that would
+ * compare every row of the list on the main thread. Their rows still reach the cache when they
+ * are saved.
+ */
+@Singleton
+public class EntityCache {
+    private static final int REPO_CACHE_SIZE = 200;
+    private static final int USER_CACHE_SIZE = 100;
+
+    private final ObjectCache<String, Repo> repos = new ObjectCache<>(REPO_CACHE_SIZE);
+    private final ObjectCache<String, User> users = new ObjectCache<>(USER_CACHE_SIZE);
+
+    @Inject
+    public EntityCache() {
+    }
+
+    @Nullable
+    public Repo getRepo(@NonNull String owner, @NonNull String name) {
+        return repos.get(key(owner, name));
+    }
+
+    @Nullable
+    public Repo internRepo(@NonNull String owner, @NonNull String name, @Nullable Repo repo) {
+        return repos.intern(key(owner, name), repo);
+    }
+
+    public void putRepos(@NonNull List<Repo> repoList) {
+        for (Repo repo : repoList) {
+            putRepo(repo);
+        }
+    }
+
+    public void putRepo(@NonNull Repo repo) {
+        repos.put(key(repo.owner.login, repo.name), repo);
+    }
+
+    @Nullable
+    public User getUser(@NonNull String login) {
+        return users.get(login);
+    }
+
+    @Nullable
+    public User internUser(@NonNull String login, @Nullable User user) {
+        return users.intern(login, user);
+    }
+
+    public void putUser(@NonNull User user) {
+        users.put(user.login, user);
+    }
+
+    public ObjectCache<String, Repo> getRepos() {
+        return repos;
+    }
+
+    public ObjectCache<String, User> getUsers() {
+        return users;
+    }
+
+    private static String key(String owner, String name) {
+        return owner + "/" + name;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import com.android.example.github.api.ApiResponse;
+import com.android.example.github.api.GithubService;
+import com.android.example.github.db.ChangeAwareUpserter;
+import com.android.example.github.db.GithubDb;
+import com.android.example.github.db.WriteBatcher;
+import com.android.example.github.vo.Contributor;
+import com.android.example.github.vo.ContributorList;
+import com.android.example.github.vo.Resource;
+import com.google.common.base.Optional;
+
+import java.util.List;
+
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * A task that reads the paging state of a repo's contributors in the database and fetches the
+ * next page, if it has one. The page is appended to the stored contributors.
+ */
+public class FetchNextContributorsPageTask {
+    private final String owner;
+    private final String name;
+    private final GithubService githubService;
+    private final GithubDb db;
+    private final WriteBatcher writeBatcher;
+    private final ChangeAwareUpserter upserter;
+
+    FetchNextContributorsPageTask(String owner, String name, GithubService githubService,
+            GithubDb db, WriteBatcher writeBatcher, ChangeAwareUpserter upserter) {
+        this.owner = owner;
+        this.name = name;
+        this.githubService = githubService;
+        this.db = db;
+        this.writeBatcher = writeBatcher;
+        this.upserter = upserter;
+    }
+
+    public Flowable<Resource<Boolean>> call() {
+        return Flowable.fromCallable(() -> Optional.fromNullable(
+                db.repoDao().findContributorList(owner, name)))
+                .subscribeOn(Schedulers.io())
+                .flatMap(state -> {
+                    if (!state.isPresent()) {
+                        return Flowable.empty();
+                    }
+
+                    final ContributorList current = state.get();
+                    if (current.next == null) {
+                        return Flowable.just(Resource.success(false));
+                    }
+
+                    return githubService.getContributors(owner, name, current.next).map(r -> {
+                        ApiResponse<List<Contributor>> apiResponse = new ApiResponse<>(r);
+                        if (apiResponse.isSuccessful() && apiResponse.body != null) {
+                            List<Contributor> contributors = apiResponse.body;
+                            for (Contributor contributor : contributors) {
+                                contributor.setRepoName(name);
+                                contributor.setRepoOwner(owner);
+                            }
+                            ContributorList updated = new ContributorList(owner, name,
+                                    apiResponse.getNextPage());
+                            writeBatcher.write(() -> {
+                                // the page follows the last stored row, the positions can have
+                                // gaps so the number of rows is not where it starts
+                                Integer last = db.repoDao().findLastContributorPosition(owner,
+                                        name);
+                                int offset = last == null ? 0 : last + 1;
+                                for (int i = 0; i < contributors.size(); i++) {
+                                    contributors.get(i).setPosition(offset + i);
+                                }
+                                upserter.upsertContributors(owner, name, contributors);
+                                db.repoDao().insert(updated);
+                            });
+                            return Resource.success(apiResponse.getNextPage() != null);
+                        } else {
+                            return Resource.error(apiResponse.errorMessage, false);
+                        }
+                    });
+                });
+    }
+}
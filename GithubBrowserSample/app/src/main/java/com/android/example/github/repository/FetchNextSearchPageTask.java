@@ -19,13 +19,13 @@ package com.android.example.github.repository;
 import com.android.example.github.api.ApiResponse;
 import com.android.example.github.api.GithubService;
 import com.android.example.github.api.RepoSearchResponse;
+import com.android.example.github.db.ChangeAwareUpserter;
 import com.android.example.github.db.GithubDb;
+import com.android.example.github.db.WriteBatcher;
 import com.android.example.github.vo.RepoSearchResult;
 import com.android.example.github.vo.Resource;
 import com.google.common.base.Optional;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.Callable;
 
 import io.reactivex.Flowable;
@@ -38,11 +38,18 @@ public class FetchNextSearchPageTask implements Callable {
     private final String query;
     private final GithubService githubService;
     private final GithubDb db;
+    private final WriteBatcher writeBatcher;
+    private final ChangeAwareUpserter upserter;
+    private final EntityCache entityCache;
 
-    FetchNextSearchPageTask(String query, GithubService githubService, GithubDb db) {
+    FetchNextSearchPageTask(String query, GithubService githubService, GithubDb db,
+            WriteBatcher writeBatcher, ChangeAwareUpserter upserter, EntityCache entityCache) {
         this.query = query;
         this.githubService = githubService;
         this.db = db;
+        this.writeBatcher = writeBatcher;
+        this.upserter = upserter;
+        this.entityCache = entityCache;
     }
 
     public Flowable<Resource<Boolean>> call() {
@@ -61,21 +68,16 @@ public class FetchNextSearchPageTask implements Callable {
                         ApiResponse<RepoSearchResponse> apiResponse = new ApiResponse<RepoSearchResponse>(r);
                         if (apiResponse.isSuccessful()) {
                             RepoSearchResponse item = apiResponse.body;
-                            // we merge all repo ids into 1 list so that it is easier to fetch the result list.
-                            List<Integer> ids = new ArrayList<>();
-                            ids.addAll(current.repoIds);
                             //noinspection ConstantConditions
-                            ids.addAll(item.getRepoIds());
-                            RepoSearchResult merged = new RepoSearchResult(query, ids,
+                            RepoSearchResult updated = new RepoSearchResult(query,
                                     item.getTotal(), apiResponse.getNextPage());
-                            try {
-                                db.beginTransaction();
-                                db.repoDao().insert(merged);
-                                db.repoDao().insertRepos(item.getItems());
-                                db.setTransactionSuccessful();
-                            } finally {
-                                db.endTransaction();
-                            }
+                            writeBatcher.write(() -> {
+                                upserter.upsertRepos(item.getItems());
+                                // only the new page is written, earlier results stay untouched
+                                db.repoDao().appendSearchResults(query, item.getRepoIdArray());
+                                upserter.upsertSearchResult(updated);
+                            });
+                            entityCache.putRepos(item.getItems());
                             return (Resource.success(apiResponse.getNextPage() != null));
                         } else {
                             return Resource.error(apiResponse.errorMessage, false);
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.repository;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import com.android.example.github.db.FetchRecordDao;
+import com.android.example.github.vo.FetchRecord;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Decides whether a network bound resource should be re-fetched based on when it was last fetched.
+ * <p>
+ * Fetch times are kept in the database so they survive process death, which means a cold start
+ * does not refetch data that was received a few minutes ago.
+ */
+@Singleton
+public class FreshnessPolicy {
+    public enum State {
+        /** Data is recent enough, the network is not used. */
+        FRESH,
+        /** Data can be displayed as is while it is revalidated in the background. */
+        STALE,
+        /** Data is too old or was never fetched, it must be reloaded. */
+        EXPIRED
+    }
+
+    private final FetchRecordDao fetchRecordDao;
+
+    @Inject
+    public FreshnessPolicy(FetchRecordDao fetchRecordDao) {
+        this.fetchRecordDao = fetchRecordDao;
+    }
+
+    @WorkerThread
+    @NonNull
+    public State check(@NonNull String key, @NonNull Ttl ttl) {
+        FetchRecord record = fetchRecordDao.find(key);
+        if (record == null || record.fetchedAt == 0) {
+            return State.EXPIRED;
+        }
+        long age = now() - record.fetchedAt;
+        if (age < 0) {
+            // clock went backwards, we cannot trust the record
+            return State.EXPIRED;
+        }
+        if (age <= ttl.freshFor) {
+            return State.FRESH;
+        }
+        if (age <= ttl.freshFor + ttl.staleFor) {
+            return State.STALE;
+        }
+        return State.EXPIRED;
+    }
+
+    @WorkerThread
+    public void markFetched(@NonNull String key) {
+        long now = now();
+        fetchRecordDao.insertIfAbsent(new FetchRecord(key, now, 0));
+        fetchRecordDao.updateFetchedAt(key, now);
+    }
+
+    /**
+     * Records that the resource was loaded for the user, as opposed to fetched in the background.
+     * The {@link BackgroundRefresher} only refreshes the resources that were used recently.
+     */
+    @WorkerThread
+    public void markUsed(@NonNull String key) {
+        long now = now();
+        fetchRecordDao.insertIfAbsent(new FetchRecord(key, 0, now));
+        fetchRecordDao.updateUsedAt(key, now);
+    }
+
+    @WorkerThread
+    public void reset(@NonNull String key) {
+        fetchRecordDao.delete(key);
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * How long a resource stays fresh and, after that, how long it can still be shown while it is
+     * being revalidated.
+     */
+    public static class Ttl {
+        final long freshFor;
+        final long staleFor;
+
+        private Ttl(long freshFor, long staleFor) {
+            this.freshFor = freshFor;
+            this.staleFor = staleFor;
+        }
+
+        public static Ttl of(long freshFor, long staleFor, TimeUnit timeUnit) {
+            return new Ttl(timeUnit.toMillis(freshFor), timeUnit.toMillis(staleFor));
+        }
+    }
+}
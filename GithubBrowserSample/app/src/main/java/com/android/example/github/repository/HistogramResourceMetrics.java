@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import android.support.annotation.NonNull;
+
+import com.android.example.github.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import timber.log.Timber;
+
+/**
+ * {@link ResourceMetrics} that keeps a histogram per resource type and stage and a counter per
+ * resource type and event, so that percentiles can be read at any time.
+ * <p>
+ * {@link #snapshot()} reads all of them at once, {@link #export()} logs it.
+ */
+@Singleton
+public class HistogramResourceMetrics implements ResourceMetrics {
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> events = new ConcurrentHashMap<>();
+
+    @Inject
+    public HistogramResourceMetrics() {
+    }
+
+    @Override
+    public void recordStage(@NonNull String resource, @NonNull Stage stage, long nanos) {
+        LatencyHistogram histogram = histograms.get(key(resource, stage));
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            LatencyHistogram existing = histograms.putIfAbsent(key(resource, stage), histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        histogram.record(nanos);
+    }
+
+    @Override
+    public void recordEvent(@NonNull String resource, @NonNull Event event) {
+        AtomicLong counter = events.get(key(resource, event));
+        if (counter == null) {
+            counter = new AtomicLong();
+            AtomicLong existing = events.putIfAbsent(key(resource, event), counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    /**
+     * Returns the given percentile of a stage in microseconds, e.g. {@code 0.5} for p50.
+     */
+    public long percentileMicros(@NonNull String resource, @NonNull Stage stage,
+            double percentile) {
+        LatencyHistogram histogram = histograms.get(key(resource, stage));
+        return histogram == null ? 0 : histogram.percentileMicros(percentile);
+    }
+
+    public long sampleCount(@NonNull String resource, @NonNull Stage stage) {
+        LatencyHistogram histogram = histograms.get(key(resource, stage));
+        return histogram == null ? 0 : histogram.count();
+    }
+
+    public long eventCount(@NonNull String resource, @NonNull Event event) {
+        AtomicLong counter = events.get(key(resource, event));
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Returns the p50 and p99 of every stage that has samples and the count of every event that
+     * happened, sorted by resource type.
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        List<StageSummary> stages = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            String key = entry.getKey();
+            int separator = key.lastIndexOf('/');
+            LatencyHistogram histogram = entry.getValue();
+            stages.add(new StageSummary(key.substring(0, separator),
+                    Stage.valueOf(key.substring(separator + 1)), histogram.count(),
+                    histogram.percentileMicros(0.5), histogram.percentileMicros(0.99)));
+        }
+        Collections.sort(stages, (a, b) -> {
+            int byResource = a.resource.compareTo(b.resource);
+            return byResource != 0 ? byResource : a.stage.compareTo(b.stage);
+        });
+        Map<String, Long> eventCounts = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : events.entrySet()) {
+            eventCounts.put(entry.getKey(), entry.getValue().get());
+        }
+        return new Snapshot(stages, eventCounts);
+    }
+
+    @Override
+    public void export() {
+        Snapshot snapshot = snapshot();
+        for (StageSummary stage : snapshot.stages) {
+            Timber.i("resource metrics: %s", stage);
+        }
+        Timber.i("resource events: %s", snapshot.events);
+    }
+
+    private static String key(String resource, Enum<?> stageOrEvent) {
+        return resource + "/" + stageOrEvent.name();
+    }
+
+    /**
+     * The percentiles of one stage of one resource type.
+     */
+    public static class StageSummary {
+        @NonNull
+        public final String resource;
+        @NonNull
+        public final Stage stage;
+        public final long count;
+        public final long p50Micros;
+        public final long p99Micros;
+
+        StageSummary(@NonNull String resource, @NonNull Stage stage, long count, long p50Micros,
+                long p99Micros) {
+            this.resource = resource;
+            this.stage = stage;
+            this.count = count;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+        }
+
+        @Override
+        public String toString() {
+            return resource + " " + stage + " count=" + count + " p50=" + p50Micros + "us p99="
+                    + p99Micros + "us";
+        }
+    }
+
+    /**
+     * The metrics recorded up to the time it was taken.
+     */
+    public static class Snapshot {
+        @NonNull
+        public final List<StageSummary> stages;
+        // keyed by resource type and event, e.g. "repo/NETWORK_FETCH"
+        @NonNull
+        public final Map<String, Long> events;
+
+        Snapshot(@NonNull List<StageSummary> stages, @NonNull Map<String, Long> events) {
+            this.stages = Collections.unmodifiableList(stages);
+            this.events = Collections.unmodifiableMap(events);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.reactivex.Flowable;
+
+/**
+ * Registry of network fetches that are currently running, keyed by the identity of the resource
+ * they fetch.
+ * <p>
+ * When several {@link NetworkBoundResource}s ask for the same key at the same time, only the first
+ * one creates the request; the others subscribe to the same {@link Flowable}, so the network call
+ * and the {@code saveCallResult} write both happen once. The entry is removed as soon as the
+ * request terminates, so a later load for the same key starts a fresh fetch.
+ * <p>
+ * A request is cancelled once all of its subscribers have disposed their subscriptions.
+ */
+@Singleton
+public class InFlightRequests {
+    private final Map<String, Flowable<?>> requests = new HashMap<>();
+
+    @Inject
+    public InFlightRequests() {
+    }
+
+    /**
+     * Returns the running request for the given key or creates a new one using the factory.
+     * <p>
+     * The returned Flowable replays its result so that subscribers arriving after the response is
+     * received but before the request is unregistered still receive it. It is connected to the
+     * network while it has subscribers, the last one leaving cancels the call.
+     */
+    @NonNull
+    public synchronized <T> Flowable<T> share(@NonNull String key,
+            @NonNull Callable<Flowable<T>> factory) {
+        //noinspection unchecked
+        Flowable<T> existing = (Flowable<T>) requests.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        Flowable<T> created;
+        try {
+            created = factory.call();
+        } catch (Exception e) {
+            return Flowable.error(e);
+        }
+        Flowable<T>[] holder = new Flowable[1];
+        holder[0] = created
+                .doFinally(() -> remove(key, holder[0]))
+                .replay()
+                .refCount();
+        requests.put(key, holder[0]);
+        return holder[0];
+    }
+
+    /**
+     * @return true if there is a request running for the given key.
+     */
+    public synchronized boolean isInFlight(@NonNull String key) {
+        return requests.containsKey(key);
+    }
+
+    private synchronized void remove(String key, Flowable<?> request) {
+        // only remove our own entry, a newer request might have been registered for the same key
+        if (requests.get(key) == request) {
+            requests.remove(key);
+        }
+    }
+}
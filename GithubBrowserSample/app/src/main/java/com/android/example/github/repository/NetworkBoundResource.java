@@ -24,12 +24,22 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.WorkerThread;
 
-import com.android.example.github.util.Objects;
+import com.android.example.github.db.TableGenerations;
+import com.android.example.github.repository.ResourceMetrics.Event;
+import com.android.example.github.repository.ResourceMetrics.Stage;
 import com.android.example.github.vo.Resource;
 
+import io.reactivex.Completable;
 import io.reactivex.Flowable;
+import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.schedulers.Schedulers;
+import retrofit2.HttpException;
+import retrofit2.Response;
+import timber.log.Timber;
+
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 
 /**
  * A generic class that can provide a resource backed by both the sqlite database and the network.
@@ -85,50 +95,318 @@ public abstract class NetworkBoundResource<DBType, NetType> {
 */
 public abstract class NetworkBoundResource<DBType, NetType> {
 
-    private final MediatorLiveData<Resource<DBType>> result = new MediatorLiveData<>();
+    private final MediatorLiveData<Resource<DBType>> result =
+            new MediatorLiveData<Resource<DBType>>() {
+                @Override
+                protected void onActive() {
+                    super.onActive();
+                    markUsed();
+                }
+            };
+
+    private final CompositeDisposable disposables = new CompositeDisposable();
+
+    @Nullable
+    private final InFlightRequests inFlightRequests;
+
+    @Nullable
+    private final FreshnessPolicy freshnessPolicy;
+
+    @Nullable
+    private final String requestKey;
+
+    @Nullable
+    private final FreshnessPolicy.Ttl ttl;
+
+    @Nullable
+    private final ResourceMetrics metrics;
+
+    // the part of the request key before the first '/', e.g. "repo"
+    @Nullable
+    private final String resourceType;
+
+    private final long createdAt = System.nanoTime();
+
+    // the first data of the last source loaded from the database and the generation of the tables
+    // it was read at, see stampGeneration
+    @Nullable
+    private DBType generationData;
+
+    private long dataGeneration = TableGenerations.UNKNOWN;
+
+    // the generation the data of the current value was read at
+    private long dispatchedGeneration = TableGenerations.UNKNOWN;
+
+    private boolean firstDataRecorded;
+
+    private boolean freshDataRecorded;
+
+    private boolean usedMarked;
 
     @MainThread
     NetworkBoundResource() {
-        result.setValue(Resource.loading(null));
+        this(null, null);
+    }
+
+    /**
+     * Creates a resource whose network fetch is shared with every other resource that is fetching
+     * the same {@code requestKey} at the same time.
+     */
+    @MainThread
+    NetworkBoundResource(@Nullable InFlightRequests inFlightRequests, @Nullable String requestKey) {
+        this(inFlightRequests, null, null, requestKey, null);
+    }
+
+    /**
+     * Creates a resource that also consults the {@link FreshnessPolicy} when the database has data,
+     * so that data fetched within the {@code ttl} is served without going to the network.
+     * <p>
+     * The stages of the resource are reported to {@code metrics}, under the part of the
+     * {@code requestKey} that precedes its first {@code '/'}.
+     */
+    @MainThread
+    NetworkBoundResource(@Nullable InFlightRequests inFlightRequests,
+            @Nullable FreshnessPolicy freshnessPolicy, @Nullable ResourceMetrics metrics,
+            @Nullable String requestKey, @Nullable FreshnessPolicy.Ttl ttl) {
+        this.inFlightRequests = inFlightRequests;
+        this.freshnessPolicy = freshnessPolicy;
+        this.metrics = metrics;
+        this.requestKey = requestKey;
+        this.ttl = ttl;
+        this.resourceType = requestKey == null || requestKey.indexOf('/') < 0
+                ? requestKey : requestKey.substring(0, requestKey.indexOf('/'));
+        // dispatched right away, before the database has been read
+        DBType inMemory = loadFromMemory();
+        if (inMemory != null) {
+            recordEvent(Event.MEMORY_HIT);
+        }
+        setValue(Resource.loading(inMemory));
+        long generation = dbGeneration();
         LiveData<DBType> dbSource = loadFromDb();
         result.addSource(dbSource, data -> {
             result.removeSource(dbSource);
-            if (shouldFetch(data)) {
+            stampGeneration(data, generation);
+            recordStage(Stage.DB_READ, createdAt);
+            long shouldFetchStart = System.nanoTime();
+            boolean shouldFetch = shouldFetch(data);
+            recordStage(Stage.SHOULD_FETCH, shouldFetchStart);
+            if (shouldFetch) {
                 fetchFromNetwork(dbSource);
-            } else {
+            } else if (freshnessPolicy == null || requestKey == null || ttl == null) {
+                recordEvent(Event.DB_HIT);
+                recordFreshData();
                 result.addSource(dbSource, newData -> setValue(Resource.success(newData)));
+            } else {
+                disposables.add(Single.fromCallable(() -> freshnessPolicy.check(requestKey, ttl))
+                        .subscribeOn(Schedulers.io())
+                        .observeOn(AndroidSchedulers.mainThread())
+                        .subscribe(state -> onFreshnessChecked(dbSource, state),
+                                e -> fetchFromNetwork(dbSource)));
             }
         });
     }
 
+    @MainThread
+    private void onFreshnessChecked(LiveData<DBType> dbSource, FreshnessPolicy.State state) {
+        switch (state) {
+            case FRESH:
+                recordEvent(Event.DB_HIT);
+                recordFreshData();
+                result.addSource(dbSource, newData -> setValue(Resource.success(newData)));
+                break;
+            case STALE:
+                // serve what we have, the database will dispatch the new data when it arrives
+                result.addSource(dbSource, newData -> setValue(Resource.success(newData)));
+                revalidate();
+                break;
+            case EXPIRED:
+                fetchFromNetwork(dbSource);
+                break;
+        }
+    }
+
+    /**
+     * Records the generation of the tables the first data of a source loaded at
+     * {@code generation} was read at. The data is only known to be what the tables held at that
+     * generation if no write started before it arrived.
+     */
+    @MainThread
+    private void stampGeneration(@Nullable DBType data, long generation) {
+        generationData = data;
+        dataGeneration = generation == dbGeneration() ? generation : TableGenerations.UNKNOWN;
+    }
+
+    /**
+     * Dispatches the value unless it is a duplicate of the current one.
+     * <p>
+     * The data is never compared on the main thread (see
+     * {@link Resource#stampedAfter(Resource, boolean)}). It is the same if it is the same
+     * instance, which the database dispatches again when a source is re-attached and sources that
+     * intern their rows return for unchanged rows, or if it was read at the same generation of
+     * its tables as the current data, e.g. when it is reloaded after a fetch that changed nothing.
+     */
     @MainThread
     private void setValue(Resource<DBType> newValue) {
-        if (!Objects.equals(result.getValue(), newValue)) {
-            result.setValue(newValue);
+        if (newValue.data != null) {
+            recordFirstData();
+        }
+        Resource<DBType> current = result.getValue();
+        long generation = newValue.data == generationData
+                ? dataGeneration : TableGenerations.UNKNOWN;
+        boolean sameData = generation != TableGenerations.UNKNOWN
+                && generation == dispatchedGeneration;
+        Resource<DBType> versioned = newValue.stampedAfter(current, sameData);
+        if (generation != TableGenerations.UNKNOWN || current == null
+                || versioned.version != current.version) {
+            dispatchedGeneration = generation;
+        }
+        if (!versioned.isSameVersion(current)) {
+            result.setValue(versioned);
         }
     }
 
     private void fetchFromNetwork(final LiveData<DBType> dbSource) {
-        Flowable<NetType> apiResponse = fetchFromNet();
+        recordEvent(Event.NETWORK_FETCH);
+        Flowable<NetType> apiResponse = sharedRequest();
         // we re-attach dbSource as a new source, it will dispatch its latest value quickly
         result.addSource(dbSource, newData -> setValue(Resource.loading(newData)));
-        apiResponse.subscribeOn(Schedulers.io())
-                .doOnNext(r -> saveCallResult(processResponse(r)))
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(r->{
-                                result.removeSource(dbSource);
-                                // we specially request a new live data,
-                                // otherwise we will get immediately last cached value,
-                                // which may not be updated with latest results received from network.
-                                result.addSource(loadFromDb(),
-                                        newData -> setValue(Resource.success(newData)));
-                               }
-                        , e -> {
+        disposables.add(apiResponse.observeOn(AndroidSchedulers.mainThread())
+                .subscribe(r -> {
+                        }, e -> {
+                            recordEvent(Event.FETCH_FAILED);
                             onFetchFailed(e);
+                            // the source is attached with the loading observer, replace it
+                            result.removeSource(dbSource);
                             result.addSource(dbSource,
                                     newData -> setValue(Resource.error(e.getMessage(), newData)));
-                            }
-                    );
+                        }, () -> {
+                            result.removeSource(dbSource);
+                            // we specially request a new live data,
+                            // otherwise we will get immediately last cached value,
+                            // which may not be updated with latest results received from network.
+                            // This is also what we dispatch when the server said nothing changed.
+                            long reloadStart = System.nanoTime();
+                            long generation = dbGeneration();
+                            LiveData<DBType> reloaded = loadFromDb();
+                            boolean[] firstValue = {true};
+                            result.addSource(reloaded, newData -> {
+                                if (firstValue[0]) {
+                                    firstValue[0] = false;
+                                    stampGeneration(newData, generation);
+                                }
+                                if (!freshDataRecorded) {
+                                    recordStage(Stage.RELOAD, reloadStart);
+                                    recordFreshData();
+                                }
+                                setValue(Resource.success(newData));
+                            });
+                        }
+                ));
+    }
+
+    private void revalidate() {
+        recordEvent(Event.NETWORK_FETCH);
+        disposables.add(sharedRequest().observeOn(AndroidSchedulers.mainThread())
+                .subscribe(r -> {
+                }, e -> {
+                    recordEvent(Event.FETCH_FAILED);
+                    onFetchFailed(e);
+                }, this::recordFreshData));
+    }
+
+    private Flowable<NetType> sharedRequest() {
+        if (inFlightRequests == null || requestKey == null) {
+            return createRequest();
+        }
+        return inFlightRequests.share(requestKey, this::createRequest);
+    }
+
+    private Flowable<NetType> createRequest() {
+        long[] subscribedAt = new long[1];
+        return fetchFromNet()
+                .subscribeOn(Schedulers.io())
+                .doOnSubscribe(subscription -> subscribedAt[0] = System.nanoTime())
+                .doOnNext(r -> {
+                    recordStage(Stage.NETWORK, subscribedAt[0]);
+                    if (isNotModified(r)) {
+                        recordEvent(Event.NOT_MODIFIED);
+                    }
+                })
+                // a 304 means the data we have is still valid, complete without parsing or saving
+                .filter(r -> !isNotModified(r))
+                .onErrorResumeNext((Throwable e) -> {
+                    if (isNotModified(e)) {
+                        recordEvent(Event.NOT_MODIFIED);
+                        return Flowable.empty();
+                    }
+                    return Flowable.error(e);
+                })
+                .doOnNext(r -> {
+                    long processStart = System.nanoTime();
+                    NetType processed = processResponse(r);
+                    recordStage(Stage.PROCESS_RESPONSE, processStart);
+                    long saveStart = System.nanoTime();
+                    saveCallResult(processed);
+                    recordStage(Stage.SAVE_CALL_RESULT, saveStart);
+                })
+                .doOnComplete(() -> {
+                    if (freshnessPolicy != null && requestKey != null) {
+                        freshnessPolicy.markFetched(requestKey);
+                    }
+                });
+    }
+
+    private static boolean isNotModified(Object responseOrError) {
+        if (responseOrError instanceof Response) {
+            return ((Response) responseOrError).code() == HTTP_NOT_MODIFIED;
+        }
+        if (responseOrError instanceof HttpException) {
+            return ((HttpException) responseOrError).code() == HTTP_NOT_MODIFIED;
+        }
+        return false;
+    }
+
+    @MainThread
+    private void recordFirstData() {
+        if (!firstDataRecorded) {
+            firstDataRecorded = true;
+            recordStage(Stage.FIRST_DATA, createdAt);
+        }
+    }
+
+    @MainThread
+    private void recordFreshData() {
+        if (!freshDataRecorded) {
+            freshDataRecorded = true;
+            recordStage(Stage.FRESH_DATA, createdAt);
+        }
+    }
+
+    /**
+     * Records that the resource is observed, which a {@link #fetch()} in the background is not.
+     */
+    @MainThread
+    private void markUsed() {
+        if (usedMarked || freshnessPolicy == null || requestKey == null) {
+            return;
+        }
+        usedMarked = true;
+        disposables.add(Completable.fromAction(() -> freshnessPolicy.markUsed(requestKey))
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {
+                }, e -> Timber.w(e, "could not record the use of %s", requestKey)));
+    }
+
+    private void recordStage(Stage stage, long startNanos) {
+        if (metrics != null && resourceType != null) {
+            metrics.recordStage(resourceType, stage, System.nanoTime() - startNanos);
+        }
+    }
+
+    private void recordEvent(Event event) {
+        if (metrics != null && resourceType != null) {
+            metrics.recordEvent(resourceType, event);
+        }
     }
 
     protected void onFetchFailed(Throwable e) {
@@ -138,6 +416,28 @@ public abstract class NetworkBoundResource<DBType, NetType> {
         return result;
     }
 
+    /**
+     * Stops waiting for the network. If no other resource shares the request, the call is
+     * cancelled and its response is not saved. The LiveData keeps dispatching database changes.
+     */
+    @MainThread
+    public void cancel() {
+        disposables.dispose();
+    }
+
+    /**
+     * Fetches and saves the resource whether or not {@link #shouldFetch} would, without reading
+     * the database. The request is shared with loads of the same key that run at the same time.
+     */
+    @NonNull
+    public Completable fetch() {
+        return Completable.defer(() -> {
+            recordEvent(Event.NETWORK_FETCH);
+            return sharedRequest().doOnError(e -> recordEvent(Event.FETCH_FAILED))
+                    .ignoreElements();
+        });
+    }
+
     @WorkerThread
     protected NetType processResponse(NetType response) {
         return response;
@@ -146,9 +446,34 @@ public abstract class NetworkBoundResource<DBType, NetType> {
     @WorkerThread
     protected abstract void saveCallResult(@NonNull NetType item);
 
+    /**
+     * Returns the data that is already in memory, if any. It is dispatched synchronously as the
+     * data of the first loading state.
+     */
+    @Nullable
+    @MainThread
+    protected DBType loadFromMemory() {
+        return null;
+    }
+
+    /**
+     * Returns the generation of the tables {@link #loadFromDb()} reads, see
+     * {@link TableGenerations}. Data loaded again while it is unchanged then keeps its version
+     * without being compared. By default it is {@link TableGenerations#UNKNOWN} and only the same
+     * instance is recognized.
+     */
+    @MainThread
+    protected long dbGeneration() {
+        return TableGenerations.UNKNOWN;
+    }
+
     @MainThread
     protected abstract boolean shouldFetch(@Nullable DBType data);
 
+    /**
+     * Returns a new LiveData that runs its query once it is observed, like the ones returned by
+     * Room.
+     */
     @NonNull
     @MainThread
     protected abstract LiveData<DBType> loadFromDb();
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+
+import com.android.example.github.BuildConfig;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import dagger.android.AndroidInjection;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Runs the {@link BackgroundRefresher} while the device is idle and charging.
+ * <p>
+ * Job scheduling needs API 21, older devices only refresh when a screen is opened.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class RefreshJobService extends JobService {
+    private static final int JOB_ID = 1;
+
+    @Inject
+    BackgroundRefresher refresher;
+
+    private Disposable refresh;
+
+    /**
+     * Schedules the periodic refresh unless it is already scheduled.
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        JobScheduler jobScheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (JobInfo job : jobScheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_ID) {
+                // scheduling it again would restart its period
+                return;
+            }
+        }
+        jobScheduler.schedule(new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, RefreshJobService.class))
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setPeriodic(TimeUnit.HOURS.toMillis(BuildConfig.BACKGROUND_REFRESH_PERIOD_HOURS))
+                .build());
+    }
+
+    @Override
+    public void onCreate() {
+        AndroidInjection.inject(this);
+        super.onCreate();
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        refresh = refresher.refresh().subscribe(() -> jobFinished(params, false),
+                e -> jobFinished(params, true));
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // the device is not idle or charging anymore, the rest waits for the next run
+        refresh.dispose();
+        return false;
+    }
+}
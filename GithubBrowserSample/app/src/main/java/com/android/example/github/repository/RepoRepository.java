@@ -17,23 +17,35 @@
 package com.android.example.github.repository;
 
 import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MediatorLiveData;
 import android.arch.lifecycle.Transformations;
+import android.arch.paging.LivePagedListBuilder;
+import android.arch.paging.PagedList;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
 
 import com.android.example.github.api.ApiResponse;
 import com.android.example.github.api.GithubService;
+import com.android.example.github.api.HttpValidators;
 import com.android.example.github.api.RepoSearchResponse;
+import com.android.example.github.db.ChangeAwareUpserter;
 import com.android.example.github.db.GithubDb;
 import com.android.example.github.db.RepoDao;
-import com.android.example.github.util.AbsentLiveData;
-import com.android.example.github.util.RateLimiter;
+import com.android.example.github.db.TableGenerations;
+import com.android.example.github.db.UserDao;
+import com.android.example.github.db.WriteBatcher;
 import com.android.example.github.vo.Contributor;
+import com.android.example.github.vo.ContributorList;
 import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoPage;
 import com.android.example.github.vo.RepoSearchResult;
 import com.android.example.github.vo.Resource;
+import com.android.example.github.vo.User;
 import com.google.common.base.Optional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -41,11 +53,17 @@ import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import io.reactivex.Completable;
 import io.reactivex.Flowable;
 import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import retrofit2.HttpException;
 import retrofit2.Response;
 import timber.log.Timber;
 
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+
 /**
  * Repository that handles Repo instances.
  * <p>
@@ -56,33 +74,105 @@ import timber.log.Timber;
 @Singleton
 public class RepoRepository {
 
+    private static final FreshnessPolicy.Ttl REPO_LIST_TTL =
+            FreshnessPolicy.Ttl.of(10, 24 * 60, TimeUnit.MINUTES);
+
+    private static final FreshnessPolicy.Ttl REPO_TTL =
+            FreshnessPolicy.Ttl.of(60, 24 * 60, TimeUnit.MINUTES);
+
+    private static final FreshnessPolicy.Ttl CONTRIBUTORS_TTL =
+            FreshnessPolicy.Ttl.of(60, 24 * 60, TimeUnit.MINUTES);
+
+    // the default page size of the contributors API
+    private static final int CONTRIBUTORS_PAGE_SIZE = 30;
+
+    private static final PagedList.Config CONTRIBUTORS_PAGE_CONFIG =
+            new PagedList.Config.Builder()
+                    .setPageSize(CONTRIBUTORS_PAGE_SIZE)
+                    .setPrefetchDistance(10)
+                    .setEnablePlaceholders(true)
+                    .build();
+
+    // the shortest of its parts: the repo, its contributors and the owner user
+    private static final FreshnessPolicy.Ttl REPO_PAGE_TTL =
+            FreshnessPolicy.Ttl.of(60, 24 * 60, TimeUnit.MINUTES);
+
+    // matches the page size of the search API
+    private static final PagedList.Config SEARCH_PAGE_CONFIG = new PagedList.Config.Builder()
+            .setPageSize(30)
+            .setPrefetchDistance(10)
+            .setEnablePlaceholders(true)
+            .build();
+
     private final GithubDb db;
 
     private final RepoDao repoDao;
 
+    private final UserDao userDao;
+
     private final GithubService githubService;
 
+    private final InFlightRequests inFlightRequests;
+
+    private final FreshnessPolicy freshnessPolicy;
+
+    private final WriteBatcher writeBatcher;
+
+    private final ChangeAwareUpserter upserter;
+
+    private final EntityCache entityCache;
 
-    private RateLimiter<String> repoListRateLimit = new RateLimiter<>(10, TimeUnit.MINUTES);
+    private final HttpValidators httpValidators;
+
+    private final ResourceMetrics metrics;
+
+    private final TableGenerations tableGenerations;
 
     @Inject
-    public RepoRepository( GithubDb db, RepoDao repoDao,
-                          GithubService githubService) {
+    public RepoRepository( GithubDb db, RepoDao repoDao, UserDao userDao,
+                          GithubService githubService, InFlightRequests inFlightRequests,
+                          FreshnessPolicy freshnessPolicy, WriteBatcher writeBatcher,
+                          ChangeAwareUpserter upserter, EntityCache entityCache,
+                          HttpValidators httpValidators, ResourceMetrics metrics,
+                          TableGenerations tableGenerations) {
         this.db = db;
         this.repoDao = repoDao;
+        this.userDao = userDao;
         this.githubService = githubService;
+        this.inFlightRequests = inFlightRequests;
+        this.freshnessPolicy = freshnessPolicy;
+        this.writeBatcher = writeBatcher;
+        this.upserter = upserter;
+        this.entityCache = entityCache;
+        this.httpValidators = httpValidators;
+        this.metrics = metrics;
+        this.tableGenerations = tableGenerations;
     }
 
     public LiveData<Resource<List<Repo>>> loadRepos(String owner) {
-        return new NetworkBoundResource<List<Repo>, List<Repo>>() {
+        return reposResource(owner).asLiveData();
+    }
+
+    NetworkBoundResource<List<Repo>, List<Repo>> reposResource(String owner) {
+        return new NetworkBoundResource<List<Repo>, List<Repo>>(inFlightRequests,
+                freshnessPolicy, metrics, "repos/" + owner, REPO_LIST_TTL) {
             @Override
             protected void saveCallResult(@NonNull List<Repo> item) {
-                repoDao.insertRepos(item);
+                writeBatcher.write(() -> {
+                    upserter.upsertRepos(item);
+                    httpValidators.saveWith(item);
+                });
+                entityCache.putRepos(item);
             }
 
             @Override
             protected boolean shouldFetch(@Nullable List<Repo> data) {
-                return data == null || data.isEmpty() || repoListRateLimit.shouldFetch(owner);
+                return data == null || data.isEmpty();
+            }
+
+            @Override
+            protected long dbGeneration() {
+                return tableGenerations.get(TableGenerations.REPO);
             }
 
             @NonNull
@@ -96,19 +186,23 @@ public class RepoRepository {
             protected Flowable<List<Repo>> fetchFromNet() {
                 return githubService.getRepos(owner);
             }
+        };
+    }
 
-            @Override
-            protected void onFetchFailed(Throwable e) {
-                repoListRateLimit.reset(owner);
-            }
-        }.asLiveData();
+    LiveData<Resource<Repo>> loadRepo(String owner, String name) {
+        return repoResource(owner, name).asLiveData();
     }
 
-    public LiveData<Resource<Repo>> loadRepo(String owner, String name) {
-        return new NetworkBoundResource<Repo, Repo>() {
+    NetworkBoundResource<Repo, Repo> repoResource(String owner, String name) {
+        return new NetworkBoundResource<Repo, Repo>(inFlightRequests,
+                freshnessPolicy, metrics, "repo/" + owner + "/" + name, REPO_TTL) {
             @Override
             protected void saveCallResult(@NonNull Repo item) {
-                repoDao.insert(item);
+                writeBatcher.write(() -> {
+                    upserter.upsertRepo(item);
+                    httpValidators.saveWith(item);
+                });
+                entityCache.putRepo(item);
             }
 
             @Override
@@ -116,10 +210,23 @@ public class RepoRepository {
                 return data == null;
             }
 
+            @Nullable
+            @Override
+            protected Repo loadFromMemory() {
+                return entityCache.getRepo(owner, name);
+            }
+
+            @Override
+            protected long dbGeneration() {
+                return tableGenerations.get(TableGenerations.REPO);
+            }
+
             @NonNull
             @Override
             protected LiveData<Repo> loadFromDb() {
-                return repoDao.load(owner, name);
+                // an unchanged row is replaced by the cached instance
+                return Transformations.map(repoDao.load(owner, name),
+                        repo -> entityCache.internRepo(owner, name, repo));
             }
 
             @NonNull
@@ -127,28 +234,33 @@ public class RepoRepository {
             protected Flowable<Repo> fetchFromNet() {
                 return githubService.getRepo(owner, name);
             }
-        }.asLiveData();
+        };
     }
 
-    public LiveData<Resource<List<Contributor>>> loadContributors(String owner, String name) {
-        return new NetworkBoundResource<List<Contributor>, List<Contributor>>() {
+    /**
+     * Loads the first page of contributors of a repo, the following ones are read with
+     * {@link #contributors} and fetched with {@link #contributorsNextPage}.
+     */
+    LiveData<Resource<List<Contributor>>> loadContributors(String owner, String name) {
+        return contributorsResource(owner, name).asLiveData();
+    }
+
+    NetworkBoundResource<List<Contributor>, Response<List<Contributor>>> contributorsResource(
+            String owner, String name) {
+        return new NetworkBoundResource<List<Contributor>, Response<List<Contributor>>>(
+                inFlightRequests, freshnessPolicy, metrics, "contributors/" + owner + "/" + name,
+                CONTRIBUTORS_TTL) {
             @Override
-            protected void saveCallResult(@NonNull List<Contributor> contributors) {
-                for (Contributor contributor : contributors) {
-                    contributor.setRepoName(name);
-                    contributor.setRepoOwner(owner);
-                }
-                db.beginTransaction();
-                try {
-                    repoDao.createRepoIfNotExists(new Repo(Repo.UNKNOWN_ID,
-                            name, owner + "/" + name, "",
-                            new Repo.Owner(owner, null), 0));
-                    repoDao.insertContributors(contributors);
-                    db.setTransactionSuccessful();
-                } finally {
-                    db.endTransaction();
+            protected void saveCallResult(@NonNull Response<List<Contributor>> response) {
+                ApiResponse<List<Contributor>> apiResponse = new ApiResponse<>(response);
+                if (apiResponse.isSuccessful() && apiResponse.body != null) {
+                    writeBatcher.write(() -> {
+                        saveFirstContributorsPage(owner, name, apiResponse.body,
+                                apiResponse.getNextPage());
+                        httpValidators.saveWith(response);
+                    });
+                    Timber.d("rece saved contributors to db");
                 }
-                Timber.d("rece saved contributors to db");
             }
 
             @Override
@@ -157,61 +269,296 @@ public class RepoRepository {
                 return data == null || data.isEmpty();
             }
 
+            @Override
+            protected long dbGeneration() {
+                return tableGenerations.get(TableGenerations.CONTRIBUTOR);
+            }
+
             @NonNull
             @Override
             protected LiveData<List<Contributor>> loadFromDb() {
-                return repoDao.loadContributors(owner, name);
+                return repoDao.loadFirstContributors(owner, name, CONTRIBUTORS_PAGE_SIZE);
             }
 
             @NonNull
             @Override
-            protected Flowable<List<Contributor>> fetchFromNet() {
+            protected Flowable<Response<List<Contributor>>> fetchFromNet() {
                 return githubService.getContributors(owner, name);
             }
-        }.asLiveData();
+        };
+    }
+
+    /**
+     * Returns the contributors of a repo, paged from the database.
+     * <p>
+     * The first page is loaded with the repo by {@link #loadRepoPage}; the boundary callback is
+     * notified when the list runs out of rows so that it can fetch the next one with
+     * {@link #contributorsNextPage}.
+     */
+    public LiveData<PagedList<Contributor>> contributors(String owner, String name,
+            PagedList.BoundaryCallback<Contributor> boundaryCallback) {
+        return new LivePagedListBuilder<>(repoDao.contributorsDataSource(owner, name),
+                CONTRIBUTORS_PAGE_CONFIG)
+                .setBoundaryCallback(boundaryCallback)
+                .build();
+    }
+
+    public Flowable<Resource<Boolean>> contributorsNextPage(String owner, String name) {
+        return new FetchNextContributorsPageTask(owner, name, githubService, db, writeBatcher,
+                upserter).call();
+    }
+
+    /**
+     * Saves a first page of contributors, which restarts the paging of the list from the second
+     * page. The pages that were stored after the first one are deleted: they would be out of date
+     * and, since the list would not run out of rows, the second page would never be fetched again.
+     */
+    @WorkerThread
+    private void saveFirstContributorsPage(String owner, String name,
+            List<Contributor> contributors, @Nullable Integer next) {
+        List<String> logins = new ArrayList<>(contributors.size());
+        for (int i = 0; i < contributors.size(); i++) {
+            Contributor contributor = contributors.get(i);
+            contributor.setRepoName(name);
+            contributor.setRepoOwner(owner);
+            contributor.setPosition(i);
+            logins.add(contributor.getLogin());
+        }
+        upserter.createRepoIfNotExists(new Repo(Repo.UNKNOWN_ID,
+                name, owner + "/" + name, "",
+                new Repo.Owner(owner, null), 0));
+        upserter.deleteContributorsExcept(owner, name, logins);
+        upserter.upsertContributors(owner, name, contributors);
+        repoDao.insert(new ContributorList(owner, name, next));
+    }
+
+    /**
+     * Loads the repo, its contributors and its owner as one resource.
+     * <p>
+     * The three calls run concurrently, so the page is complete after about as long as the slowest
+     * of them. Their results are saved in a single transaction and the owner is kept in memory, so
+     * opening the owner's profile right after does not wait for the network.
+     */
+    public LiveData<Resource<RepoPage>> loadRepoPage(String owner, String name) {
+        return repoPageResource(owner, name).asLiveData();
+    }
+
+    NetworkBoundResource<RepoPage, ?> repoPageResource(String owner, String name) {
+        return new NetworkBoundResource<RepoPage, RepoPageResponse>(inFlightRequests,
+                freshnessPolicy, metrics, "repoPage/" + owner + "/" + name,
+                REPO_PAGE_TTL) {
+            @Override
+            protected void saveCallResult(@NonNull RepoPageResponse page) {
+                ApiResponse<List<Contributor>> contributors = page.contributors == null
+                        ? null : new ApiResponse<>(page.contributors);
+                writeBatcher.write(() -> {
+                    if (page.repo != null) {
+                        upserter.upsertRepo(page.repo);
+                    }
+                    if (contributors != null && contributors.body != null) {
+                        saveFirstContributorsPage(owner, name, contributors.body,
+                                contributors.getNextPage());
+                    }
+                    if (page.owner != null) {
+                        upserter.upsertUser(page.owner);
+                    }
+                    httpValidators.saveWith(page.repo);
+                    httpValidators.saveWith(page.contributors);
+                    httpValidators.saveWith(page.owner);
+                    // the parts are as fresh as if they were loaded one by one
+                    for (String key : keysSavedWith("repoPage/" + owner + "/" + name)) {
+                        freshnessPolicy.markFetched(key);
+                    }
+                });
+                if (page.repo != null) {
+                    entityCache.putRepo(page.repo);
+                }
+                if (page.owner != null) {
+                    entityCache.putUser(page.owner);
+                }
+            }
+
+            @Override
+            protected boolean shouldFetch(@Nullable RepoPage data) {
+                return data == null || data.repo == null || data.owner == null
+                        || data.contributors == null || data.contributors.isEmpty();
+            }
+
+            @Override
+            protected long dbGeneration() {
+                return tableGenerations.get(TableGenerations.REPO, TableGenerations.CONTRIBUTOR,
+                        TableGenerations.USER);
+            }
+
+            @NonNull
+            @Override
+            protected LiveData<RepoPage> loadFromDb() {
+                return combine(
+                        Transformations.map(repoDao.load(owner, name),
+                                repo -> entityCache.internRepo(owner, name, repo)),
+                        repoDao.loadFirstContributors(owner, name, CONTRIBUTORS_PAGE_SIZE),
+                        Transformations.map(userDao.findByLogin(owner),
+                                user -> entityCache.internUser(owner, user)));
+            }
+
+            @NonNull
+            @Override
+            protected Flowable<RepoPageResponse> fetchFromNet() {
+                return Flowable.zip(
+                        orNotModified(githubService.getRepo(owner, name)),
+                        // the response is kept for its Link header, which has the next page
+                        orNotModified(githubService.getContributors(owner, name)
+                                .map(RepoRepository::successfulOrThrow)),
+                        orNotModified(githubService.getUser(owner)),
+                        (repo, contributors, user) -> new RepoPageResponse(repo.orNull(),
+                                contributors.orNull(), user.orNull()));
+            }
+        };
+    }
+
+    /**
+     * Emits a page once each source has dispatched its first value, then on every change.
+     */
+    private static LiveData<RepoPage> combine(LiveData<Repo> repo,
+            LiveData<List<Contributor>> contributors, LiveData<User> owner) {
+        MediatorLiveData<RepoPage> page = new MediatorLiveData<>();
+        boolean[] loaded = new boolean[3];
+        Runnable update = () -> {
+            if (loaded[0] && loaded[1] && loaded[2]) {
+                page.setValue(new RepoPage(repo.getValue(), contributors.getValue(),
+                        owner.getValue()));
+            }
+        };
+        page.addSource(repo, value -> {
+            loaded[0] = true;
+            update.run();
+        });
+        page.addSource(contributors, value -> {
+            loaded[1] = true;
+            update.run();
+        });
+        page.addSource(owner, value -> {
+            loaded[2] = true;
+            update.run();
+        });
+        return page;
+    }
+
+    /**
+     * Runs the call on its own IO thread so that it can be zipped with others, and turns a 304
+     * into an absent value instead of an error that would fail the whole zip.
+     */
+    private static <T> Flowable<Optional<T>> orNotModified(Flowable<T> call) {
+        return call.subscribeOn(Schedulers.io())
+                .map(Optional::of)
+                .onErrorResumeNext((Throwable e) -> e instanceof HttpException
+                        && ((HttpException) e).code() == HTTP_NOT_MODIFIED
+                        ? Flowable.just(Optional.absent()) : Flowable.error(e));
+    }
+
+    /**
+     * Fails the same way as calls that do not return a {@link Response}.
+     */
+    private static <T> Response<T> successfulOrThrow(Response<T> response) {
+        if (!response.isSuccessful()) {
+            throw new HttpException(response);
+        }
+        return response;
     }
 
     public Flowable<Resource<Boolean>> searchNextPage(String query) {
-        return new FetchNextSearchPageTask(query, githubService, db).call();
+        return new FetchNextSearchPageTask(query, githubService, db, writeBatcher,
+                upserter, entityCache).call();
     }
 
-    public LiveData<Resource<List<Repo>>> search(String query) {
-        return new NetworkBoundResource<List<Repo>, Response<RepoSearchResponse>>() {
+    /**
+     * Returns the position at which the next page of the query will be stored. Positions can have
+     * gaps, a repo that is already in the results is not stored again, so this is not the number of
+     * results.
+     */
+    public Single<Integer> nextSearchResultPosition(String query) {
+        return Single.fromCallable(() -> {
+            Integer last = repoDao.findLastSearchResultPosition(query);
+            return last == null ? 0 : last + 1;
+        }).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Removes the results of the query from the given position on and makes {@code nextPage} the
+     * page that {@link #searchNextPage} fetches, which puts the results back to where they were
+     * before that page was loaded.
+     */
+    public Completable dropSearchResults(String query, int fromPosition, int nextPage) {
+        return Completable.fromAction(() -> writeBatcher.write(() -> {
+            RepoSearchResult current = repoDao.findSearchResult(query);
+            if (current != null) {
+                repoDao.deleteSearchResultItemsFrom(query, fromPosition);
+                upserter.upsertSearchResult(
+                        new RepoSearchResult(query, current.totalCount, nextPage));
+            }
+        })).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Returns the results of the given query, paged from the database.
+     * <p>
+     * The first page is loaded by {@link #search(String)}; the boundary callback is notified when
+     * the list runs out of rows so that it can fetch the next one with {@link #searchNextPage}.
+     */
+    public LiveData<PagedList<Repo>> searchResults(String query,
+            PagedList.BoundaryCallback<Repo> boundaryCallback) {
+        return new LivePagedListBuilder<>(repoDao.searchResultsDataSource(query),
+                SEARCH_PAGE_CONFIG)
+                .setBoundaryCallback(boundaryCallback)
+                .build();
+    }
+
+    /**
+     * Loads the first page of the given query. The resource only carries the
+     * {@link RepoSearchResult} row, the repos themselves are read with {@link #searchResults}.
+     * <p>
+     * The resource is returned rather than its LiveData so that the caller can
+     * {@link NetworkBoundResource#cancel() cancel} it when the query is superseded.
+     */
+    public NetworkBoundResource<RepoSearchResult, Response<RepoSearchResponse>> search(
+            String query) {
+        return new NetworkBoundResource<RepoSearchResult, Response<RepoSearchResponse>>(
+                // no ttl, a query is only fetched once; the fetch time is for BackgroundRefresher
+                inFlightRequests, freshnessPolicy, metrics, "search/" + query, null) {
 
             @Override
             protected void saveCallResult(@NonNull Response<RepoSearchResponse> rsp) {
                 ApiResponse<RepoSearchResponse> apiResponse = new ApiResponse<RepoSearchResponse>(rsp);
                 if (apiResponse.isSuccessful()) {
                     RepoSearchResponse item = apiResponse.body;
-                    List<Integer> repoIds = item.getRepoIds();
                     RepoSearchResult repoSearchResult = new RepoSearchResult(
-                            query, repoIds, item.getTotal(), apiResponse.getNextPage());
-                    db.beginTransaction();
-                    try {
-                        repoDao.insertRepos(item.getItems());
-                        repoDao.insert(repoSearchResult);
-                        db.setTransactionSuccessful();
-                    } finally {
-                        db.endTransaction();
-                    }
+                            query, item.getTotal(), apiResponse.getNextPage());
+                    writeBatcher.write(() -> {
+                        upserter.upsertRepos(item.getItems());
+                        // a new first page replaces whatever was loaded for this query before
+                        repoDao.deleteSearchResultItems(query);
+                        repoDao.appendSearchResults(query, item.getRepoIdArray());
+                        upserter.upsertSearchResult(repoSearchResult);
+                        httpValidators.saveWith(rsp);
+                    });
+                    entityCache.putRepos(item.getItems());
                 }
             }
 
             @Override
-            protected boolean shouldFetch(@Nullable List<Repo> data) {
-                return data == null || data.isEmpty();
+            protected boolean shouldFetch(@Nullable RepoSearchResult data) {
+                return data == null;
+            }
+
+            @Override
+            protected long dbGeneration() {
+                return tableGenerations.get(TableGenerations.REPO_SEARCH_RESULT);
             }
 
             @NonNull
             @Override
-            protected LiveData<List<Repo>> loadFromDb() {
-                return Transformations.switchMap(repoDao.search(query), searchData -> {
-                    if (searchData == null) {
-                        return AbsentLiveData.create();
-                    } else {
-                        return repoDao.loadOrdered(searchData.repoIds);
-                    }
-                });
+            protected LiveData<RepoSearchResult> loadFromDb() {
+                return repoDao.search(query);
             }
 
             @NonNull
@@ -220,6 +567,63 @@ public class RepoRepository {
                 return githubService.searchRepos(query);
             }
 
-        }.asLiveData();
+        };
+    }
+
+    /**
+     * Returns the keys of the resources that are fetched and saved along with the resource of the
+     * given key, e.g. the repo, contributors and owner of a repo page.
+     */
+    static List<String> keysSavedWith(String key) {
+        String[] parts = key.split("/", 3);
+        if (parts.length == 3 && parts[0].equals("repoPage")) {
+            return Arrays.asList("repo/" + parts[1] + "/" + parts[2],
+                    "contributors/" + parts[1] + "/" + parts[2], "user/" + parts[1]);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the resource that is stored under the given {@link FreshnessPolicy} key, or null if
+     * the key does not belong to this repository.
+     */
+    @Nullable
+    NetworkBoundResource<?, ?> resourceFor(String key) {
+        String[] parts = key.split("/", 3);
+        switch (parts[0]) {
+            case "repos":
+                return parts.length == 2 ? reposResource(parts[1]) : null;
+            case "repo":
+                return parts.length == 3 ? repoResource(parts[1], parts[2]) : null;
+            case "contributors":
+                return parts.length == 3 ? contributorsResource(parts[1], parts[2]) : null;
+            case "repoPage":
+                return parts.length == 3 ? repoPageResource(parts[1], parts[2]) : null;
+            case "search":
+                // the query may contain slashes
+                return key.length() > "search/".length()
+                        ? search(key.substring("search/".length())) : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * What the network returned for a {@link RepoPage}, a null part was not modified.
+     */
+    private static class RepoPageResponse {
+        @Nullable
+        final Repo repo;
+        @Nullable
+        final Response<List<Contributor>> contributors;
+        @Nullable
+        final User owner;
+
+        RepoPageResponse(@Nullable Repo repo, @Nullable Response<List<Contributor>> contributors,
+                @Nullable User owner) {
+            this.repo = repo;
+            this.contributors = contributors;
+            this.owner = owner;
+        }
     }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import android.support.annotation.AnyThread;
+import android.support.annotation.NonNull;
+
+/**
+ * Receives the timings and events of {@link NetworkBoundResource}s.
+ * <p>
+ * Resources are identified by their type, e.g. {@code repo}, {@code repos}, {@code contributors},
+ * {@code user} or {@code search}. Implementations are called from the main thread and from
+ * background threads.
+ */
+public interface ResourceMetrics {
+    enum Stage {
+        /** From the creation of the resource to the first value of the database. */
+        DB_READ,
+        /** The {@code shouldFetch} call. */
+        SHOULD_FETCH,
+        /** From the subscription to the network call to its response. */
+        NETWORK,
+        /** The {@code processResponse} call. */
+        PROCESS_RESPONSE,
+        /** The {@code saveCallResult} call. */
+        SAVE_CALL_RESULT,
+        /** From the saved response to the first value of the second {@code loadFromDb}. */
+        RELOAD,
+        /** From the creation of the resource to the first dispatched data, possibly stale. */
+        FIRST_DATA,
+        /** From the creation of the resource to the first data known to be fresh. */
+        FRESH_DATA
+    }
+
+    enum Event {
+        /** The first loading state had data from memory. */
+        MEMORY_HIT,
+        /** The database had data that did not need a fetch. */
+        DB_HIT,
+        NETWORK_FETCH,
+        /** The server answered 304, the stored data is still valid. */
+        NOT_MODIFIED,
+        FETCH_FAILED
+    }
+
+    @AnyThread
+    void recordStage(@NonNull String resource, @NonNull Stage stage, long nanos);
+
+    @AnyThread
+    void recordEvent(@NonNull String resource, @NonNull Event event);
+
+    /**
+     * Exports what was recorded so far, e.g. to the log. The app calls it when its UI is hidden,
+     * which is the end of a session.
+     */
+    @AnyThread
+    void export();
+}
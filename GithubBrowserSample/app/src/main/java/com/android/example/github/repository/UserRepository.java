@@ -17,15 +17,22 @@
 package com.android.example.github.repository;
 
 import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.Transformations;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.android.example.github.api.GithubService;
+import com.android.example.github.api.HttpValidators;
+import com.android.example.github.db.ChangeAwareUpserter;
+import com.android.example.github.db.TableGenerations;
 import com.android.example.github.db.UserDao;
+import com.android.example.github.db.WriteBatcher;
 import com.android.example.github.vo.Resource;
 import com.android.example.github.vo.User;
 import com.google.common.base.Optional;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -37,20 +44,53 @@ import io.reactivex.Observable;
  */
 @Singleton
 public class UserRepository {
+    private static final FreshnessPolicy.Ttl USER_TTL =
+            FreshnessPolicy.Ttl.of(1, 7, TimeUnit.DAYS);
+
     private final UserDao userDao;
     private final GithubService githubService;
+    private final InFlightRequests inFlightRequests;
+    private final FreshnessPolicy freshnessPolicy;
+    private final WriteBatcher writeBatcher;
+    private final ChangeAwareUpserter upserter;
+    private final EntityCache entityCache;
+    private final HttpValidators httpValidators;
+
+    private final ResourceMetrics metrics;
+    private final TableGenerations tableGenerations;
 
     @Inject
-    UserRepository(UserDao userDao, GithubService githubService) {
+    UserRepository(UserDao userDao, GithubService githubService,
+            InFlightRequests inFlightRequests, FreshnessPolicy freshnessPolicy,
+            WriteBatcher writeBatcher, ChangeAwareUpserter upserter, EntityCache entityCache,
+            HttpValidators httpValidators, ResourceMetrics metrics,
+            TableGenerations tableGenerations) {
         this.userDao = userDao;
         this.githubService = githubService;
+        this.inFlightRequests = inFlightRequests;
+        this.freshnessPolicy = freshnessPolicy;
+        this.writeBatcher = writeBatcher;
+        this.upserter = upserter;
+        this.entityCache = entityCache;
+        this.httpValidators = httpValidators;
+        this.metrics = metrics;
+        this.tableGenerations = tableGenerations;
     }
 
     public LiveData<Resource<User>> loadUser(String login) {
-        return new NetworkBoundResource<User, User>() {
+        return userResource(login).asLiveData();
+    }
+
+    NetworkBoundResource<User, User> userResource(String login) {
+        return new NetworkBoundResource<User, User>(inFlightRequests, freshnessPolicy,
+                metrics, "user/" + login, USER_TTL) {
             @Override
             protected void saveCallResult(@NonNull User item) {
-                userDao.insert(item);
+                writeBatcher.write(() -> {
+                    upserter.upsertUser(item);
+                    httpValidators.saveWith(item);
+                });
+                entityCache.putUser(item);
             }
 
             @Override
@@ -58,10 +98,23 @@ public class UserRepository {
                 return data == null;
             }
 
+            @Nullable
+            @Override
+            protected User loadFromMemory() {
+                return entityCache.getUser(login);
+            }
+
+            @Override
+            protected long dbGeneration() {
+                return tableGenerations.get(TableGenerations.USER);
+            }
+
             @NonNull
             @Override
             protected LiveData<User> loadFromDb() {
-                return userDao.findByLogin(login);
+                // an unchanged row is replaced by the cached instance
+                return Transformations.map(userDao.findByLogin(login),
+                        user -> entityCache.internUser(login, user));
             }
 
             @NonNull
@@ -69,6 +122,16 @@ public class UserRepository {
             protected Flowable<User> fetchFromNet() {
                 return githubService.getUser(login);
             }
-        }.asLiveData();
+        };
+    }
+
+    /**
+     * Returns the resource that is stored under the given {@link FreshnessPolicy} key, or null if
+     * the key does not belong to this repository.
+     */
+    @Nullable
+    NetworkBoundResource<?, ?> resourceFor(String key) {
+        String[] parts = key.split("/", 2);
+        return parts.length == 2 && parts[0].equals("user") ? userResource(parts[1]) : null;
     }
 }
@@ -16,12 +16,10 @@
 
 package com.android.example.github.ui.common;
 
-import android.annotation.SuppressLint;
 import android.databinding.ViewDataBinding;
-import android.os.AsyncTask;
 import android.support.annotation.MainThread;
 import android.support.annotation.Nullable;
-import android.support.v7.util.DiffUtil;
+import android.support.v7.util.AdapterListUpdateCallback;
 import android.support.v7.widget.RecyclerView;
 import android.view.ViewGroup;
 
@@ -29,6 +27,8 @@ import java.util.List;
 
 /**
  * A generic RecyclerView adapter that uses Data Binding & DiffUtil.
+ * <p>
+ * The updates between lists are computed by a {@link DiffEngine}.
  *
  * @param <T> Type of the items in the list
  * @param <V> The type of the ViewDataBinding
@@ -36,11 +36,18 @@ import java.util.List;
 public abstract class DataBoundListAdapter<T, V extends ViewDataBinding>
         extends RecyclerView.Adapter<DataBoundViewHolder<V>> {
 
-    @Nullable
-    private List<T> items;
-    // each time data is set, we update this variable so that if DiffUtil calculation returns
-    // after repetitive updates, we can ignore the old calculation
-    private int dataVersion = 0;
+    private final DiffEngine<T> diffEngine = new DiffEngine<>(new AdapterListUpdateCallback(this),
+            new DiffEngine.ItemCallback<T>() {
+                @Override
+                public boolean areItemsTheSame(T oldItem, T newItem) {
+                    return DataBoundListAdapter.this.areItemsTheSame(oldItem, newItem);
+                }
+
+                @Override
+                public boolean areContentsTheSame(T oldItem, T newItem) {
+                    return DataBoundListAdapter.this.areContentsTheSame(oldItem, newItem);
+                }
+            });
 
     @Override
     public final DataBoundViewHolder<V> onCreateViewHolder(ViewGroup parent, int viewType) {
@@ -53,69 +60,13 @@ public abstract class DataBoundListAdapter<T, V extends ViewDataBinding>
     @Override
     public final void onBindViewHolder(DataBoundViewHolder<V> holder, int position) {
         //noinspection ConstantConditions
-        bind(holder.binding, items.get(position));
+        bind(holder.binding, diffEngine.getItems().get(position));
         holder.binding.executePendingBindings();
     }
 
-    @SuppressLint("StaticFieldLeak")
     @MainThread
-    public void replace(List<T> update) {
-        dataVersion++;
-        if (items == null) {
-            if (update == null) {
-                return;
-            }
-            items = update;
-            notifyDataSetChanged();
-        } else if (update == null) {
-            int oldSize = items.size();
-            items = null;
-            notifyItemRangeRemoved(0, oldSize);
-        } else {
-            final int startVersion = dataVersion;
-            final List<T> oldItems = items;
-            new AsyncTask<Void, Void, DiffUtil.DiffResult>() {
-                @Override
-                protected DiffUtil.DiffResult doInBackground(Void... voids) {
-                    return DiffUtil.calculateDiff(new DiffUtil.Callback() {
-                        @Override
-                        public int getOldListSize() {
-                            return oldItems.size();
-                        }
-
-                        @Override
-                        public int getNewListSize() {
-                            return update.size();
-                        }
-
-                        @Override
-                        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-                            T oldItem = oldItems.get(oldItemPosition);
-                            T newItem = update.get(newItemPosition);
-                            return DataBoundListAdapter.this.areItemsTheSame(oldItem, newItem);
-                        }
-
-                        @Override
-                        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-                            T oldItem = oldItems.get(oldItemPosition);
-                            T newItem = update.get(newItemPosition);
-                            return DataBoundListAdapter.this.areContentsTheSame(oldItem, newItem);
-                        }
-                    });
-                }
-
-                @Override
-                protected void onPostExecute(DiffUtil.DiffResult diffResult) {
-                    if (startVersion != dataVersion) {
-                        // ignore update
-                        return;
-                    }
-                    items = update;
-                    diffResult.dispatchUpdatesTo(DataBoundListAdapter.this);
-
-                }
-            }.execute();
-        }
+    public void replace(@Nullable List<T> update) {
+        diffEngine.submit(update);
     }
 
     protected abstract void bind(V binding, T item);
@@ -126,6 +77,7 @@ public abstract class DataBoundListAdapter<T, V extends ViewDataBinding>
 
     @Override
     public int getItemCount() {
+        List<T> items = diffEngine.getItems();
         return items == null ? 0 : items.size();
     }
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.ui.common;
+
+import android.arch.paging.PagedListAdapter;
+import android.databinding.ViewDataBinding;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+import android.view.ViewGroup;
+
+/**
+ * A generic RecyclerView adapter that uses Data Binding & a PagedList.
+ * <p>
+ * Unlike {@link DataBoundListAdapter}, new pages are dispatched by the PagedList as range inserts
+ * so appending a page does not diff the whole list. When the list is replaced, the diff runs on a
+ * background thread of the paging library.
+ *
+ * @param <T> Type of the items in the list
+ * @param <V> The type of the ViewDataBinding
+ */
+public abstract class DataBoundPagedListAdapter<T, V extends ViewDataBinding>
+        extends PagedListAdapter<T, DataBoundViewHolder<V>> {
+
+    protected DataBoundPagedListAdapter(@NonNull DiffUtil.ItemCallback<T> diffCallback) {
+        super(diffCallback);
+    }
+
+    @Override
+    public final DataBoundViewHolder<V> onCreateViewHolder(ViewGroup parent, int viewType) {
+        V binding = createBinding(parent);
+        return new DataBoundViewHolder<>(binding);
+    }
+
+    protected abstract V createBinding(ViewGroup parent);
+
+    @Override
+    public final void onBindViewHolder(DataBoundViewHolder<V> holder, int position) {
+        // getItem also tells the PagedList which rows are in use so it can load around them
+        bind(holder.binding, getItem(position));
+        holder.binding.executePendingBindings();
+    }
+
+    /**
+     * Binds the item at a position. The item is null while it is a placeholder that is not
+     * loaded yet.
+     */
+    protected abstract void bind(V binding, @Nullable T item);
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.ui.common;
+
+import android.os.Process;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.BooleanSupplier;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Computes the updates between the lists shown by an adapter on a background thread.
+ * <p>
+ * Diffs run on a small dedicated pool instead of the shared AsyncTask executor. Submitting a new
+ * list cancels the computation of the previous one, even while DiffUtil is running. When the new
+ * list only adds items at the end of the current one, DiffUtil is skipped and a single range
+ * insert is dispatched.
+ *
+ * @param <T> Type of the items in the list
+ */
+public class DiffEngine<T> {
+    private static final int DIFF_THREADS = 2;
+
+    private static final Scheduler DIFF_SCHEDULER = Schedulers.from(
+            Executors.newFixedThreadPool(DIFF_THREADS, new DiffThreadFactory()));
+
+    private final ListUpdateCallback target;
+    private final ItemCallback<T> itemCallback;
+    private final Scheduler diffScheduler;
+    private final Scheduler mainScheduler;
+
+    @Nullable
+    private List<T> items;
+    // each time data is set, we update this variable so that if a computation returns after
+    // repetitive updates, we can ignore the old calculation
+    private int dataVersion = 0;
+    @Nullable
+    private Disposable pending;
+
+    public DiffEngine(@NonNull ListUpdateCallback target, @NonNull ItemCallback<T> itemCallback) {
+        this(target, itemCallback, DIFF_SCHEDULER, AndroidSchedulers.mainThread());
+    }
+
+    @VisibleForTesting
+    DiffEngine(ListUpdateCallback target, ItemCallback<T> itemCallback, Scheduler diffScheduler,
+            Scheduler mainScheduler) {
+        this.target = target;
+        this.itemCallback = itemCallback;
+        this.diffScheduler = diffScheduler;
+        this.mainScheduler = mainScheduler;
+    }
+
+    @Nullable
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Replaces the current list. The updates are dispatched to the target once they are computed,
+     * unless another list is submitted in the meantime.
+     */
+    @MainThread
+    public void submit(@Nullable List<T> update) {
+        dataVersion++;
+        if (pending != null) {
+            pending.dispose();
+            pending = null;
+        }
+        if (update == items) {
+            return;
+        }
+        if (items == null) {
+            items = update;
+            target.onInserted(0, update.size());
+            return;
+        }
+        if (update == null) {
+            int oldSize = items.size();
+            items = null;
+            target.onRemoved(0, oldSize);
+            return;
+        }
+        final int startVersion = dataVersion;
+        final List<T> oldItems = items;
+        pending = Single.<ListUpdate>create(emitter -> {
+            try {
+                emitter.onSuccess(computeUpdate(oldItems, update, emitter::isDisposed));
+            } catch (CancellationException ignored) {
+                // a newer list was submitted, nobody is listening anymore
+            }
+        })
+                .subscribeOn(diffScheduler)
+                .observeOn(mainScheduler)
+                .subscribe(listUpdate -> {
+                    if (startVersion != dataVersion) {
+                        // ignore update
+                        return;
+                    }
+                    pending = null;
+                    items = update;
+                    listUpdate.dispatchUpdatesTo(target);
+                });
+    }
+
+    private ListUpdate computeUpdate(List<T> oldItems, List<T> newItems,
+            BooleanSupplier cancelled) {
+        int oldSize = oldItems.size();
+        int newSize = newItems.size();
+        if (newSize >= oldSize && isPrefix(oldItems, newItems, cancelled)) {
+            return new ListUpdate(null, oldSize, newSize - oldSize);
+        }
+        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldSize;
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newSize;
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                checkCancelled(cancelled);
+                return itemCallback.areItemsTheSame(oldItems.get(oldItemPosition),
+                        newItems.get(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                checkCancelled(cancelled);
+                return itemCallback.areContentsTheSame(oldItems.get(oldItemPosition),
+                        newItems.get(newItemPosition));
+            }
+        });
+        return new ListUpdate(diffResult, 0, 0);
+    }
+
+    private boolean isPrefix(List<T> oldItems, List<T> newItems, BooleanSupplier cancelled) {
+        for (int i = 0; i < oldItems.size(); i++) {
+            checkCancelled(cancelled);
+            T oldItem = oldItems.get(i);
+            T newItem = newItems.get(i);
+            if (oldItem != newItem && !(itemCallback.areItemsTheSame(oldItem, newItem)
+                    && itemCallback.areContentsTheSame(oldItem, newItem))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        boolean isCancelled;
+        try {
+            isCancelled = cancelled.getAsBoolean();
+        } catch (Exception e) {
+            isCancelled = true;
+        }
+        if (isCancelled) {
+            // DiffUtil cannot be stopped from the outside, so bail out of its callbacks
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Decides whether two items represent the same row and whether the row needs to be rebound.
+     */
+    public interface ItemCallback<T> {
+        boolean areItemsTheSame(T oldItem, T newItem);
+
+        boolean areContentsTheSame(T oldItem, T newItem);
+    }
+
+    /**
+     * Either a DiffUtil result or a range of items appended at the end.
+     */
+    private static class ListUpdate {
+        @Nullable
+        private final DiffUtil.DiffResult diffResult;
+        private final int appendStart;
+        private final int appendCount;
+
+        ListUpdate(@Nullable DiffUtil.DiffResult diffResult, int appendStart, int appendCount) {
+            this.diffResult = diffResult;
+            this.appendStart = appendStart;
+            this.appendCount = appendCount;
+        }
+
+        void dispatchUpdatesTo(ListUpdateCallback target) {
+            if (diffResult != null) {
+                diffResult.dispatchUpdatesTo(target);
+            } else if (appendCount > 0) {
+                target.onInserted(appendStart, appendCount);
+            }
+        }
+    }
+
+    private static class DiffThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "diff #" + count.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.ui.common;
+
+import android.databinding.DataBindingComponent;
+import android.databinding.DataBindingUtil;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import com.android.example.github.R;
+import com.android.example.github.databinding.RepoItemBinding;
+import com.android.example.github.util.Objects;
+import com.android.example.github.vo.Repo;
+
+/**
+ * A RecyclerView adapter for a paged list of {@link Repo}s.
+ */
+public class PagedRepoListAdapter extends DataBoundPagedListAdapter<Repo, RepoItemBinding> {
+    private static final DiffUtil.ItemCallback<Repo> REPO_COMPARATOR =
+            new DiffUtil.ItemCallback<Repo>() {
+                @Override
+                public boolean areItemsTheSame(Repo oldItem, Repo newItem) {
+                    return Objects.equals(oldItem.owner, newItem.owner) &&
+                            Objects.equals(oldItem.name, newItem.name);
+                }
+
+                @Override
+                public boolean areContentsTheSame(Repo oldItem, Repo newItem) {
+                    return Objects.equals(oldItem.description, newItem.description) &&
+                            oldItem.stars == newItem.stars;
+                }
+            };
+
+    private final DataBindingComponent dataBindingComponent;
+    private final RepoListAdapter.RepoClickCallback repoClickCallback;
+    private final boolean showFullName;
+
+    public PagedRepoListAdapter(DataBindingComponent dataBindingComponent, boolean showFullName,
+            RepoListAdapter.RepoClickCallback repoClickCallback) {
+        super(REPO_COMPARATOR);
+        this.dataBindingComponent = dataBindingComponent;
+        this.repoClickCallback = repoClickCallback;
+        this.showFullName = showFullName;
+    }
+
+    @Override
+    protected RepoItemBinding createBinding(ViewGroup parent) {
+        RepoItemBinding binding = DataBindingUtil
+                .inflate(LayoutInflater.from(parent.getContext()), R.layout.repo_item,
+                        parent, false, dataBindingComponent);
+        binding.setShowFullName(showFullName);
+        binding.getRoot().setOnClickListener(v -> {
+            Repo repo = binding.getRepo();
+            if (repo != null && repoClickCallback != null) {
+                repoClickCallback.onClick(repo);
+            }
+        });
+        return binding;
+    }
+
+    @Override
+    protected void bind(RepoItemBinding binding, @Nullable Repo item) {
+        binding.setRepo(item);
+    }
+}
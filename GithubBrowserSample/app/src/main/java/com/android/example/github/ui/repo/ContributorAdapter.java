@@ -18,23 +18,42 @@ package com.android.example.github.ui.repo;
 
 import android.databinding.DataBindingComponent;
 import android.databinding.DataBindingUtil;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
 import com.android.example.github.R;
 import com.android.example.github.databinding.ContributorItemBinding;
-import com.android.example.github.ui.common.DataBoundListAdapter;
+import com.android.example.github.ui.common.DataBoundPagedListAdapter;
 import com.android.example.github.util.Objects;
 import com.android.example.github.vo.Contributor;
 
+/**
+ * A RecyclerView adapter for the paged list of contributors of a repo.
+ */
 public class ContributorAdapter
-        extends DataBoundListAdapter<Contributor, ContributorItemBinding> {
+        extends DataBoundPagedListAdapter<Contributor, ContributorItemBinding> {
+    private static final DiffUtil.ItemCallback<Contributor> CONTRIBUTOR_COMPARATOR =
+            new DiffUtil.ItemCallback<Contributor>() {
+                @Override
+                public boolean areItemsTheSame(Contributor oldItem, Contributor newItem) {
+                    return Objects.equals(oldItem.getLogin(), newItem.getLogin());
+                }
+
+                @Override
+                public boolean areContentsTheSame(Contributor oldItem, Contributor newItem) {
+                    return Objects.equals(oldItem.getAvatarUrl(), newItem.getAvatarUrl())
+                            && oldItem.getContributions() == newItem.getContributions();
+                }
+            };
 
     private final DataBindingComponent dataBindingComponent;
     private final ContributorClickCallback callback;
 
     public ContributorAdapter(DataBindingComponent dataBindingComponent,
                               ContributorClickCallback callback) {
+        super(CONTRIBUTOR_COMPARATOR);
         this.dataBindingComponent = dataBindingComponent;
         this.callback = callback;
     }
@@ -55,21 +74,10 @@ public class ContributorAdapter
     }
 
     @Override
-    protected void bind(ContributorItemBinding binding, Contributor item) {
+    protected void bind(ContributorItemBinding binding, @Nullable Contributor item) {
         binding.setContributor(item);
     }
 
-    @Override
-    protected boolean areItemsTheSame(Contributor oldItem, Contributor newItem) {
-        return Objects.equals(oldItem.getLogin(), newItem.getLogin());
-    }
-
-    @Override
-    protected boolean areContentsTheSame(Contributor oldItem, Contributor newItem) {
-        return Objects.equals(oldItem.getAvatarUrl(), newItem.getAvatarUrl())
-                && oldItem.getContributions() == newItem.getContributions();
-    }
-
     public interface ContributorClickCallback {
         void onClick(Contributor contributor);
     }
@@ -36,8 +36,6 @@ import com.android.example.github.ui.common.NavigationController;
 import com.android.example.github.util.AutoClearedValue;
 import com.trello.rxlifecycle2.android.FragmentEvent;
 
-import java.util.Collections;
-
 import javax.inject.Inject;
 
 import io.reactivex.android.schedulers.AndroidSchedulers;
@@ -100,17 +98,9 @@ public class RepoFragment extends BaseFragment{
     }
 
     private void initContributorList(RepoViewModel viewModel) {
+        // pages are appended by the PagedList as the list is scrolled
         viewModel.getContributors()
-                .observe(this, listResource -> {
-                    // we don't need any null checks here for the adapter since Flowable guarantees that
-                    // it won't call us if fragment is stopped or not started.
-                    if (listResource.data != null) {
-                        adapter.get().replace(listResource.data);
-                    } else {
-                        //noinspection ConstantConditions
-                        adapter.get().replace(Collections.emptyList());
-                    }
-                });
+                .observe(this, contributors -> adapter.get().submitList(contributors));
     }
 
     @Nullable
@@ -21,40 +21,71 @@ import com.android.example.github.util.AbsentLiveData;
 import com.android.example.github.util.Objects;
 import com.android.example.github.vo.Contributor;
 import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoPage;
 import com.android.example.github.vo.Resource;
 
 import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MediatorLiveData;
 import android.arch.lifecycle.MutableLiveData;
 import android.arch.lifecycle.Transformations;
 import android.arch.lifecycle.ViewModel;
+import android.arch.paging.PagedList;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 
-import java.util.List;
-
 import javax.inject.Inject;
 
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+
 public class RepoViewModel extends ViewModel {
     @VisibleForTesting
     final MutableLiveData<RepoId> repoId;
-    private final LiveData<Resource<Repo>> repo;
-    private final LiveData<Resource<List<Contributor>>> contributors;
+    private final MediatorLiveData<Resource<Repo>> repo;
+    private final LiveData<PagedList<Contributor>> contributors;
+    private final RepoRepository repository;
+    // the fetch of the next page of contributors, at most one runs at a time
+    @Nullable
+    private Disposable nextPage;
 
     @Inject
     public RepoViewModel(RepoRepository repository) {
         this.repoId = new MutableLiveData<>();
-        repo = Transformations.switchMap(repoId, input -> {
+        this.repository = repository;
+        // the repo, the first page of its contributors and its owner are fetched together
+        LiveData<Resource<RepoPage>> page = Transformations.switchMap(repoId, input -> {
             if (input.isEmpty()) {
                 return AbsentLiveData.create();
             }
-            return repository.loadRepo(input.owner, input.name);
+            return repository.loadRepoPage(input.owner, input.name);
+        });
+        // the page is dispatched again when its contributors or owner change, the repo only
+        // when it changed itself
+        repo = new MediatorLiveData<>();
+        repo.addSource(page, resource -> {
+            Resource<Repo> update = resource == null ? null
+                    : new Resource<>(resource.status,
+                            resource.data == null ? null : resource.data.repo, resource.message);
+            if (update == null || !update.equals(repo.getValue())) {
+                repo.setValue(update);
+            }
         });
+        // the first page of contributors is fetched with the repo, later pages when the list
+        // reaches the last contributor that is in the database
+        PagedList.BoundaryCallback<Contributor> boundaryCallback =
+                new PagedList.BoundaryCallback<Contributor>() {
+                    @Override
+                    public void onItemAtEndLoaded(@NonNull Contributor itemAtEnd) {
+                        loadNextContributorsPage();
+                    }
+                };
         contributors = Transformations.switchMap(repoId, input -> {
+            cancelNextContributorsPage();
             if (input.isEmpty()) {
                 return AbsentLiveData.create();
-            } else {
-                return repository.loadContributors(input.owner, input.name);
             }
-
+            return repository.contributors(input.owner, input.name, boundaryCallback);
         });
     }
 
@@ -62,10 +93,34 @@ public class RepoViewModel extends ViewModel {
         return repo;
     }
 
-    public LiveData<Resource<List<Contributor>>> getContributors() {
+    public LiveData<PagedList<Contributor>> getContributors() {
         return contributors;
     }
 
+    private void loadNextContributorsPage() {
+        RepoId current = repoId.getValue();
+        if (current == null || current.isEmpty() || nextPage != null) {
+            return;
+        }
+        nextPage = repository.contributorsNextPage(current.owner, current.name)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(r -> {
+                }, e -> nextPage = null, () -> nextPage = null);
+    }
+
+    private void cancelNextContributorsPage() {
+        if (nextPage != null) {
+            // a page of the previous repo must not be fetched once it is left
+            nextPage.dispose();
+            nextPage = null;
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        cancelNextContributorsPage();
+    }
+
     public void retry() {
         RepoId current = repoId.getValue();
         if (current != null && !current.isEmpty()) {
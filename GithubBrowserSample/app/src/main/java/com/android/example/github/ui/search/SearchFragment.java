@@ -29,6 +29,8 @@ import android.support.v4.app.FragmentActivity;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.RecyclerView.OnScrollListener;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
@@ -42,7 +44,7 @@ import com.android.example.github.binding.FragmentDataBindingComponent;
 import com.android.example.github.databinding.SearchFragmentBinding;
 import com.android.example.github.ui.common.BaseFragment;
 import com.android.example.github.ui.common.NavigationController;
-import com.android.example.github.ui.common.RepoListAdapter;
+import com.android.example.github.ui.common.PagedRepoListAdapter;
 import com.android.example.github.util.AutoClearedValue;
 import com.trello.rxlifecycle2.android.FragmentEvent;
 
@@ -62,7 +64,7 @@ public class SearchFragment extends BaseFragment {
 
     AutoClearedValue<SearchFragmentBinding> binding;
 
-    AutoClearedValue<RepoListAdapter> adapter;
+    AutoClearedValue<PagedRepoListAdapter> adapter;
 
     private SearchViewModel searchViewModel;
 
@@ -82,7 +84,7 @@ public class SearchFragment extends BaseFragment {
         super.onActivityCreated(savedInstanceState);
         searchViewModel = ViewModelProviders.of(this, viewModelFactory).get(SearchViewModel.class);
         initRecyclerView();
-        RepoListAdapter rvAdapter = new RepoListAdapter(dataBindingComponent, true,
+        PagedRepoListAdapter rvAdapter = new PagedRepoListAdapter(dataBindingComponent, true,
                 repo -> navigationController.navigateToRepo(repo.owner.login, repo.name));
         binding.get().repoList.setAdapter(rvAdapter);
         adapter = new AutoClearedValue<>(this, rvAdapter);
@@ -93,6 +95,22 @@ public class SearchFragment extends BaseFragment {
     }
 
     private void initSearchInputListener() {
+        // the view model debounces the input, so every change can be forwarded
+        binding.get().input.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchViewModel.setQuery(s.toString());
+            }
+        });
+
         binding.get().input.setOnEditorActionListener((v, actionId, event) -> {
             if (actionId == EditorInfo.IME_ACTION_SEARCH) {
                 doSearch(v);
@@ -116,31 +134,32 @@ public class SearchFragment extends BaseFragment {
         // Dismiss keyboard
         dismissKeyboard(v.getWindowToken());
         binding.get().setQuery(query);
-        searchViewModel.setQuery(query);
+        searchViewModel.submitQuery(query);
     }
 
     private void initRecyclerView() {
+        // next pages are prefetched while scrolling, the boundary callback of the paged list
+        // requests them if the user still reaches the end
         binding.get().repoList.addOnScrollListener(new OnScrollListener() {
             @Override
             public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
                 LinearLayoutManager layoutManager = (LinearLayoutManager)
                         recyclerView.getLayoutManager();
-                int lastPosition = layoutManager
-                        .findLastVisibleItemPosition();
-                if (lastPosition == adapter.get().getItemCount() - 1) {
-                    searchViewModel.loadNextPage();
-                }
+                searchViewModel.onListScrolled(layoutManager.findLastVisibleItemPosition());
             }
         });
 
         searchViewModel.getResults()
                 .observe(this, result -> {
                     binding.get().setSearchResource(result);
-                    binding.get().setResultCount((result.data == null) ? 0 : result.data.size());
-                    adapter.get().replace(result.data);
+                    binding.get().setResultCount(
+                            (result == null || result.data == null) ? 0 : result.data.totalCount);
                     binding.get().executePendingBindings();
                 });
 
+        searchViewModel.getRepos()
+                .observe(this, repos -> adapter.get().submitList(repos));
+
         searchViewModel.getLoadMoreStatus()
                 .observe(this, loadingMore -> {
                     if (loadingMore == null) {
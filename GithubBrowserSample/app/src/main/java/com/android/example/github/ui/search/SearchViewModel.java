@@ -17,58 +17,167 @@
 package com.android.example.github.ui.search;
 
 import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MediatorLiveData;
 import android.arch.lifecycle.MutableLiveData;
 import android.arch.lifecycle.Transformations;
 import android.arch.lifecycle.ViewModel;
+import android.arch.paging.PagedList;
+import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 
+import com.android.example.github.BuildConfig;
+import com.android.example.github.repository.NetworkBoundResource;
 import com.android.example.github.repository.RepoRepository;
 import com.android.example.github.util.AbsentLiveData;
 import com.android.example.github.util.Objects;
 import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoSearchResult;
 import com.android.example.github.vo.Resource;
 
-import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
 import io.reactivex.subjects.PublishSubject;
+import timber.log.Timber;
 
 public class SearchViewModel extends ViewModel {
 
+    // raw input, debounced and deduplicated before it reaches the repository
+    private final PublishProcessor<String> input = PublishProcessor.create();
+
+    // queries the user asked to search for, only deduplicated
+    private final PublishProcessor<String> submitted = PublishProcessor.create();
+
     private final MutableLiveData<String> query = new MutableLiveData<>();
 
-    private final LiveData<Resource<List<Repo>>> results;
+    private final MediatorLiveData<Resource<RepoSearchResult>> results = new MediatorLiveData<>();
+
+    private final LiveData<PagedList<Repo>> repos;
+
+    private final RepoRepository repoRepository;
 
     private final NextPageHandler nextPageHandler;
 
+    private final int prefetchDistance;
+
+    private final int prefetchPages;
+
+    private final Disposable queries;
+
+    private final Scheduler mainScheduler;
+
+    // where the pages prefetched for the current query start: their index in the list, -1 once
+    // the user has scrolled to them, the position of their first row in the database and the
+    // page number of the first one
+    private int prefetchedIndex = -1;
+
+    private int prefetchedPosition;
+
+    private int prefetchedPage;
+
+    // reads the position of the first prefetched row before the prefetch starts
+    @Nullable
+    private Disposable prefetchStart;
+
+    @Nullable
+    private NetworkBoundResource<RepoSearchResult, ?> currentSearch;
+
     @Inject
     SearchViewModel(RepoRepository repoRepository) {
+        this(repoRepository, BuildConfig.SEARCH_DEBOUNCE_MILLIS,
+                BuildConfig.SEARCH_PREFETCH_DISTANCE, BuildConfig.SEARCH_PREFETCH_PAGES,
+                Schedulers.computation(), AndroidSchedulers.mainThread());
+    }
+
+    @VisibleForTesting
+    SearchViewModel(RepoRepository repoRepository, long debounceMillis, int prefetchDistance,
+            int prefetchPages, Scheduler debounceScheduler, Scheduler mainScheduler) {
+        this.repoRepository = repoRepository;
+        this.prefetchDistance = prefetchDistance;
+        this.prefetchPages = prefetchPages;
+        this.mainScheduler = mainScheduler;
         nextPageHandler = new NextPageHandler(repoRepository);
-        results = Transformations.switchMap(query, search -> {
+        queries = Flowable.merge(
+                input.debounce(debounceMillis, TimeUnit.MILLISECONDS, debounceScheduler),
+                submitted)
+                .distinctUntilChanged()
+                .observeOn(mainScheduler)
+                .subscribe(this::search);
+        // the first page is fetched by the search resource, later pages when the list reaches
+        // the last row that is in the database
+        PagedList.BoundaryCallback<Repo> boundaryCallback = new PagedList.BoundaryCallback<Repo>() {
+            @Override
+            public void onItemAtEndLoaded(@NonNull Repo itemAtEnd) {
+                loadNextPage();
+            }
+        };
+        repos = Transformations.switchMap(query, search -> {
             if (search == null || search.trim().length() == 0) {
                 return AbsentLiveData.create();
             } else {
-                return repoRepository.search(search);
+                return repoRepository.searchResults(search, boundaryCallback);
             }
         });
     }
 
     @VisibleForTesting
-    public LiveData<Resource<List<Repo>>> getResults() {
+    public LiveData<Resource<RepoSearchResult>> getResults() {
         return results;
     }
 
+    public LiveData<PagedList<Repo>> getRepos() {
+        return repos;
+    }
+
+    /**
+     * Sets the text to search for. The search starts once the input has not changed for the
+     * debounce period, a query that is still running is cancelled by the next one.
+     */
     public void setQuery(@NonNull String originalInput) {
-        String input = originalInput.toLowerCase(Locale.getDefault()).trim();
-        if (Objects.equals(input, query.getValue())) {
-            return;
+        input.onNext(normalize(originalInput));
+    }
+
+    /**
+     * Searches for the text right away, e.g. when the user presses the search key. The debounced
+     * input that catches up with it afterwards is the same query and does not search again.
+     */
+    public void submitQuery(@NonNull String originalInput) {
+        submitted.onNext(normalize(originalInput));
+    }
+
+    private static String normalize(String input) {
+        return input.toLowerCase(Locale.getDefault()).trim();
+    }
+
+    @MainThread
+    private void search(String input) {
+        if (currentSearch != null) {
+            // the superseded request is cancelled and its response never written
+            currentSearch.cancel();
+            results.removeSource(currentSearch.asLiveData());
+            currentSearch = null;
         }
         nextPageHandler.reset();
+        if (!input.equals(query.getValue())) {
+            dropPrefetchedPages();
+        }
         query.setValue(input);
+        if (input.length() == 0) {
+            results.setValue(null);
+        } else {
+            currentSearch = repoRepository.search(input);
+            results.addSource(currentSearch.asLiveData(), results::setValue);
+        }
     }
 
     @VisibleForTesting
@@ -85,12 +194,81 @@ public class SearchViewModel extends ViewModel {
         nextPageHandler.queryNextPage(value);
     }
 
+    /**
+     * Called when the list is scrolled. Once the last visible repo is within the prefetch distance
+     * of the end of the results in the database, the next pages are fetched in the background so
+     * that they are there before the user reaches the end.
+     * <p>
+     * Pages are chained through {@link RepoSearchResult#next}, so nothing is fetched when the
+     * current result has no next page, and the {@link NextPageHandler} runs at most one fetch per
+     * query; the next one can only start after that page is saved.
+     * <p>
+     * Prefetched pages that the user has not scrolled to when the query changes are removed from
+     * the database, they are fetched again if the user comes back to the query and gets there.
+     */
+    @MainThread
+    public void onListScrolled(int lastVisiblePosition) {
+        if (prefetchedIndex >= 0 && lastVisiblePosition >= prefetchedIndex) {
+            prefetchedIndex = -1;
+        }
+        String value = query.getValue();
+        PagedList<Repo> list = repos.getValue();
+        Resource<RepoSearchResult> result = results.getValue();
+        if (value == null || list == null || result == null || result.data == null
+                || result.data.next == null) {
+            return;
+        }
+        if (list.size() - 1 - lastVisiblePosition > prefetchDistance) {
+            return;
+        }
+        if (prefetchedIndex >= 0) {
+            nextPageHandler.prefetch(value, prefetchPages);
+        } else if (prefetchStart == null || prefetchStart.isDisposed()) {
+            int index = list.size();
+            int page = result.data.next;
+            // the positions of the stored results can have gaps, the list size is not where the
+            // prefetched rows will be stored
+            prefetchStart = repoRepository.nextSearchResultPosition(value)
+                    .observeOn(mainScheduler)
+                    .subscribe(position -> {
+                        prefetchedIndex = index;
+                        prefetchedPosition = position;
+                        prefetchedPage = page;
+                        nextPageHandler.prefetch(value, prefetchPages);
+                    }, e -> Timber.w(e, "could not read the results of %s", value));
+        }
+    }
+
+    private void dropPrefetchedPages() {
+        if (prefetchStart != null) {
+            prefetchStart.dispose();
+            prefetchStart = null;
+        }
+        String current = query.getValue();
+        if (prefetchedIndex >= 0 && current != null) {
+            repoRepository.dropSearchResults(current, prefetchedPosition, prefetchedPage)
+                    .onErrorComplete()
+                    .subscribe();
+        }
+        prefetchedIndex = -1;
+    }
+
     void refresh() {
         if (query.getValue() != null) {
-            query.setValue(query.getValue());
+            search(query.getValue());
         }
     }
 
+    @Override
+    protected void onCleared() {
+        queries.dispose();
+        if (currentSearch != null) {
+            currentSearch.cancel();
+        }
+        nextPageHandler.reset();
+        dropPrefetchedPages();
+    }
+
     static class LoadMoreState {
         private final boolean running;
         private final String errorMessage;
@@ -123,6 +301,10 @@ public class SearchViewModel extends ViewModel {
         private final PublishSubject<LoadMoreState> loadMoreState = PublishSubject.create();
         private final RepoRepository repository;
         private String query;
+        // pages still to be fetched after the running one, see prefetch
+        private int pagesToPrefetch;
+        @Nullable
+        private Disposable pending;
 
         @VisibleForTesting
         NextPageHandler(RepoRepository repository) {
@@ -130,6 +312,18 @@ public class SearchViewModel extends ViewModel {
             reset();
         }
 
+        /**
+         * Fetches up to the given number of pages one after the other, stopping at the last page.
+         * Does nothing while a page of the query is being fetched.
+         */
+        void prefetch(String query, int pages) {
+            if (Objects.equals(this.query, query)) {
+                return;
+            }
+            pagesToPrefetch = pages - 1;
+            queryNextPage(query);
+        }
+
         void queryNextPage(String query) {
             if (Objects.equals(this.query, query)) {
                 return;
@@ -138,7 +332,7 @@ public class SearchViewModel extends ViewModel {
             this.query = query;
             loadMoreState.onNext(new LoadMoreState(true, null));
             //noinspection ConstantConditions
-            repository.searchNextPage(query)
+            pending = repository.searchNextPage(query)
                     .subscribe(r -> onChanged(r)
                             , e -> e.printStackTrace());
         }
@@ -148,12 +342,18 @@ public class SearchViewModel extends ViewModel {
             switch (result.status) {
                 case SUCCESS:
                     boolean hasMore = Boolean.TRUE.equals(result.data);
+                    String fetched = query;
                     if (hasMore) {
                         query = null;
                     }
                     loadMoreState.onNext(new LoadMoreState(false, null));
+                    if (hasMore && pagesToPrefetch > 0) {
+                        pagesToPrefetch--;
+                        queryNextPage(fetched);
+                    }
                     break;
                 case ERROR:
+                    pagesToPrefetch = 0;
                     loadMoreState.onNext(new LoadMoreState(false,
                             result.message));
                     break;
@@ -161,7 +361,13 @@ public class SearchViewModel extends ViewModel {
         }
 
         private void reset() {
+            if (pending != null) {
+                // a page of the previous query must not be appended after its results were left
+                pending.dispose();
+                pending = null;
+            }
             query = null;
+            pagesToPrefetch = 0;
             loadMoreState.onNext(new LoadMoreState(false, null));
         }
 
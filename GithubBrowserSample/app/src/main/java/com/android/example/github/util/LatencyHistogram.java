@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.util;
+
+/**
+ * A histogram of durations with logarithmic buckets.
+ * <p>
+ * Each power of two of microseconds is split into four buckets, so a percentile is reported with
+ * an error of at most 25% using a fixed, small array regardless of the number of samples.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // enough for durations up to 2^40 microseconds, about 12 days
+    private static final int BUCKETS = 41 * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+
+    public synchronized void record(long nanos) {
+        counts[bucket(Math.max(1, nanos / 1000))]++;
+        total++;
+    }
+
+    public synchronized long count() {
+        return total;
+    }
+
+    /**
+     * Returns the lower bound of the bucket that contains the given percentile, in microseconds,
+     * or 0 if nothing was recorded.
+     *
+     * @param percentile between 0 and 1, e.g. 0.99 for p99
+     */
+    public synchronized long percentileMicros(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return lowerBound(i);
+            }
+        }
+        return lowerBound(BUCKETS - 1);
+    }
+
+    static int bucket(long micros) {
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent < SUB_BUCKET_BITS) {
+            return (int) micros - 1;
+        }
+        int subBucket = (int) (micros >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket);
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket + 1;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size bounded, least recently used cache of immutable objects.
+ * <p>
+ * Besides plain lookups, it can {@link #intern(Object, Object) intern} values: a value equal to
+ * the cached one is replaced by the cached instance, so that the same row read twice is the same
+ * object and can be compared by identity.
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ */
+public class ObjectCache<K, V> {
+    private final LinkedHashMap<K, V> map;
+    private long hitCount;
+    private long missCount;
+
+    public ObjectCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the value for the key and records a hit or a miss.
+     */
+    @Nullable
+    public synchronized V get(@NonNull K key) {
+        V value = map.get(key);
+        if (value == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return value;
+    }
+
+    public synchronized void put(@NonNull K key, @NonNull V value) {
+        map.put(key, value);
+    }
+
+    /**
+     * Returns the cached instance if it is equal to the given value, otherwise caches the given
+     * value and returns it. A null value removes the key, the object does not exist anymore.
+     */
+    @Nullable
+    public synchronized V intern(@NonNull K key, @Nullable V value) {
+        if (value == null) {
+            map.remove(key);
+            return null;
+        }
+        V cached = map.get(key);
+        if (value.equals(cached)) {
+            return cached;
+        }
+        map.put(key, value);
+        return value;
+    }
+
+    public synchronized void remove(@NonNull K key) {
+        map.remove(key);
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    public synchronized long missCount() {
+        return missCount;
+    }
+}
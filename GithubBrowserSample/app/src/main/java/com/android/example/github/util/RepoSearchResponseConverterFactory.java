@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.util;
+
+import com.android.example.github.api.RepoSearchResponse;
+import com.android.example.github.vo.Repo;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * A Retrofit converter that reads {@link RepoSearchResponse} from the response stream in a single
+ * pass.
+ * <p>
+ * Repos are appended to the item list, which is the batch inserted into the database, as soon as
+ * they are read and their ids are collected into an int array on the way, so that no second walk
+ * over the items is needed to build the search result. Every other type is left to the next
+ * converter factory.
+ */
+public class RepoSearchResponseConverterFactory extends Converter.Factory {
+    private static final int INITIAL_CAPACITY = 32;
+
+    private final Gson gson;
+
+    public RepoSearchResponseConverterFactory(Gson gson) {
+        this.gson = gson;
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+            Retrofit retrofit) {
+        if (type != RepoSearchResponse.class) {
+            return null;
+        }
+        return new SearchResponseConverter(gson, gson.getAdapter(Repo.class));
+    }
+
+    private static class SearchResponseConverter
+            implements Converter<ResponseBody, RepoSearchResponse> {
+        private final Gson gson;
+        private final TypeAdapter<Repo> repoAdapter;
+
+        SearchResponseConverter(Gson gson, TypeAdapter<Repo> repoAdapter) {
+            this.gson = gson;
+            this.repoAdapter = repoAdapter;
+        }
+
+        @Override
+        public RepoSearchResponse convert(ResponseBody value) throws IOException {
+            JsonReader reader = gson.newJsonReader(value.charStream());
+            try {
+                RepoSearchResponse response = new RepoSearchResponse();
+                List<Repo> items = new ArrayList<>(INITIAL_CAPACITY);
+                int[] ids = new int[INITIAL_CAPACITY];
+                int count = 0;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if ("total_count".equals(name)) {
+                        response.setTotal(reader.nextInt());
+                    } else if ("items".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            Repo repo = repoAdapter.read(reader);
+                            if (repo == null) {
+                                continue;
+                            }
+                            items.add(repo);
+                            if (count == ids.length) {
+                                ids = Arrays.copyOf(ids, count * 2);
+                            }
+                            ids[count++] = repo.id;
+                        }
+                        reader.endArray();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                response.setItems(items);
+                response.setRepoIds(count == ids.length ? ids : Arrays.copyOf(ids, count));
+                return response;
+            } finally {
+                value.close();
+            }
+        }
+    }
+}
@@ -18,11 +18,14 @@ package com.android.example.github.vo;
 
 import android.arch.persistence.room.Entity;
 import android.arch.persistence.room.ForeignKey;
+import android.arch.persistence.room.Index;
 import android.support.annotation.NonNull;
 
 import com.google.gson.annotations.SerializedName;
 
+// the index is in the order contributors are listed in, so pages are read without sorting
 @Entity(primaryKeys = {"repoName", "repoOwner", "login"},
+        indices = @Index({"repoName", "repoOwner", "position"}),
         foreignKeys = @ForeignKey(entity = Repo.class,
                 parentColumns = {"name", "owner_login"},
                 childColumns = {"repoName", "repoOwner"},
@@ -46,6 +49,10 @@ public class Contributor {
     @NonNull
     private String repoOwner;
 
+    // the index of the contributor in the list returned by the API, which breaks the ties between
+    // contributors with as many contributions in the same way as the server
+    private int position;
+
     public Contributor(String login, int contributions, String avatarUrl) {
         this.login = login;
         this.contributions = contributions;
@@ -79,4 +86,52 @@ public class Contributor {
     public void setRepoOwner(String repoOwner) {
         this.repoOwner = repoOwner;
     }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        Contributor that = (Contributor) o;
+
+        if (contributions != that.contributions) {
+            return false;
+        }
+        if (position != that.position) {
+            return false;
+        }
+        if (login != null ? !login.equals(that.login) : that.login != null) {
+            return false;
+        }
+        if (avatarUrl != null ? !avatarUrl.equals(that.avatarUrl) : that.avatarUrl != null) {
+            return false;
+        }
+        if (repoName != null ? !repoName.equals(that.repoName) : that.repoName != null) {
+            return false;
+        }
+        return repoOwner != null ? repoOwner.equals(that.repoOwner) : that.repoOwner == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = contributions;
+        result = 31 * result + (login != null ? login.hashCode() : 0);
+        result = 31 * result + (avatarUrl != null ? avatarUrl.hashCode() : 0);
+        result = 31 * result + (repoName != null ? repoName.hashCode() : 0);
+        result = 31 * result + (repoOwner != null ? repoOwner.hashCode() : 0);
+        result = 31 * result + position;
+        return result;
+    }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.vo;
+
+import android.arch.persistence.room.Entity;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * The paging state of the contributors of a repo, the contributors themselves are kept in
+ * {@link Contributor}.
+ */
+@Entity(primaryKeys = {"repoOwner", "repoName"})
+public class ContributorList {
+    @NonNull
+    public final String repoOwner;
+    @NonNull
+    public final String repoName;
+    // the page to fetch after the ones that are stored, null once the last one is stored
+    @Nullable
+    public final Integer next;
+
+    public ContributorList(@NonNull String repoOwner, @NonNull String repoName,
+            @Nullable Integer next) {
+        this.repoOwner = repoOwner;
+        this.repoName = repoName;
+        this.next = next;
+    }
+}
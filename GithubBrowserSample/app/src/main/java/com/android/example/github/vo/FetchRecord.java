@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.vo;
+
+import android.arch.persistence.room.Entity;
+import android.support.annotation.NonNull;
+
+/**
+ * Remembers when a resource was last fetched from the network so that freshness decisions survive
+ * process death, and when it was last loaded for the user so that it can be refreshed while it is
+ * still in use.
+ */
+@Entity(primaryKeys = "resourceKey")
+public class FetchRecord {
+    @NonNull
+    public final String resourceKey;
+    // wall clock times, uptime does not survive reboots; 0 if it never happened
+    public final long fetchedAt;
+    public final long usedAt;
+
+    public FetchRecord(@NonNull String resourceKey, long fetchedAt, long usedAt) {
+        this.resourceKey = resourceKey;
+        this.fetchedAt = fetchedAt;
+        this.usedAt = usedAt;
+    }
+}
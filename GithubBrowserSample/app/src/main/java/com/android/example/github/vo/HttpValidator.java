@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.vo;
+
+import android.arch.persistence.room.Entity;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * The cache validators GitHub returned for a request url, used to send conditional requests.
+ * <p>
+ * These live in the same database as the data they validate so that both are dropped together.
+ */
+@Entity(primaryKeys = "url")
+public class HttpValidator {
+    @NonNull
+    public final String url;
+    @Nullable
+    public final String etag;
+    @Nullable
+    public final String lastModified;
+
+    public HttpValidator(@NonNull String url, @Nullable String etag,
+                         @Nullable String lastModified) {
+        this.url = url;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+}
@@ -55,6 +55,47 @@ public class Repo {
         this.stars = stars;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        Repo repo = (Repo) o;
+
+        if (id != repo.id) {
+            return false;
+        }
+        if (stars != repo.stars) {
+            return false;
+        }
+        if (name != null ? !name.equals(repo.name) : repo.name != null) {
+            return false;
+        }
+        if (fullName != null ? !fullName.equals(repo.fullName) : repo.fullName != null) {
+            return false;
+        }
+        if (description != null ? !description.equals(repo.description)
+                : repo.description != null) {
+            return false;
+        }
+        return owner != null ? owner.equals(repo.owner) : repo.owner == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id;
+        result = 31 * result + stars;
+        result = 31 * result + (name != null ? name.hashCode() : 0);
+        result = 31 * result + (fullName != null ? fullName.hashCode() : 0);
+        result = 31 * result + (description != null ? description.hashCode() : 0);
+        result = 31 * result + (owner != null ? owner.hashCode() : 0);
+        return result;
+    }
+
     public static class Owner {
         @SerializedName("login")
         @NonNull
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.vo;
+
+import android.support.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Everything the repo screen needs up front: the repo, the first page of its contributors and its
+ * owner. A null part is not stored yet.
+ */
+public class RepoPage {
+    @Nullable
+    public final Repo repo;
+    @Nullable
+    public final List<Contributor> contributors;
+    @Nullable
+    public final User owner;
+
+    public RepoPage(@Nullable Repo repo, @Nullable List<Contributor> contributors,
+            @Nullable User owner) {
+        this.repo = repo;
+        this.contributors = contributors;
+        this.owner = owner;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        RepoPage repoPage = (RepoPage) o;
+
+        if (repo != null ? !repo.equals(repoPage.repo) : repoPage.repo != null) {
+            return false;
+        }
+        if (contributors != null ? !contributors.equals(repoPage.contributors)
+                : repoPage.contributors != null) {
+            return false;
+        }
+        return owner != null ? owner.equals(repoPage.owner) : repoPage.owner == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = repo != null ? repo.hashCode() : 0;
+        result = 31 * result + (contributors != null ? contributors.hashCode() : 0);
+        result = 31 * result + (owner != null ? owner.hashCode() : 0);
+        return result;
+    }
+}
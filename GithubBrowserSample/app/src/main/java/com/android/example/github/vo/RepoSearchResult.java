@@ -13,32 +13,25 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package com.android.example.github.vo;
 
 import android.arch.persistence.room.Entity;
-import android.arch.persistence.room.TypeConverters;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
-import com.android.example.github.db.GithubTypeConverters;
-
-import java.util.List;
-
+/**
+ * The state of a search query, its results are kept in {@link SearchResultItem}.
+ */
 @Entity(primaryKeys = {"query"})
-@TypeConverters(GithubTypeConverters.class)
 public class RepoSearchResult {
     @NonNull
     public final String query;
-    public final List<Integer> repoIds;
     public final int totalCount;
     @Nullable
     public final Integer next;
 
-    public RepoSearchResult(@NonNull String query, List<Integer> repoIds, int totalCount,
-                            @Nullable Integer next) {
+    public RepoSearchResult(@NonNull String query, int totalCount, @Nullable Integer next) {
         this.query = query;
-        this.repoIds = repoIds;
         this.totalCount = totalCount;
         this.next = next;
     }
@@ -25,6 +25,11 @@ import static com.android.example.github.vo.Status.SUCCESS;
 
 /**
  * A generic class that holds a value with its loading status.
+ * <p>
+ * The {@link #version} identifies the data: a source that stamps its values with
+ * {@link #stampedAfter(Resource, boolean)} increments it whenever it emits different data, so a
+ * resource can then be compared with the current one of the same source using
+ * {@link #isSameVersion(Resource)} instead of comparing their data.
  *
  * @param <T>
  */
@@ -39,10 +44,19 @@ public class Resource<T> {
     @Nullable
     public final T data;
 
+    // 0 when the data was not stamped by its source
+    public final long version;
+
     public Resource(@NonNull Status status, @Nullable T data, @Nullable String message) {
+        this(status, data, message, 0);
+    }
+
+    public Resource(@NonNull Status status, @Nullable T data, @Nullable String message,
+            long version) {
         this.status = status;
         this.data = data;
         this.message = message;
+        this.version = version;
     }
 
     public static <T> Resource<T> success(@Nullable T data) {
@@ -57,6 +71,43 @@ public class Resource<T> {
         return new Resource<>(LOADING, data, null);
     }
 
+    /**
+     * Returns a copy of this resource with the given data version.
+     */
+    public Resource<T> withVersion(long version) {
+        return version == this.version ? this : new Resource<>(status, data, message, version);
+    }
+
+    /**
+     * Returns a copy of this resource stamped as the value that follows {@code previous}: it keeps
+     * the version of {@code previous} if the data is the same instance or the source knows it is
+     * the same data, and gets the next version otherwise.
+     * <p>
+     * The data is never compared with {@link Object#equals(Object)}, which is linear in the size of
+     * a list and would run on the main thread. A source that loads the same data again as new
+     * instances tells so with {@code sameData}, e.g. because the tables it read from did not
+     * change in between.
+     */
+    public Resource<T> stampedAfter(@Nullable Resource<T> previous, boolean sameData) {
+        if (previous == null) {
+            return withVersion(1);
+        }
+        boolean same = sameData || data == previous.data;
+        return withVersion(same ? previous.version : previous.version + 1);
+    }
+
+    /**
+     * Returns true if the other resource has the same status, message and data version. Unlike
+     * {@link #equals(Object)}, this never looks into the data, so it is only meaningful for
+     * resources stamped by the same source.
+     */
+    public boolean isSameVersion(@Nullable Resource<?> other) {
+        if (other == null || status != other.status || version != other.version) {
+            return false;
+        }
+        return message != null ? message.equals(other.message) : other.message == null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -91,6 +142,7 @@ public class Resource<T> {
                 "status=" + status +
                 ", message='" + message + '\'' +
                 ", data=" + data +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.vo;
+
+import android.arch.persistence.room.Entity;
+import android.arch.persistence.room.Index;
+import android.support.annotation.NonNull;
+
+/**
+ * One repo in the ordered result list of a search query.
+ * <p>
+ * Keeping one row per result lets the next page be appended without rewriting the previous ones.
+ * Positions are only used for ordering, so they may have gaps when GitHub returns a repo that is
+ * already part of an earlier page.
+ */
+@Entity(tableName = "search_result_item",
+        primaryKeys = {"query", "position"},
+        indices = {@Index(value = {"query", "repoId"}, unique = true)})
+public class SearchResultItem {
+    @NonNull
+    public final String query;
+    public final int position;
+    public final int repoId;
+
+    public SearchResultItem(@NonNull String query, int position, int repoId) {
+        this.query = query;
+        this.position = position;
+        this.repoId = repoId;
+    }
+}
@@ -46,4 +46,44 @@ public class User {
         this.reposUrl = reposUrl;
         this.blog = blog;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        User user = (User) o;
+
+        if (login != null ? !login.equals(user.login) : user.login != null) {
+            return false;
+        }
+        if (avatarUrl != null ? !avatarUrl.equals(user.avatarUrl) : user.avatarUrl != null) {
+            return false;
+        }
+        if (name != null ? !name.equals(user.name) : user.name != null) {
+            return false;
+        }
+        if (company != null ? !company.equals(user.company) : user.company != null) {
+            return false;
+        }
+        if (reposUrl != null ? !reposUrl.equals(user.reposUrl) : user.reposUrl != null) {
+            return false;
+        }
+        return blog != null ? blog.equals(user.blog) : user.blog == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = login != null ? login.hashCode() : 0;
+        result = 31 * result + (avatarUrl != null ? avatarUrl.hashCode() : 0);
+        result = 31 * result + (name != null ? name.hashCode() : 0);
+        result = 31 * result + (company != null ? company.hashCode() : 0);
+        result = 31 * result + (reposUrl != null ? reposUrl.hashCode() : 0);
+        result = 31 * result + (blog != null ? blog.hashCode() : 0);
+        return result;
+    }
 }
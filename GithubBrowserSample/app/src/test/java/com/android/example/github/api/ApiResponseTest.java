@@ -29,7 +29,6 @@ import retrofit2.http.Header;
 import retrofit2.http.Headers;
 
 import static org.hamcrest.CoreMatchers.is;
-import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -39,7 +38,7 @@ public class ApiResponseTest {
     public void exception() {
         Exception exception = new Exception("foo");
         ApiResponse<String> apiResponse = new ApiResponse<>(exception);
-        assertThat(apiResponse.links, notNullValue());
+        assertThat(apiResponse.getNextPage(), nullValue());
         assertThat(apiResponse.body, nullValue());
         assertThat(apiResponse.code, is(500));
         assertThat(apiResponse.errorMessage, is("foo"));
@@ -61,6 +60,27 @@ public class ApiResponseTest {
         okhttp3.Headers headers = okhttp3.Headers.of("link", link);
         ApiResponse<String> response = new ApiResponse<>(Response.success("foo", headers));
         assertThat(response.getNextPage(), is(2));
+        assertThat(response.getLastPage(), is(34));
+    }
+
+    @Test
+    public void linkWithOtherPageParameters() {
+        String link = "<https://api.github.com/repos/a/b/contributors?per_page=100&page=3>;"
+                + " rel=\"next\", <https://api.github.com/repos/a/b/contributors?page=1>;"
+                + " rel=\"first\"";
+        okhttp3.Headers headers = okhttp3.Headers.of("link", link);
+        ApiResponse<String> response = new ApiResponse<>(Response.success("foo", headers));
+        assertThat(response.getNextPage(), is(3));
+        assertThat(response.getLastPage(), nullValue());
+    }
+
+    @Test
+    public void pageNumberOverflow() {
+        String link = "<https://api.github.com/search/repositories?q=foo&page=99999999999>;"
+                + " rel=\"next\"";
+        okhttp3.Headers headers = okhttp3.Headers.of("link", link);
+        ApiResponse<String> response = new ApiResponse<>(Response.success("foo", headers));
+        assertThat(response.getNextPage(), nullValue());
     }
 
     @Test
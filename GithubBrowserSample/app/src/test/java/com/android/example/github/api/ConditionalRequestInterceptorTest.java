@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.api;
+
+import com.android.example.github.db.HttpValidatorDao;
+import com.android.example.github.vo.HttpValidator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(JUnit4.class)
+public class ConditionalRequestInterceptorTest {
+    private MockWebServer mockWebServer;
+
+    private HttpValidatorDao dao;
+
+    private OkHttpClient client;
+
+    @Before
+    public void init() {
+        mockWebServer = new MockWebServer();
+        dao = mock(HttpValidatorDao.class);
+        client = new OkHttpClient.Builder()
+                .addInterceptor(new ConditionalRequestInterceptor(dao))
+                .build();
+    }
+
+    @After
+    public void stop() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    public void unmarkedRequest() throws IOException, InterruptedException {
+        mockWebServer.enqueue(new MockResponse().addHeader("ETag", "\"abc\"").setBody("{}"));
+        execute(new Request.Builder().url(mockWebServer.url("/users/foo")));
+        RecordedRequest request = mockWebServer.takeRequest();
+        assertThat(request.getHeader("If-None-Match"), nullValue());
+        verify(dao, never()).find(any());
+        verify(dao, never()).insert(any());
+    }
+
+    @Test
+    public void doNotStoreValidators() throws IOException, InterruptedException {
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader("ETag", "\"abc\"")
+                .addHeader("Last-Modified", "yesterday")
+                .setBody("{}"));
+        execute(conditional(mockWebServer.url("/users/foo")));
+        RecordedRequest request = mockWebServer.takeRequest();
+        assertThat(request.getHeader(ConditionalRequestInterceptor.CONDITIONAL_HEADER),
+                nullValue());
+        assertThat(request.getHeader("If-None-Match"), nullValue());
+        // they are stored with the data, by HttpValidators
+        verify(dao, never()).insert(any());
+        verify(dao, never()).delete(any());
+    }
+
+    @Test
+    public void sendValidators() throws IOException, InterruptedException {
+        HttpUrl url = mockWebServer.url("/users/foo");
+        when(dao.find(url.toString()))
+                .thenReturn(new HttpValidator(url.toString(), "\"abc\"", "yesterday"));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(304));
+        Response response = execute(conditional(url));
+        assertThat(response.code(), is(304));
+
+        RecordedRequest request = mockWebServer.takeRequest();
+        assertThat(request.getHeader("If-None-Match"), is("\"abc\""));
+        assertThat(request.getHeader("If-Modified-Since"), is("yesterday"));
+        verify(dao, never()).insert(any());
+    }
+
+    private Request.Builder conditional(HttpUrl url) {
+        return new Request.Builder()
+                .url(url)
+                .header(ConditionalRequestInterceptor.CONDITIONAL_HEADER, "true");
+    }
+
+    private Response execute(Request.Builder builder) throws IOException {
+        Response response = client.newCall(builder.build()).execute();
+        response.close();
+        return response;
+    }
+}
@@ -139,9 +139,8 @@ public class GithubServiceTest {
         assertThat(response, notNullValue());
         assertThat(response.body.getTotal(), is(41));
         assertThat(response.body.getItems().size(), is(30));
-        assertThat(response.links.get("next"),
-                is("https://api.github.com/search/repositories?q=foo&page=2"));
         assertThat(response.getNextPage(), is(2));
+        assertThat(response.getLastPage(), is(34));
     }
 
     private void enqueueResponse(String fileName) throws IOException {
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.api;
+
+import com.android.example.github.db.HttpValidatorDao;
+import com.android.example.github.vo.Contributor;
+import com.android.example.github.vo.HttpValidator;
+import com.android.example.github.vo.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(JUnit4.class)
+public class HttpValidatorsTest {
+    private MockWebServer mockWebServer;
+
+    private HttpValidatorDao dao;
+
+    private HttpValidators validators;
+
+    private GithubService service;
+
+    @Before
+    public void init() {
+        mockWebServer = new MockWebServer();
+        dao = mock(HttpValidatorDao.class);
+        validators = new HttpValidators(dao);
+        service = new Retrofit.Builder()
+                .baseUrl(mockWebServer.url("/"))
+                .client(new OkHttpClient.Builder()
+                        .addInterceptor(new ConditionalRequestInterceptor(dao))
+                        .build())
+                .addConverterFactory(GsonConverterFactory.create())
+                .addCallAdapterFactory(validators.callAdapterFactory())
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .build()
+                .create(GithubService.class);
+    }
+
+    @After
+    public void stop() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    public void storeValidatorsWithTheData() {
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader("ETag", "\"abc\"")
+                .addHeader("Last-Modified", "yesterday")
+                .setBody("{\"login\":\"foo\"}"));
+        User user = service.getUser("foo").blockingFirst();
+        // nothing is stored until the data is
+        verify(dao, never()).insert(any());
+
+        validators.saveWith(user);
+        ArgumentCaptor<HttpValidator> captor = ArgumentCaptor.forClass(HttpValidator.class);
+        verify(dao).insert(captor.capture());
+        assertThat(captor.getValue().url, is(mockWebServer.url("/users/foo").toString()));
+        assertThat(captor.getValue().etag, is("\"abc\""));
+        assertThat(captor.getValue().lastModified, is("yesterday"));
+    }
+
+    @Test
+    public void storeValidatorsOfAResponse() {
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader("ETag", "\"abc\"")
+                .setBody("[]"));
+        Response<List<Contributor>> response = service.getContributors("foo", "bar")
+                .blockingFirst();
+        validators.saveWith(response);
+        verify(dao).insert(any());
+    }
+
+    @Test
+    public void storeValidatorsOnce() {
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader("ETag", "\"abc\"")
+                .setBody("{\"login\":\"foo\"}"));
+        User user = service.getUser("foo").blockingFirst();
+        validators.saveWith(user);
+        validators.saveWith(user);
+        verify(dao).insert(any());
+    }
+
+    @Test
+    public void dropValidatorsWhenServerStopsSendingThem() {
+        mockWebServer.enqueue(new MockResponse().setBody("{\"login\":\"foo\"}"));
+        validators.saveWith(service.getUser("foo").blockingFirst());
+        verify(dao).delete(mockWebServer.url("/users/foo").toString());
+        verify(dao, never()).insert(any());
+    }
+
+    @Test
+    public void unparsableResponse() {
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader("ETag", "\"abc\"")
+                .setBody("{\"login\":"));
+        try {
+            service.getUser("foo").blockingFirst();
+            fail("the response should not parse");
+        } catch (RuntimeException expected) {
+        }
+        verify(dao, never()).insert(any());
+        verify(dao, never()).delete(any());
+    }
+
+    @Test
+    public void unconditionalRequest() {
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader("ETag", "\"abc\"")
+                .setBody("[]"));
+        validators.saveWith(service.getContributors("foo", "bar", 2).blockingFirst());
+        verify(dao, never()).insert(any());
+    }
+}
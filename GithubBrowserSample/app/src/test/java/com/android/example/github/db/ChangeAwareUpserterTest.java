@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import com.android.example.github.util.TestUtil;
+import com.android.example.github.vo.Contributor;
+import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoSearchResult;
+import com.android.example.github.vo.User;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(JUnit4.class)
+public class ChangeAwareUpserterTest {
+    private RepoDao repoDao;
+    private UserDao userDao;
+    private TableGenerations generations;
+    private ChangeAwareUpserter upserter;
+
+    @Before
+    public void init() {
+        repoDao = mock(RepoDao.class);
+        userDao = mock(UserDao.class);
+        generations = new TableGenerations();
+        upserter = new ChangeAwareUpserter(repoDao, userDao, generations);
+    }
+
+    @Test
+    public void unchangedReposAreNotWritten() {
+        List<Repo> repos = Arrays.asList(TestUtil.createRepo(1, "foo", "a", "desc"),
+                TestUtil.createRepo(2, "foo", "b", "desc"));
+        when(repoDao.findByIds(Arrays.asList(1, 2))).thenReturn(Arrays.asList(
+                TestUtil.createRepo(1, "foo", "a", "desc"),
+                TestUtil.createRepo(2, "foo", "b", "desc")));
+        upserter.upsertRepos(repos);
+        verify(repoDao, never()).insertRepos(anyListOf(Repo.class));
+        assertThat(generations.get(TableGenerations.REPO), is(0L));
+        assertThat(upserter.getSkippedRows(), is(2L));
+        assertThat(upserter.getSkippedInserts(), is(1L));
+        assertThat(upserter.getWrittenRows(), is(0L));
+    }
+
+    @Test
+    public void onlyChangedReposAreWritten() {
+        Repo changed = TestUtil.createRepo(2, "foo", "b", "new desc");
+        Repo added = TestUtil.createRepo(3, "foo", "c", "desc");
+        List<Repo> repos = Arrays.asList(TestUtil.createRepo(1, "foo", "a", "desc"), changed,
+                added);
+        when(repoDao.findByIds(Arrays.asList(1, 2, 3))).thenReturn(Arrays.asList(
+                TestUtil.createRepo(1, "foo", "a", "desc"),
+                TestUtil.createRepo(2, "foo", "b", "desc")));
+        upserter.upsertRepos(repos);
+        verify(repoDao).insertRepos(Arrays.asList(changed, added));
+        // the new generation is only readable once the write is committed
+        assertThat(generations.get(TableGenerations.REPO), is(TableGenerations.UNKNOWN));
+        generations.commit();
+        assertThat(generations.get(TableGenerations.REPO), is(2L));
+        assertThat(upserter.getWrittenRows(), is(2L));
+        assertThat(upserter.getSkippedRows(), is(1L));
+        assertThat(upserter.getSkippedInserts(), is(0L));
+    }
+
+    @Test
+    public void unchangedRepo() {
+        when(repoDao.find("foo", "a")).thenReturn(TestUtil.createRepo(1, "foo", "a", "desc"));
+        upserter.upsertRepo(TestUtil.createRepo(1, "foo", "a", "desc"));
+        verify(repoDao, never()).insert(any(Repo.class));
+        upserter.upsertRepo(TestUtil.createRepo(1, "foo", "a", "other"));
+        verify(repoDao).insert(TestUtil.createRepo(1, "foo", "a", "other"));
+    }
+
+    @Test
+    public void contributors() {
+        Repo repo = TestUtil.createRepo(1, "foo", "a", "desc");
+        when(repoDao.findContributors(eq("foo"), eq("a"), anyListOf(String.class)))
+                .thenReturn(Collections.singletonList(TestUtil.createContributor(repo, "x", 3)));
+        Contributor moreCommits = TestUtil.createContributor(repo, "x", 4);
+        upserter.upsertContributors("foo", "a", Arrays.asList(
+                moreCommits, TestUtil.createContributor(repo, "y", 1)));
+        // only the logins of the page are looked up
+        verify(repoDao).findContributors("foo", "a", Arrays.asList("x", "y"));
+        verify(repoDao).insertContributors(Arrays.asList(moreCommits,
+                TestUtil.createContributor(repo, "y", 1)));
+
+        upserter.upsertContributors("foo", "a", Collections.singletonList(
+                TestUtil.createContributor(repo, "x", 3)));
+        assertThat(upserter.getSkippedInserts(), is(1L));
+    }
+
+    @Test
+    public void user() {
+        User user = TestUtil.createUser("foo");
+        when(userDao.find("foo")).thenReturn(TestUtil.createUser("foo"));
+        upserter.upsertUser(user);
+        verify(userDao, never()).insert(any(User.class));
+        assertThat(upserter.getSkippedInserts(), is(1L));
+
+        when(userDao.find("foo")).thenReturn(null);
+        upserter.upsertUser(user);
+        verify(userDao).insert(user);
+        assertThat(upserter.getWrittenRows(), is(1L));
+    }
+
+    @Test
+    public void unchangedSearchResult() {
+        when(repoDao.findSearchResult("foo")).thenReturn(new RepoSearchResult("foo", 10, 2));
+        upserter.upsertSearchResult(new RepoSearchResult("foo", 10, 2));
+        verify(repoDao, never()).insert(any(RepoSearchResult.class));
+        assertThat(generations.get(TableGenerations.REPO_SEARCH_RESULT), is(0L));
+
+        RepoSearchResult lastPage = new RepoSearchResult("foo", 10, null);
+        upserter.upsertSearchResult(lastPage);
+        verify(repoDao).insert(lastPage);
+        generations.commit();
+        assertThat(generations.get(TableGenerations.REPO_SEARCH_RESULT), is(2L));
+    }
+
+    @Test
+    public void deletedContributorsChangeTheGeneration() {
+        List<String> logins = Collections.singletonList("x");
+        when(repoDao.deleteContributorsExcept("foo", "a", logins)).thenReturn(0);
+        upserter.deleteContributorsExcept("foo", "a", logins);
+        generations.commit();
+        assertThat(generations.get(TableGenerations.CONTRIBUTOR), is(0L));
+
+        when(repoDao.deleteContributorsExcept("foo", "a", logins)).thenReturn(2);
+        upserter.deleteContributorsExcept("foo", "a", logins);
+        generations.commit();
+        assertThat(generations.get(TableGenerations.CONTRIBUTOR), is(2L));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class TableGenerationsTest {
+    private TableGenerations generations;
+
+    @Before
+    public void init() {
+        generations = new TableGenerations();
+    }
+
+    @Test
+    public void unknownWhileChanging() {
+        long before = generations.get(TableGenerations.REPO, TableGenerations.USER);
+        generations.changing(TableGenerations.USER);
+        assertThat(generations.get(TableGenerations.REPO, TableGenerations.USER),
+                is(TableGenerations.UNKNOWN));
+        // the other tables can still be read
+        assertThat(generations.get(TableGenerations.REPO), is(0L));
+
+        generations.commit();
+        long after = generations.get(TableGenerations.REPO, TableGenerations.USER);
+        assertThat(after, not(TableGenerations.UNKNOWN));
+        assertThat(after, not(before));
+    }
+
+    @Test
+    public void tableChangedTwiceInATransaction() {
+        generations.changing(TableGenerations.REPO);
+        generations.changing(TableGenerations.REPO);
+        generations.commit();
+        assertThat(generations.get(TableGenerations.REPO), is(2L));
+        // nothing changed since
+        generations.commit();
+        assertThat(generations.get(TableGenerations.REPO), is(2L));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.db;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(JUnit4.class)
+public class WriteBatcherTest {
+    private GithubDb db;
+    private TestScheduler scheduler;
+    private TableGenerations generations;
+    private WriteBatcher writeBatcher;
+
+    @Before
+    public void init() {
+        db = mock(GithubDb.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[0]).run();
+            return null;
+        }).when(db).runInTransaction(any(Runnable.class));
+        scheduler = new TestScheduler();
+        generations = new TableGenerations();
+        writeBatcher = new WriteBatcher(db, generations, 20, scheduler);
+    }
+
+    @Test
+    public void isolatedWriteIsFlushedRightAway() {
+        AtomicInteger writes = new AtomicInteger();
+        TestObserver<Void> write = writeBatcher.submit(writes::incrementAndGet).test();
+        scheduler.triggerActions();
+        assertThat(writes.get(), is(1));
+        write.assertComplete();
+        verify(db, times(1)).beginTransaction();
+    }
+
+    @Test
+    public void generationsAreCommittedBeforeTheWriteIsDone() {
+        TestObserver<Void> write = writeBatcher.submit(
+                () -> generations.changing(TableGenerations.REPO)).test();
+        assertThat(generations.get(TableGenerations.REPO), is(0L));
+        write.assertNotComplete();
+        scheduler.triggerActions();
+        write.assertComplete();
+        assertThat(generations.get(TableGenerations.REPO), is(2L));
+    }
+
+    @Test
+    public void queuedWritesShareATransaction() {
+        AtomicInteger writes = new AtomicInteger();
+        TestObserver<Void> first = writeBatcher.submit(writes::incrementAndGet).test();
+        TestObserver<Void> second = writeBatcher.submit(writes::incrementAndGet).test();
+        scheduler.triggerActions();
+        assertThat(writes.get(), is(2));
+        verify(db, times(1)).beginTransaction();
+        verify(db, times(1)).setTransactionSuccessful();
+        verify(db, times(1)).endTransaction();
+        first.assertComplete();
+        second.assertComplete();
+    }
+
+    @Test
+    public void writesInABurstShareATransaction() {
+        AtomicInteger writes = new AtomicInteger();
+        writeBatcher.submit(writes::incrementAndGet).test();
+        scheduler.triggerActions();
+
+        scheduler.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+        TestObserver<Void> first = writeBatcher.submit(writes::incrementAndGet).test();
+        TestObserver<Void> second = writeBatcher.submit(writes::incrementAndGet).test();
+        scheduler.advanceTimeBy(19, TimeUnit.MILLISECONDS);
+        assertThat(writes.get(), is(1));
+        first.assertNotComplete();
+
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        assertThat(writes.get(), is(3));
+        verify(db, times(2)).beginTransaction();
+        first.assertComplete();
+        second.assertComplete();
+    }
+
+    @Test
+    public void writeAfterTheWindowIsFlushedRightAway() {
+        writeBatcher.submit(() -> {}).test();
+        scheduler.advanceTimeBy(20, TimeUnit.MILLISECONDS);
+        TestObserver<Void> later = writeBatcher.submit(() -> {}).test();
+        scheduler.triggerActions();
+        later.assertComplete();
+        verify(db, times(2)).beginTransaction();
+    }
+
+    @Test
+    public void nestedWriteRunsInPlace() {
+        AtomicInteger writes = new AtomicInteger();
+        TestObserver<Void> outer = writeBatcher.submit(() -> {
+            writeBatcher.write(writes::incrementAndGet);
+            writes.incrementAndGet();
+        }).test();
+        scheduler.triggerActions();
+        assertThat(writes.get(), is(2));
+        outer.assertComplete();
+        verify(db, times(1)).beginTransaction();
+    }
+
+    @Test
+    public void failingWriteOnlyFailsItself() {
+        AtomicInteger writes = new AtomicInteger();
+        TestObserver<Void> ok = writeBatcher.submit(writes::incrementAndGet).test();
+        TestObserver<Void> failing = writeBatcher.submit(() -> {
+            throw new IllegalStateException("idk");
+        }).test();
+
+        scheduler.triggerActions();
+        verify(db, never()).setTransactionSuccessful();
+        verify(db, times(2)).runInTransaction(any(Runnable.class));
+        // once in the rolled back batch and once on its own
+        assertThat(writes.get(), is(2));
+        ok.assertComplete();
+        failing.assertErrorMessage("idk");
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import com.android.example.github.db.FetchRecordDao;
+import com.android.example.github.vo.FetchRecord;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.CompletableSubject;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(JUnit4.class)
+public class BackgroundRefresherTest {
+    private static final long NOW = TimeUnit.DAYS.toMillis(100);
+
+    private FetchRecordDao fetchRecordDao;
+    private RepoRepository repoRepository;
+    private UserRepository userRepository;
+    private TestScheduler scheduler;
+    private BackgroundRefresher refresher;
+
+    @Before
+    public void init() {
+        fetchRecordDao = mock(FetchRecordDao.class);
+        repoRepository = mock(RepoRepository.class);
+        userRepository = mock(UserRepository.class);
+        scheduler = new TestScheduler();
+        refresher = new BackgroundRefresher(fetchRecordDao, repoRepository, userRepository, 2,
+                1000, scheduler, Schedulers.trampoline()) {
+            @Override
+            long now() {
+                return NOW;
+            }
+        };
+    }
+
+    @Test
+    public void recentlyUsedResourcesOnly() {
+        when(fetchRecordDao.findUsedSince(anyLong(), anyLong(), anyInt()))
+                .thenReturn(Arrays.asList());
+        TestObserver<Void> observer = refresher.refresh().test();
+        scheduler.triggerActions();
+        observer.assertComplete();
+        verify(fetchRecordDao).findUsedSince(NOW - TimeUnit.DAYS.toMillis(3),
+                NOW - TimeUnit.MINUTES.toMillis(30), 100);
+    }
+
+    @Test
+    public void refreshInBatches() {
+        when(fetchRecordDao.findUsedSince(anyLong(), anyLong(), anyInt())).thenReturn(
+                Arrays.asList(new FetchRecord("repo/a/b", 1, NOW), new FetchRecord("user/a", 2, NOW),
+                        new FetchRecord("search/foo", 3, NOW)));
+        CompletableSubject repo = repoResource("repo/a/b");
+        CompletableSubject user = userResource("user/a");
+        CompletableSubject search = repoResource("search/foo");
+
+        TestObserver<Void> observer = refresher.refresh().test();
+        scheduler.triggerActions();
+        assertThat(repo.hasObservers(), is(true));
+        assertThat(user.hasObservers(), is(true));
+        assertThat(search.hasObservers(), is(false));
+
+        repo.onComplete();
+        user.onComplete();
+        scheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+        assertThat(search.hasObservers(), is(false));
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        assertThat(search.hasObservers(), is(true));
+
+        search.onComplete();
+        observer.assertComplete();
+    }
+
+    @Test
+    public void failureDoesNotStopRefresh() {
+        when(fetchRecordDao.findUsedSince(anyLong(), anyLong(), anyInt())).thenReturn(
+                Arrays.asList(new FetchRecord("repo/a/b", 1, NOW), new FetchRecord("unknown/a", 2, NOW),
+                        new FetchRecord("user/a", 3, NOW)));
+        CompletableSubject repo = repoResource("repo/a/b");
+        CompletableSubject user = userResource("user/a");
+
+        TestObserver<Void> observer = refresher.refresh().test();
+        scheduler.triggerActions();
+        repo.onError(new Exception("idk"));
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        assertThat(user.hasObservers(), is(true));
+        user.onComplete();
+        observer.assertComplete();
+    }
+
+    @Test
+    public void partsOfRefreshedRepoPagesAreSkipped() {
+        when(fetchRecordDao.findUsedSince(anyLong(), anyLong(), anyInt())).thenReturn(
+                Arrays.asList(new FetchRecord("repo/a/b", 1, NOW),
+                        new FetchRecord("repoPage/a/b", 2, NOW),
+                        new FetchRecord("user/a", 3, NOW),
+                        new FetchRecord("contributors/a/b", 4, NOW),
+                        new FetchRecord("user/c", 5, NOW)));
+        CompletableSubject repoPage = repoResource("repoPage/a/b");
+        CompletableSubject user = userResource("user/c");
+
+        TestObserver<Void> observer = refresher.refresh().test();
+        scheduler.triggerActions();
+        assertThat(repoPage.hasObservers(), is(true));
+        assertThat(user.hasObservers(), is(true));
+        repoPage.onComplete();
+        user.onComplete();
+        observer.assertComplete();
+        // the page saves its repo, contributors and owner
+        verify(repoRepository, never()).resourceFor("repo/a/b");
+        verify(repoRepository, never()).resourceFor("contributors/a/b");
+        verify(repoRepository, never()).resourceFor("user/a");
+    }
+
+    private CompletableSubject repoResource(String key) {
+        CompletableSubject fetch = CompletableSubject.create();
+        doReturn(resource(fetch)).when(repoRepository).resourceFor(key);
+        return fetch;
+    }
+
+    private CompletableSubject userResource(String key) {
+        CompletableSubject fetch = CompletableSubject.create();
+        doReturn(resource(fetch)).when(userRepository).resourceFor(key);
+        return fetch;
+    }
+
+    private static NetworkBoundResource resource(Completable fetch) {
+        NetworkBoundResource resource = mock(NetworkBoundResource.class);
+        when(resource.fetch()).thenReturn(fetch);
+        return resource;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import com.android.example.github.util.TestUtil;
+import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.User;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class EntityCacheTest {
+    private EntityCache entityCache;
+
+    @Before
+    public void init() {
+        entityCache = new EntityCache();
+    }
+
+    @Test
+    public void unchangedRowKeepsItsInstance() {
+        Repo cached = TestUtil.createRepo(1, "foo", "bar", "desc");
+        entityCache.putRepo(cached);
+        Repo read = TestUtil.createRepo(1, "foo", "bar", "desc");
+        assertThat(entityCache.internRepo("foo", "bar", read), sameInstance(cached));
+    }
+
+    @Test
+    public void savedRowReplacesCachedOne() {
+        entityCache.putRepo(TestUtil.createRepo(1, "foo", "bar", "old"));
+        Repo saved = TestUtil.createRepo(1, "foo", "bar", "new");
+        entityCache.putRepos(Collections.singletonList(saved));
+        assertThat(entityCache.getRepo("foo", "bar"), sameInstance(saved));
+        // a read of the saved row is the saved instance
+        Repo read = TestUtil.createRepo(1, "foo", "bar", "new");
+        assertThat(entityCache.internRepo("foo", "bar", read), sameInstance(saved));
+    }
+
+    @Test
+    public void changedRowReplacesCachedOne() {
+        entityCache.putUser(TestUtil.createUser("foo"));
+        User changed = new User("foo", null, "other name", null, null, null);
+        assertThat(entityCache.internUser("foo", changed), sameInstance(changed));
+        assertThat(entityCache.getUser("foo"), sameInstance(changed));
+    }
+
+    @Test
+    public void deletedRowLeavesTheCache() {
+        entityCache.putUser(TestUtil.createUser("foo"));
+        assertThat(entityCache.internUser("foo", null), nullValue());
+        assertThat(entityCache.getUser("foo"), nullValue());
+        assertThat(entityCache.getUsers().missCount(), is(1L));
+    }
+}
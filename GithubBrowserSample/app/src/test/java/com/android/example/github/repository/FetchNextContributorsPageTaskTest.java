@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import com.android.example.github.api.GithubService;
+import com.android.example.github.db.ChangeAwareUpserter;
+import com.android.example.github.db.GithubDb;
+import com.android.example.github.db.RepoDao;
+import com.android.example.github.db.WriteBatcher;
+import com.android.example.github.vo.Contributor;
+import com.android.example.github.vo.ContributorList;
+import com.android.example.github.vo.Resource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.reactivex.Flowable;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Headers;
+import retrofit2.Response;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(JUnit4.class)
+public class FetchNextContributorsPageTaskTest {
+    private GithubService service;
+    private RepoDao repoDao;
+    private ChangeAwareUpserter upserter;
+    private FetchNextContributorsPageTask task;
+
+    @Before
+    public void init() {
+        RxJavaPlugins.setIoSchedulerHandler(scheduler -> Schedulers.trampoline());
+        service = mock(GithubService.class);
+        repoDao = mock(RepoDao.class);
+        upserter = mock(ChangeAwareUpserter.class);
+        GithubDb db = mock(GithubDb.class);
+        when(db.repoDao()).thenReturn(repoDao);
+        WriteBatcher writeBatcher = mock(WriteBatcher.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[0]).run();
+            return null;
+        }).when(writeBatcher).write(any(Runnable.class));
+        task = new FetchNextContributorsPageTask("foo", "bar", service, db, writeBatcher,
+                upserter);
+    }
+
+    @After
+    public void resetSchedulers() {
+        RxJavaPlugins.reset();
+    }
+
+    @Test
+    public void notLoadedYet() {
+        task.call().test().assertNoValues().assertComplete();
+        verify(service, never()).getContributors(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    public void lastPageAlreadyStored() {
+        when(repoDao.findContributorList("foo", "bar"))
+                .thenReturn(new ContributorList("foo", "bar", null));
+        task.call().test().assertValue(Resource.success(false));
+        verify(service, never()).getContributors(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    public void appendsPage() {
+        when(repoDao.findContributorList("foo", "bar"))
+                .thenReturn(new ContributorList("foo", "bar", 2));
+        // rows may be missing before the last one, only its position counts
+        when(repoDao.findLastContributorPosition("foo", "bar")).thenReturn(29);
+        List<Contributor> page = Arrays.asList(new Contributor("x", 3, null),
+                new Contributor("y", 3, null));
+        Headers headers = Headers.of("link",
+                "<https://api.github.com/repositories/1/contributors?page=3>; rel=\"next\"");
+        when(service.getContributors("foo", "bar", 2))
+                .thenReturn(Flowable.just(Response.success(page, headers)));
+
+        task.call().test().assertValue(Resource.success(true));
+        verify(upserter).upsertContributors("foo", "bar", page);
+        // the page follows the stored ones
+        assertThat(page.get(0).getPosition(), is(30));
+        assertThat(page.get(1).getPosition(), is(31));
+        ArgumentCaptor<ContributorList> saved = ArgumentCaptor.forClass(ContributorList.class);
+        verify(repoDao).insert(saved.capture());
+        assertThat(saved.getValue().next, is(3));
+    }
+}
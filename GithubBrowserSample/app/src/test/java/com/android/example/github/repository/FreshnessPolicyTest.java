@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.repository;
+
+import com.android.example.github.db.FetchRecordDao;
+import com.android.example.github.vo.FetchRecord;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(JUnit4.class)
+public class FreshnessPolicyTest {
+    private static final FreshnessPolicy.Ttl TTL =
+            FreshnessPolicy.Ttl.of(10, 20, TimeUnit.MILLISECONDS);
+
+    private FetchRecordDao dao;
+    private FreshnessPolicy policy;
+    private long time = 100;
+
+    @Before
+    public void init() {
+        dao = mock(FetchRecordDao.class);
+        policy = new FreshnessPolicy(dao) {
+            @Override
+            long now() {
+                return time;
+            }
+        };
+    }
+
+    @Test
+    public void neverFetched() {
+        assertThat(policy.check("foo", TTL), is(FreshnessPolicy.State.EXPIRED));
+    }
+
+    @Test
+    public void states() {
+        when(dao.find("foo")).thenReturn(new FetchRecord("foo", 100, 0));
+        assertThat(policy.check("foo", TTL), is(FreshnessPolicy.State.FRESH));
+        time = 110;
+        assertThat(policy.check("foo", TTL), is(FreshnessPolicy.State.FRESH));
+        time = 111;
+        assertThat(policy.check("foo", TTL), is(FreshnessPolicy.State.STALE));
+        time = 130;
+        assertThat(policy.check("foo", TTL), is(FreshnessPolicy.State.STALE));
+        time = 131;
+        assertThat(policy.check("foo", TTL), is(FreshnessPolicy.State.EXPIRED));
+    }
+
+    @Test
+    public void clockMovedBackwards() {
+        when(dao.find("foo")).thenReturn(new FetchRecord("foo", 200, 0));
+        assertThat(policy.check("foo", TTL), is(FreshnessPolicy.State.EXPIRED));
+    }
+
+    @Test
+    public void usedButNeverFetched() {
+        when(dao.find("foo")).thenReturn(new FetchRecord("foo", 0, 90));
+        assertThat(policy.check("foo", TTL), is(FreshnessPolicy.State.EXPIRED));
+    }
+
+    @Test
+    public void markFetched() {
+        policy.markFetched("foo");
+        ArgumentCaptor<FetchRecord> captor = ArgumentCaptor.forClass(FetchRecord.class);
+        verify(dao).insertIfAbsent(captor.capture());
+        assertThat(captor.getValue().resourceKey, is("foo"));
+        assertThat(captor.getValue().fetchedAt, is(100L));
+        assertThat(captor.getValue().usedAt, is(0L));
+        // an existing record keeps its use time
+        verify(dao).updateFetchedAt("foo", 100);
+        verify(dao, never()).updateUsedAt(anyString(), anyLong());
+    }
+
+    @Test
+    public void markUsed() {
+        policy.markUsed("foo");
+        ArgumentCaptor<FetchRecord> captor = ArgumentCaptor.forClass(FetchRecord.class);
+        verify(dao).insertIfAbsent(captor.capture());
+        assertThat(captor.getValue().fetchedAt, is(0L));
+        assertThat(captor.getValue().usedAt, is(100L));
+        // an existing record keeps its fetch time
+        verify(dao).updateUsedAt("foo", 100);
+        verify(dao, never()).updateFetchedAt(anyString(), anyLong());
+    }
+
+    @Test
+    public void reset() {
+        policy.reset("foo");
+        verify(dao).delete("foo");
+    }
+}
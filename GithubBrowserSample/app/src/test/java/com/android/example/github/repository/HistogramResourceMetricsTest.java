@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import com.android.example.github.repository.ResourceMetrics.Event;
+import com.android.example.github.repository.ResourceMetrics.Stage;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class HistogramResourceMetricsTest {
+    private HistogramResourceMetrics metrics;
+
+    @Before
+    public void init() {
+        metrics = new HistogramResourceMetrics();
+    }
+
+    @Test
+    public void emptySnapshot() {
+        HistogramResourceMetrics.Snapshot snapshot = metrics.snapshot();
+        assertThat(snapshot.stages.isEmpty(), is(true));
+        assertThat(snapshot.events.isEmpty(), is(true));
+    }
+
+    @Test
+    public void snapshotHasPercentilesPerResourceAndStage() {
+        for (int i = 0; i < 99; i++) {
+            metrics.recordStage("repo", Stage.FIRST_DATA, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        metrics.recordStage("repo", Stage.FIRST_DATA, TimeUnit.MILLISECONDS.toNanos(100));
+        metrics.recordStage("user", Stage.FRESH_DATA, TimeUnit.MILLISECONDS.toNanos(8));
+        metrics.recordStage("repo", Stage.DB_READ, TimeUnit.MILLISECONDS.toNanos(2));
+
+        HistogramResourceMetrics.Snapshot snapshot = metrics.snapshot();
+        assertThat(snapshot.stages.size(), is(3));
+        // sorted by resource, then in the order of the stages
+        HistogramResourceMetrics.StageSummary dbRead = snapshot.stages.get(0);
+        assertThat(dbRead.resource, is("repo"));
+        assertThat(dbRead.stage, is(Stage.DB_READ));
+        HistogramResourceMetrics.StageSummary firstData = snapshot.stages.get(1);
+        assertThat(firstData.stage, is(Stage.FIRST_DATA));
+        assertThat(firstData.count, is(100L));
+        assertThat(firstData.p50Micros,
+                is(metrics.percentileMicros("repo", Stage.FIRST_DATA, 0.5)));
+        assertThat(firstData.p99Micros,
+                is(metrics.percentileMicros("repo", Stage.FIRST_DATA, 0.99)));
+        assertThat(snapshot.stages.get(2).resource, is("user"));
+    }
+
+    @Test
+    public void snapshotHasEventCounts() {
+        metrics.recordEvent("repo", Event.NETWORK_FETCH);
+        metrics.recordEvent("repo", Event.NETWORK_FETCH);
+        metrics.recordEvent("search", Event.FETCH_FAILED);
+        HistogramResourceMetrics.Snapshot snapshot = metrics.snapshot();
+        assertThat(snapshot.events.get("repo/NETWORK_FETCH"), is(2L));
+        assertThat(snapshot.events.get("search/FETCH_FAILED"), is(1L));
+
+        // later samples do not change a snapshot that was already taken
+        metrics.recordEvent("repo", Event.NETWORK_FETCH);
+        assertThat(snapshot.events.get("repo/NETWORK_FETCH"), is(2L));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class InFlightRequestsTest {
+    private InFlightRequests inFlightRequests;
+
+    @Before
+    public void init() {
+        inFlightRequests = new InFlightRequests();
+    }
+
+    @Test
+    public void concurrentRequestsShareOneSubscription() {
+        PublishProcessor<String> network = PublishProcessor.create();
+        AtomicInteger subscriptions = new AtomicInteger();
+        Flowable<String> first = inFlightRequests.share("repo/a/b",
+                () -> network.doOnSubscribe(s -> subscriptions.incrementAndGet()));
+        Flowable<String> second = inFlightRequests.share("repo/a/b",
+                () -> network.doOnSubscribe(s -> subscriptions.incrementAndGet()));
+        assertThat(second, sameInstance(first));
+
+        TestSubscriber<String> firstSubscriber = first.test();
+        TestSubscriber<String> secondSubscriber = second.test();
+        assertThat(subscriptions.get(), is(1));
+        assertThat(inFlightRequests.isInFlight("repo/a/b"), is(true));
+
+        network.onNext("foo");
+        network.onComplete();
+        firstSubscriber.assertValue("foo").assertComplete();
+        secondSubscriber.assertValue("foo").assertComplete();
+        assertThat(inFlightRequests.isInFlight("repo/a/b"), is(false));
+    }
+
+    @Test
+    public void differentKeysDoNotShare() {
+        Flowable<String> first = inFlightRequests.share("user/a", () -> Flowable.just("a"));
+        Flowable<String> second = inFlightRequests.share("user/b", () -> Flowable.just("b"));
+        first.test().assertValue("a");
+        second.test().assertValue("b");
+    }
+
+    @Test
+    public void completedRequestIsNotReused() {
+        AtomicInteger calls = new AtomicInteger();
+        inFlightRequests.share("user/a", () -> Flowable.fromCallable(calls::incrementAndGet))
+                .test().assertValue(1);
+        inFlightRequests.share("user/a", () -> Flowable.fromCallable(calls::incrementAndGet))
+                .test().assertValue(2);
+    }
+
+    @Test
+    public void cancelledOnceAllSubscribersDispose() {
+        PublishProcessor<String> network = PublishProcessor.create();
+        TestSubscriber<String> first = inFlightRequests.share("user/a", () -> network).test();
+        TestSubscriber<String> second = inFlightRequests.share("user/a", () -> network).test();
+        first.dispose();
+        assertThat(network.hasSubscribers(), is(true));
+        second.dispose();
+        assertThat(network.hasSubscribers(), is(false));
+        assertThat(inFlightRequests.isInFlight("user/a"), is(false));
+    }
+
+    @Test
+    public void failureIsSharedAndUnregistered() {
+        PublishProcessor<String> network = PublishProcessor.create();
+        TestSubscriber<String> first = inFlightRequests.share("user/a", () -> network).test();
+        TestSubscriber<String> second = inFlightRequests.share("user/a", () -> network).test();
+        network.onError(new Exception("idk"));
+        first.assertErrorMessage("idk");
+        second.assertErrorMessage("idk");
+        assertThat(inFlightRequests.isInFlight("user/a"), is(false));
+    }
+}
@@ -18,7 +18,10 @@ package com.android.example.github.repository;
 
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -30,33 +33,37 @@ import android.arch.lifecycle.Observer;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
-import com.android.example.github.AppExecutors;
-import com.android.example.github.api.ApiResponse;
-import com.android.example.github.util.ApiUtil;
-import com.android.example.github.util.CountingAppExecutors;
-import com.android.example.github.util.InstantAppExecutors;
+import com.android.example.github.db.TableGenerations;
+import com.android.example.github.util.ObjectCache;
 import com.android.example.github.vo.Resource;
+import com.android.example.github.vo.Status;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.junit.runners.Parameterized;
+import org.junit.runners.JUnit4;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
-import okhttp3.MediaType;
-import okhttp3.ResponseBody;
-import retrofit2.Response;
+import io.reactivex.Flowable;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
 
-@RunWith(Parameterized.class)
+@RunWith(JUnit4.class)
 public class NetworkBoundResourceTest {
     @Rule
     public InstantTaskExecutorRule instantExecutorRule = new InstantTaskExecutorRule();
@@ -65,34 +72,35 @@ public class NetworkBoundResourceTest {
 
     private Function<Foo, Boolean> shouldFetch;
 
-    private Function<Void, LiveData<ApiResponse<Foo>>> createCall;
+    private Function<Void, Flowable<Foo>> createCall;
 
     private MutableLiveData<Foo> dbData = new MutableLiveData<>();
 
     private NetworkBoundResource<Foo, Foo> networkBoundResource;
 
     private AtomicBoolean fetchedOnce = new AtomicBoolean(false);
-    private CountingAppExecutors countingAppExecutors;
-    private final boolean useRealExecutors;
 
-    @Parameterized.Parameters
-    public static List<Boolean> param() {
-        return Arrays.asList(true, false);
+    @Before
+    public void init() {
+        RxJavaPlugins.setIoSchedulerHandler(scheduler -> Schedulers.trampoline());
+        RxAndroidPlugins.setInitMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+        RxAndroidPlugins.setMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+        networkBoundResource = create(() -> null);
     }
 
-    public NetworkBoundResourceTest(boolean useRealExecutors) {
-        this.useRealExecutors = useRealExecutors;
-        if (useRealExecutors) {
-            countingAppExecutors = new CountingAppExecutors();
-        }
+    @After
+    public void resetSchedulers() {
+        RxJavaPlugins.reset();
+        RxAndroidPlugins.reset();
     }
 
-    @Before
-    public void init() {
-        AppExecutors appExecutors = useRealExecutors
-                ? countingAppExecutors.getAppExecutors()
-                : new InstantAppExecutors();
-        networkBoundResource = new NetworkBoundResource<Foo, Foo>(appExecutors) {
+    private NetworkBoundResource<Foo, Foo> create(MemoryCache memory) {
+        return create(memory, null);
+    }
+
+    private NetworkBoundResource<Foo, Foo> create(MemoryCache memory,
+            @Nullable ResourceMetrics metrics) {
+        return new NetworkBoundResource<Foo, Foo>(null, null, metrics, "foo/1", null) {
             @Override
             protected void saveCallResult(@NonNull Foo item) {
                 saveCallResult.apply(item);
@@ -104,6 +112,12 @@ public class NetworkBoundResourceTest {
                 return shouldFetch.apply(data) && fetchedOnce.compareAndSet(false, true);
             }
 
+            @Nullable
+            @Override
+            protected Foo loadFromMemory() {
+                return memory.load();
+            }
+
             @NonNull
             @Override
             protected LiveData<Foo> loadFromDb() {
@@ -112,23 +126,12 @@ public class NetworkBoundResourceTest {
 
             @NonNull
             @Override
-            protected LiveData<ApiResponse<Foo>> createCall() {
+            protected Flowable<Foo> fetchFromNet() {
                 return createCall.apply(null);
             }
         };
     }
 
-    private void drain() {
-        if (!useRealExecutors) {
-            return;
-        }
-        try {
-            countingAppExecutors.drainTasks(1, TimeUnit.SECONDS);
-        } catch (Throwable t) {
-            throw new AssertionError(t);
-        }
-    }
-
     @Test
     public void basicFromNetwork() {
         AtomicReference<Foo> saved = new AtomicReference<>();
@@ -140,15 +143,13 @@ public class NetworkBoundResourceTest {
             return null;
         };
         final Foo networkResult = new Foo(1);
-        createCall = (aVoid) -> ApiUtil.createCall(Response.success(networkResult));
+        createCall = (aVoid) -> Flowable.just(networkResult);
 
         Observer<Resource<Foo>> observer = Mockito.mock(Observer.class);
         networkBoundResource.asLiveData().observeForever(observer);
-        drain();
         verify(observer).onChanged(Resource.loading(null));
         reset(observer);
         dbData.setValue(null);
-        drain();
         assertThat(saved.get(), is(networkResult));
         verify(observer).onChanged(Resource.success(fetchedDbValue));
     }
@@ -161,16 +162,13 @@ public class NetworkBoundResourceTest {
             saved.set(true);
             return null;
         };
-        ResponseBody body = ResponseBody.create(MediaType.parse("text/html"), "error");
-        createCall = (aVoid) -> ApiUtil.createCall(Response.error(500, body));
+        createCall = (aVoid) -> Flowable.error(new Exception("error"));
 
         Observer<Resource<Foo>> observer = Mockito.mock(Observer.class);
         networkBoundResource.asLiveData().observeForever(observer);
-        drain();
         verify(observer).onChanged(Resource.loading(null));
         reset(observer);
         dbData.setValue(null);
-        drain();
         assertThat(saved.get(), is(false));
         verify(observer).onChanged(Resource.error("error", null));
         verifyNoMoreInteractions(observer);
@@ -187,17 +185,14 @@ public class NetworkBoundResourceTest {
 
         Observer<Resource<Foo>> observer = Mockito.mock(Observer.class);
         networkBoundResource.asLiveData().observeForever(observer);
-        drain();
         verify(observer).onChanged(Resource.loading(null));
         reset(observer);
         Foo dbFoo = new Foo(1);
         dbData.setValue(dbFoo);
-        drain();
         verify(observer).onChanged(Resource.success(dbFoo));
         assertThat(saved.get(), is(false));
         Foo dbFoo2 = new Foo(2);
         dbData.setValue(dbFoo2);
-        drain();
         verify(observer).onChanged(Resource.success(dbFoo2));
         verifyNoMoreInteractions(observer);
     }
@@ -211,28 +206,23 @@ public class NetworkBoundResourceTest {
             saved.set(true);
             return null;
         };
-        ResponseBody body = ResponseBody.create(MediaType.parse("text/html"), "error");
-        MutableLiveData<ApiResponse<Foo>> apiResponseLiveData = new MutableLiveData();
-        createCall = (aVoid) -> apiResponseLiveData;
+        PublishProcessor<Foo> apiResponse = PublishProcessor.create();
+        createCall = (aVoid) -> apiResponse;
 
         Observer<Resource<Foo>> observer = Mockito.mock(Observer.class);
         networkBoundResource.asLiveData().observeForever(observer);
-        drain();
         verify(observer).onChanged(Resource.loading(null));
         reset(observer);
 
         dbData.setValue(dbValue);
-        drain();
         verify(observer).onChanged(Resource.loading(dbValue));
 
-        apiResponseLiveData.setValue(new ApiResponse<>(Response.error(400, body)));
-        drain();
+        apiResponse.onError(new Exception("error"));
         assertThat(saved.get(), is(false));
         verify(observer).onChanged(Resource.error("error", dbValue));
 
         Foo dbValue2 = new Foo(2);
         dbData.setValue(dbValue2);
-        drain();
         verify(observer).onChanged(Resource.error("error", dbValue2));
         verifyNoMoreInteractions(observer);
     }
@@ -248,26 +238,320 @@ public class NetworkBoundResourceTest {
             dbData.setValue(dbValue2);
             return null;
         };
-        MutableLiveData<ApiResponse<Foo>> apiResponseLiveData = new MutableLiveData();
-        createCall = (aVoid) -> apiResponseLiveData;
+        PublishProcessor<Foo> apiResponse = PublishProcessor.create();
+        createCall = (aVoid) -> apiResponse;
 
         Observer<Resource<Foo>> observer = Mockito.mock(Observer.class);
         networkBoundResource.asLiveData().observeForever(observer);
-        drain();
         verify(observer).onChanged(Resource.loading(null));
         reset(observer);
 
         dbData.setValue(dbValue);
-        drain();
         final Foo networkResult = new Foo(1);
         verify(observer).onChanged(Resource.loading(dbValue));
-        apiResponseLiveData.setValue(new ApiResponse<>(Response.success(networkResult)));
-        drain();
+        apiResponse.onNext(networkResult);
+        // the database dispatches the saved data while the request is still open
+        verify(observer).onChanged(Resource.loading(dbValue2));
+        apiResponse.onComplete();
         assertThat(saved.get(), is(networkResult));
         verify(observer).onChanged(Resource.success(dbValue2));
         verifyNoMoreInteractions(observer);
     }
 
+    @Test
+    public void sameDataIsNotDispatchedAgain() {
+        shouldFetch = foo -> false;
+        Observer<Resource<Foo>> observer = Mockito.mock(Observer.class);
+        networkBoundResource.asLiveData().observeForever(observer);
+        reset(observer);
+
+        Foo foo = new Foo(1);
+        dbData.setValue(foo);
+        dbData.setValue(foo);
+        verify(observer).onChanged(Resource.success(foo));
+        dbData.setValue(new Foo(2));
+        verify(observer).onChanged(Resource.success(new Foo(2)));
+        verifyNoMoreInteractions(observer);
+    }
+
+    @Test
+    public void reloadOfUnchangedTablesKeepsTheVersion() {
+        AtomicLong generation = new AtomicLong(2);
+        networkBoundResource = createWithGeneration(generation, () -> {
+        });
+        networkBoundResource.asLiveData().observeForever(Mockito.mock(Observer.class));
+
+        // reloaded as a new instance after the fetch, but nothing was written
+        Resource<Foo> reloaded = networkBoundResource.asLiveData().getValue();
+        assertThat(reloaded.status, is(Status.SUCCESS));
+        assertThat(reloaded.version, is(2L));
+    }
+
+    @Test
+    public void reloadOfChangedTablesGetsANewVersion() {
+        AtomicLong generation = new AtomicLong(2);
+        networkBoundResource = createWithGeneration(generation, () -> generation.set(4));
+        networkBoundResource.asLiveData().observeForever(Mockito.mock(Observer.class));
+
+        Resource<Foo> reloaded = networkBoundResource.asLiveData().getValue();
+        assertThat(reloaded.status, is(Status.SUCCESS));
+        assertThat(reloaded.version, is(3L));
+    }
+
+    @Test
+    public void reloadWhileTablesAreWrittenGetsANewVersion() {
+        AtomicLong generation = new AtomicLong(2);
+        networkBoundResource = createWithGeneration(generation,
+                () -> generation.set(TableGenerations.UNKNOWN));
+        networkBoundResource.asLiveData().observeForever(Mockito.mock(Observer.class));
+
+        assertThat(networkBoundResource.asLiveData().getValue().version, is(3L));
+    }
+
+    /**
+     * Creates a resource that fetches once and whose database returns a new {@code Foo(1)}
+     * instance every time it is loaded, like Room does.
+     */
+    private NetworkBoundResource<Foo, Foo> createWithGeneration(AtomicLong generation,
+            Runnable save) {
+        return new NetworkBoundResource<Foo, Foo>() {
+            private boolean fetched;
+
+            @Override
+            protected void saveCallResult(@NonNull Foo item) {
+                save.run();
+            }
+
+            @Override
+            protected boolean shouldFetch(@Nullable Foo data) {
+                boolean fetch = !fetched;
+                fetched = true;
+                return fetch;
+            }
+
+            @Override
+            protected long dbGeneration() {
+                return generation.get();
+            }
+
+            @NonNull
+            @Override
+            protected LiveData<Foo> loadFromDb() {
+                MutableLiveData<Foo> data = new MutableLiveData<>();
+                data.setValue(new Foo(1));
+                return data;
+            }
+
+            @NonNull
+            @Override
+            protected Flowable<Foo> fetchFromNet() {
+                return Flowable.just(new Foo(1));
+            }
+        };
+    }
+
+    @Test
+    public void memoryDataIsDispatchedSynchronously() {
+        Foo inMemory = new Foo(1);
+        shouldFetch = foo -> false;
+        dbData = new MutableLiveData<>();
+        networkBoundResource = create(() -> inMemory);
+
+        // the database has not dispatched anything yet
+        Resource<Foo> first = networkBoundResource.asLiveData().getValue();
+        assertThat(first.status, is(Status.LOADING));
+        assertThat(first.data, sameInstance(inMemory));
+
+        Foo dbFoo = new Foo(2);
+        dbData.setValue(dbFoo);
+        assertThat(networkBoundResource.asLiveData().getValue(), is(Resource.success(dbFoo)));
+    }
+
+    @Test
+    public void savedDataIsServedFromMemory() {
+        // the repositories put what they save into the cache they load from
+        ObjectCache<String, Foo> cache = new ObjectCache<>(10);
+        shouldFetch = Objects::isNull;
+        saveCallResult = foo -> {
+            cache.put("foo", foo);
+            return null;
+        };
+        Foo networkResult = new Foo(1);
+        createCall = (aVoid) -> Flowable.just(networkResult);
+        dbData = new MutableLiveData<>();
+        networkBoundResource = create(() -> cache.get("foo"));
+        assertThat(networkBoundResource.asLiveData().getValue(), is(Resource.loading(null)));
+        dbData.setValue(null);
+
+        // the next load is served from memory before its query returns
+        dbData = new MutableLiveData<>();
+        NetworkBoundResource<Foo, Foo> next = create(() -> cache.get("foo"));
+        assertThat(next.asLiveData().getValue().data, sameInstance(networkResult));
+    }
+
+    @Test
+    public void dbHitIsReported() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        shouldFetch = Objects::isNull;
+        dbData = new MutableLiveData<>();
+        networkBoundResource = create(() -> null, metrics);
+        networkBoundResource.asLiveData().observeForever(Mockito.mock(Observer.class));
+        dbData.setValue(new Foo(1));
+
+        assertThat(metrics.events, is(Collections.singletonList("foo/DB_HIT")));
+        assertThat(metrics.stages, is(Arrays.asList("foo/DB_READ", "foo/SHOULD_FETCH",
+                "foo/FRESH_DATA", "foo/FIRST_DATA")));
+    }
+
+    @Test
+    public void networkFetchIsReported() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        shouldFetch = Objects::isNull;
+        Foo fetchedDbValue = new Foo(1);
+        dbData = new MutableLiveData<>();
+        saveCallResult = foo -> {
+            dbData.setValue(fetchedDbValue);
+            return null;
+        };
+        createCall = (aVoid) -> Flowable.just(new Foo(1));
+        networkBoundResource = create(() -> null, metrics);
+        networkBoundResource.asLiveData().observeForever(Mockito.mock(Observer.class));
+        dbData.setValue(null);
+
+        assertThat(metrics.events, is(Collections.singletonList("foo/NETWORK_FETCH")));
+        assertThat(metrics.stages, is(Arrays.asList("foo/DB_READ", "foo/SHOULD_FETCH",
+                "foo/NETWORK", "foo/PROCESS_RESPONSE", "foo/FIRST_DATA",
+                "foo/SAVE_CALL_RESULT", "foo/RELOAD", "foo/FRESH_DATA")));
+    }
+
+    @Test
+    public void fetchFailureIsReported() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        shouldFetch = Objects::isNull;
+        createCall = (aVoid) -> Flowable.error(new Exception("error"));
+        dbData = new MutableLiveData<>();
+        networkBoundResource = create(() -> null, metrics);
+        networkBoundResource.asLiveData().observeForever(Mockito.mock(Observer.class));
+        dbData.setValue(null);
+
+        assertThat(metrics.events, is(Arrays.asList("foo/NETWORK_FETCH", "foo/FETCH_FAILED")));
+        // no data was dispatched and none of it is known to be fresh
+        assertThat(metrics.stages, is(Arrays.asList("foo/DB_READ", "foo/SHOULD_FETCH")));
+    }
+
+    @Test
+    public void memoryHitIsReported() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        shouldFetch = foo -> false;
+        dbData = new MutableLiveData<>();
+        networkBoundResource = create(() -> new Foo(1), metrics);
+
+        assertThat(metrics.events, is(Collections.singletonList("foo/MEMORY_HIT")));
+        // the data from memory is the first data of the resource
+        assertThat(metrics.stages, is(Collections.singletonList("foo/FIRST_DATA")));
+    }
+
+    @Test
+    public void resourceWithoutKeyIsNotReported() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        shouldFetch = foo -> false;
+        dbData = new MutableLiveData<>();
+        networkBoundResource = new NetworkBoundResource<Foo, Foo>(null, null, metrics, null, null) {
+            @Override
+            protected void saveCallResult(@NonNull Foo item) {
+            }
+
+            @Override
+            protected boolean shouldFetch(@Nullable Foo data) {
+                return false;
+            }
+
+            @NonNull
+            @Override
+            protected LiveData<Foo> loadFromDb() {
+                return dbData;
+            }
+
+            @NonNull
+            @Override
+            protected Flowable<Foo> fetchFromNet() {
+                return Flowable.empty();
+            }
+        };
+        dbData.setValue(new Foo(1));
+
+        assertThat(metrics.events.isEmpty(), is(true));
+        assertThat(metrics.stages.isEmpty(), is(true));
+    }
+
+    @Test
+    public void observingMarksTheResourceUsed() {
+        FreshnessPolicy freshnessPolicy = Mockito.mock(FreshnessPolicy.class);
+        shouldFetch = foo -> false;
+        dbData = new MutableLiveData<>();
+        networkBoundResource = new NetworkBoundResource<Foo, Foo>(null, freshnessPolicy, null,
+                "foo/1", FreshnessPolicy.Ttl.of(1, 1, TimeUnit.MINUTES)) {
+            @Override
+            protected void saveCallResult(@NonNull Foo item) {
+            }
+
+            @Override
+            protected boolean shouldFetch(@Nullable Foo data) {
+                return false;
+            }
+
+            @NonNull
+            @Override
+            protected LiveData<Foo> loadFromDb() {
+                return dbData;
+            }
+
+            @NonNull
+            @Override
+            protected Flowable<Foo> fetchFromNet() {
+                return Flowable.empty();
+            }
+        };
+        // a fetch in the background is not a use
+        networkBoundResource.fetch().test().assertComplete();
+        verify(freshnessPolicy, never()).markUsed(anyString());
+        verify(freshnessPolicy).markFetched("foo/1");
+
+        Observer<Resource<Foo>> observer = Mockito.mock(Observer.class);
+        networkBoundResource.asLiveData().observeForever(observer);
+        networkBoundResource.asLiveData().removeObserver(observer);
+        networkBoundResource.asLiveData().observeForever(observer);
+        verify(freshnessPolicy).markUsed("foo/1");
+    }
+
+    /**
+     * Records the stages and events as "resource/NAME", in the order they were reported.
+     */
+    static class RecordingMetrics implements ResourceMetrics {
+        final List<String> stages = new ArrayList<>();
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void recordStage(@NonNull String resource, @NonNull Stage stage, long nanos) {
+            assertThat(nanos >= 0, is(true));
+            stages.add(resource + "/" + stage);
+        }
+
+        @Override
+        public void recordEvent(@NonNull String resource, @NonNull Event event) {
+            events.add(resource + "/" + event);
+        }
+
+        @Override
+        public void export() {
+        }
+    }
+
+    interface MemoryCache {
+        @Nullable
+        Foo load();
+    }
+
     static class Foo {
 
         int value;
@@ -275,5 +559,15 @@ public class NetworkBoundResourceTest {
         Foo(int value) {
             this.value = value;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Foo && ((Foo) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.ui.common;
+
+import android.support.v7.util.ListUpdateCallback;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@RunWith(JUnit4.class)
+public class DiffEngineTest {
+    private ListUpdateCallback target;
+    private TestScheduler diffScheduler;
+    private AtomicInteger comparisons;
+    private DiffEngine<String> diffEngine;
+
+    @Before
+    public void init() {
+        target = mock(ListUpdateCallback.class);
+        diffScheduler = new TestScheduler();
+        comparisons = new AtomicInteger();
+        diffEngine = new DiffEngine<>(target, new DiffEngine.ItemCallback<String>() {
+            @Override
+            public boolean areItemsTheSame(String oldItem, String newItem) {
+                return oldItem.equals(newItem);
+            }
+
+            @Override
+            public boolean areContentsTheSame(String oldItem, String newItem) {
+                return oldItem.equals(newItem);
+            }
+        }, diffScheduler, Schedulers.trampoline());
+    }
+
+    @Test
+    public void firstListIsInsertedRightAway() {
+        diffEngine.submit(list("a", "b"));
+        verify(target).onInserted(0, 2);
+        assertThat(diffEngine.getItems(), is(list("a", "b")));
+    }
+
+    @Test
+    public void append() {
+        diffEngine.submit(list("a", "b"));
+        diffEngine.submit(list("a", "b", "c", "d"));
+        diffScheduler.triggerActions();
+        verify(target).onInserted(0, 2);
+        verify(target).onInserted(2, 2);
+        verifyNoMoreInteractions(target);
+        assertThat(diffEngine.getItems(), is(list("a", "b", "c", "d")));
+    }
+
+    @Test
+    public void removal() {
+        diffEngine.submit(list("a", "b"));
+        diffEngine.submit(list("b"));
+        diffScheduler.triggerActions();
+        verify(target).onInserted(0, 2);
+        verify(target).onRemoved(0, 1);
+        verifyNoMoreInteractions(target);
+    }
+
+    @Test
+    public void supersededListIsNeverComputed() {
+        diffEngine.submit(list("a"));
+        diffEngine.submit(list("b"));
+        diffEngine.submit(list("a", "c"));
+        diffScheduler.triggerActions();
+        verify(target).onInserted(0, 1);
+        verify(target).onInserted(1, 1);
+        verifyNoMoreInteractions(target);
+        assertThat(diffEngine.getItems(), is(list("a", "c")));
+    }
+
+    @Test
+    public void runningComputationIsCancelled() {
+        DiffEngine<String>[] engine = new DiffEngine[1];
+        engine[0] = new DiffEngine<>(target, new DiffEngine.ItemCallback<String>() {
+            @Override
+            public boolean areItemsTheSame(String oldItem, String newItem) {
+                comparisons.incrementAndGet();
+                // a newer list arrives while this one is being compared
+                engine[0].submit(null);
+                return true;
+            }
+
+            @Override
+            public boolean areContentsTheSame(String oldItem, String newItem) {
+                return true;
+            }
+        }, diffScheduler, Schedulers.trampoline());
+        engine[0].submit(list("a", "b", "c"));
+        // equal but not identical items so that each of them is compared
+        engine[0].submit(list(new String("a"), new String("b"), new String("c"), "d"));
+        diffScheduler.triggerActions();
+        assertThat(comparisons.get(), is(1));
+        verify(target).onInserted(0, 3);
+        verify(target).onRemoved(0, 3);
+        verifyNoMoreInteractions(target);
+        assertThat(engine[0].getItems(), nullValue());
+    }
+
+    private static List<String> list(String... items) {
+        return Arrays.asList(items);
+    }
+}
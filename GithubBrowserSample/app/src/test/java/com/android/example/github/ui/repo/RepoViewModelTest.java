@@ -17,12 +17,16 @@
 package com.android.example.github.ui.repo;
 
 import com.android.example.github.repository.RepoRepository;
+import com.android.example.github.util.TestUtil;
 import com.android.example.github.vo.Contributor;
 import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoPage;
 import com.android.example.github.vo.Resource;
 
 import android.arch.core.executor.testing.InstantTaskExecutorRule;
+import android.arch.lifecycle.MutableLiveData;
 import android.arch.lifecycle.Observer;
+import android.arch.paging.PagedList;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -37,13 +41,16 @@ import java.util.List;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 @RunWith(JUnit4.class)
 public class RepoViewModelTest {
@@ -65,13 +72,13 @@ public class RepoViewModelTest {
     public void testNull() {
         assertThat(repoViewModel.getRepo(), notNullValue());
         assertThat(repoViewModel.getContributors(), notNullValue());
-        verify(repository, never()).loadRepo(anyString(), anyString());
+        verify(repository, never()).loadRepoPage(anyString(), anyString());
     }
 
     @Test
     public void dontFetchWithoutObservers() {
         repoViewModel.setId("a", "b");
-        verify(repository, never()).loadRepo(anyString(), anyString());
+        verify(repository, never()).loadRepoPage(anyString(), anyString());
     }
 
     @Test
@@ -81,7 +88,7 @@ public class RepoViewModelTest {
 
         repoViewModel.setId("a", "b");
         repoViewModel.getRepo().observeForever(mock(Observer.class));
-        verify(repository, times(1)).loadRepo(owner.capture(),
+        verify(repository, times(1)).loadRepoPage(owner.capture(),
                 name.capture());
         assertThat(owner.getValue(), is("a"));
         assertThat(name.getValue(), is("b"));
@@ -96,7 +103,7 @@ public class RepoViewModelTest {
         repoViewModel.setId("a", "b");
         repoViewModel.setId("c", "d");
 
-        verify(repository, times(2)).loadRepo(owner.capture(),
+        verify(repository, times(2)).loadRepoPage(owner.capture(),
                 name.capture());
         assertThat(owner.getAllValues(), is(Arrays.asList("a", "c")));
         assertThat(name.getAllValues(), is(Arrays.asList("b", "d")));
@@ -104,12 +111,12 @@ public class RepoViewModelTest {
 
     @Test
     public void contributors() {
-        Observer<Resource<List<Contributor>>> observer = mock(Observer.class);
+        Observer<PagedList<Contributor>> observer = mock(Observer.class);
         repoViewModel.getContributors().observeForever(observer);
         verifyNoMoreInteractions(observer);
         verifyNoMoreInteractions(repository);
         repoViewModel.setId("foo", "bar");
-        verify(repository).loadContributors("foo", "bar");
+        verify(repository).contributors(eq("foo"), eq("bar"), any());
     }
 
     @Test
@@ -134,17 +141,43 @@ public class RepoViewModelTest {
         verifyNoMoreInteractions(repository);
         Observer<Resource<Repo>> observer = mock(Observer.class);
         repoViewModel.getRepo().observeForever(observer);
-        verify(repository).loadRepo("foo", "bar");
+        verify(repository).loadRepoPage("foo", "bar");
         reset(repository);
         repoViewModel.retry();
-        verify(repository).loadRepo("foo", "bar");
+        verify(repository).loadRepoPage("foo", "bar");
+    }
+
+    @Test
+    public void repoIsOnlyDispatchedWhenItChanges() {
+        MutableLiveData<Resource<RepoPage>> page = new MutableLiveData<>();
+        when(repository.loadRepoPage("foo", "bar")).thenReturn(page);
+        Observer<Resource<Repo>> observer = mock(Observer.class);
+        repoViewModel.setId("foo", "bar");
+        repoViewModel.getRepo().observeForever(observer);
+
+        Repo repo = TestUtil.createRepo("foo", "bar", "desc");
+        page.setValue(Resource.success(new RepoPage(repo, null, null)));
+        verify(observer).onChanged(Resource.success(repo));
+        reset(observer);
+
+        // the contributors and the owner arrive later
+        List<Contributor> contributors = Arrays.asList(
+                TestUtil.createContributor(repo, "a", 1));
+        page.setValue(Resource.success(new RepoPage(repo, contributors, null)));
+        page.setValue(Resource.success(
+                new RepoPage(repo, contributors, TestUtil.createUser("foo"))));
+        verifyNoMoreInteractions(observer);
+
+        Repo updated = TestUtil.createRepo("foo", "bar", "new desc");
+        page.setValue(Resource.success(new RepoPage(updated, contributors, null)));
+        verify(observer).onChanged(Resource.success(updated));
     }
 
     @Test
     public void nullRepoId() {
         repoViewModel.setId(null, null);
         Observer<Resource<Repo>> observer1 = mock(Observer.class);
-        Observer<Resource<List<Contributor>>> observer2 = mock(Observer.class);
+        Observer<PagedList<Contributor>> observer2 = mock(Observer.class);
         repoViewModel.getRepo().observeForever(observer1);
         repoViewModel.getContributors().observeForever(observer2);
         verify(observer1).onChanged(null);
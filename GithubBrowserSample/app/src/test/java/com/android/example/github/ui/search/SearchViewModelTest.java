@@ -17,8 +17,10 @@
 package com.android.example.github.ui.search;
 
 
+import com.android.example.github.repository.NetworkBoundResource;
 import com.android.example.github.repository.RepoRepository;
 import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.RepoSearchResult;
 import com.android.example.github.vo.Resource;
 
 import org.junit.Before;
@@ -28,36 +30,60 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import android.arch.core.executor.testing.InstantTaskExecutorRule;
-import android.arch.lifecycle.LiveData;
 import android.arch.lifecycle.MutableLiveData;
 import android.arch.lifecycle.Observer;
+import android.arch.paging.PagedList;
 
-import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.SingleSubject;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(JUnit4.class)
 public class SearchViewModelTest {
+    private static final long DEBOUNCE_MILLIS = 300;
+    private static final int PREFETCH_DISTANCE = 5;
+    private static final int PREFETCH_PAGES = 2;
+
     @Rule
     public InstantTaskExecutorRule instantExecutor = new InstantTaskExecutorRule();
     private SearchViewModel viewModel;
     private RepoRepository repository;
+    private TestScheduler debounceScheduler;
+
     @Before
     public void init() {
         repository = mock(RepoRepository.class);
-        viewModel = new SearchViewModel(repository);
+        when(repository.search(anyString())).thenAnswer(invocation -> searchResource());
+        when(repository.dropSearchResults(anyString(), anyInt(), anyInt()))
+                .thenReturn(Completable.complete());
+        debounceScheduler = new TestScheduler();
+        viewModel = new SearchViewModel(repository, DEBOUNCE_MILLIS, PREFETCH_DISTANCE,
+                PREFETCH_PAGES, debounceScheduler, Schedulers.trampoline());
     }
 
     @Test
     public void empty() {
-        Observer<Resource<List<Repo>>> result = mock(Observer.class);
+        Observer<Resource<RepoSearchResult>> result = mock(Observer.class);
         viewModel.getResults().observeForever(result);
         viewModel.loadNextPage();
         verifyNoMoreInteractions(repository);
@@ -65,41 +91,119 @@ public class SearchViewModelTest {
 
     @Test
     public void basic() {
-        Observer<Resource<List<Repo>>> result = mock(Observer.class);
+        Observer<Resource<RepoSearchResult>> result = mock(Observer.class);
         viewModel.getResults().observeForever(result);
-        viewModel.setQuery("foo");
+        search("foo");
         verify(repository).search("foo");
         verify(repository, never()).searchNextPage("foo");
     }
 
     @Test
-    public void noObserverNoQuery() {
-        when(repository.searchNextPage("foo")).thenReturn(mock(LiveData.class));
+    public void noSearchBeforeDebounce() {
+        when(repository.searchNextPage("foo")).thenReturn(PublishProcessor.create());
         viewModel.setQuery("foo");
         verify(repository, never()).search("foo");
-        // next page is user interaction and even if loading state is not observed, we query
-        // would be better to avoid that if main search query is not observed
+        // the query only becomes current once it is debounced, there is no page to load before
+        viewModel.loadNextPage();
+        verify(repository, never()).searchNextPage("foo");
+        debounceScheduler.advanceTimeBy(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        verify(repository).search("foo");
         viewModel.loadNextPage();
         verify(repository).searchNextPage("foo");
     }
 
+    @Test
+    public void debounce() {
+        viewModel.setQuery("f");
+        debounceScheduler.advanceTimeBy(DEBOUNCE_MILLIS - 1, TimeUnit.MILLISECONDS);
+        viewModel.setQuery("fo");
+        debounceScheduler.advanceTimeBy(DEBOUNCE_MILLIS - 1, TimeUnit.MILLISECONDS);
+        viewModel.setQuery("foo");
+        debounceScheduler.advanceTimeBy(DEBOUNCE_MILLIS - 1, TimeUnit.MILLISECONDS);
+        verify(repository, never()).search(anyString());
+        debounceScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        verify(repository).search("foo");
+        verify(repository, never()).search("f");
+        verify(repository, never()).search("fo");
+    }
+
+    @Test
+    public void submitSkipsDebounce() {
+        viewModel.setQuery("fo");
+        viewModel.setQuery("foo");
+        viewModel.submitQuery("Foo ");
+        verify(repository).search("foo");
+        // the debounced input is the query that was submitted, it does not search again
+        debounceScheduler.advanceTimeBy(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        verify(repository, times(1)).search("foo");
+        verify(repository, never()).search("fo");
+    }
+
+    @Test
+    public void distinctUntilChanged() {
+        search("foo");
+        search(" FOO ");
+        verify(repository, times(1)).search("foo");
+        // typing and deleting a character within the debounce period is not a new query either
+        viewModel.setQuery("foox");
+        search("foo");
+        verify(repository, times(1)).search("foo");
+        search("bar");
+        search("foo");
+        verify(repository, times(2)).search("foo");
+    }
+
+    @Test
+    public void cancelSupersededSearch() {
+        NetworkBoundResource<RepoSearchResult, ?> foo = searchResource();
+        doReturn(foo).when(repository).search("foo");
+        Observer<Resource<RepoSearchResult>> result = mock(Observer.class);
+        viewModel.getResults().observeForever(result);
+        search("foo");
+        MutableLiveData<Resource<RepoSearchResult>> fooData =
+                (MutableLiveData<Resource<RepoSearchResult>>) foo.asLiveData();
+        Resource<RepoSearchResult> loading = Resource.loading(null);
+        fooData.setValue(loading);
+        verify(result).onChanged(loading);
+
+        search("bar");
+        verify(foo).cancel();
+        reset(result);
+        // the superseded search no longer reaches the results
+        fooData.setValue(Resource.success(new RepoSearchResult("foo", 0, null)));
+        verifyNoMoreInteractions(result);
+    }
+
+    @Test
+    public void cancelOnCleared() {
+        NetworkBoundResource<RepoSearchResult, ?> foo = searchResource();
+        doReturn(foo).when(repository).search("foo");
+        search("foo");
+        viewModel.onCleared();
+        verify(foo).cancel();
+        // input that was still being debounced is dropped
+        viewModel.setQuery("bar");
+        debounceScheduler.advanceTimeBy(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        verify(repository, never()).search("bar");
+    }
+
     @Test
     public void swap() {
-        LiveData<Resource<Boolean>> nextPage = new MutableLiveData<>();
+        PublishProcessor<Resource<Boolean>> nextPage = PublishProcessor.create();
         when(repository.searchNextPage("foo")).thenReturn(nextPage);
 
-        Observer<Resource<List<Repo>>> result = mock(Observer.class);
+        Observer<Resource<RepoSearchResult>> result = mock(Observer.class);
         viewModel.getResults().observeForever(result);
         verifyNoMoreInteractions(repository);
-        viewModel.setQuery("foo");
+        search("foo");
         verify(repository).search("foo");
         viewModel.loadNextPage();
 
         viewModel.getLoadMoreStatus().observeForever(mock(Observer.class));
         verify(repository).searchNextPage("foo");
-        assertThat(nextPage.hasActiveObservers(), is(true));
-        viewModel.setQuery("bar");
-        assertThat(nextPage.hasActiveObservers(), is(false));
+        assertThat(nextPage.hasSubscribers(), is(true));
+        search("bar");
+        assertThat(nextPage.hasSubscribers(), is(false));
         verify(repository).search("bar");
         verify(repository, never()).searchNextPage("bar");
     }
@@ -108,12 +212,10 @@ public class SearchViewModelTest {
     public void refresh() {
         viewModel.refresh();
         verifyNoMoreInteractions(repository);
-        viewModel.setQuery("foo");
-        viewModel.refresh();
-        verifyNoMoreInteractions(repository);
-        viewModel.getResults().observeForever(mock(Observer.class));
+        search("foo");
         verify(repository).search("foo");
         reset(repository);
+        when(repository.search(anyString())).thenAnswer(invocation -> searchResource());
         viewModel.refresh();
         verify(repository).search("foo");
     }
@@ -121,12 +223,153 @@ public class SearchViewModelTest {
     @Test
     public void resetSameQuery() {
         viewModel.getResults().observeForever(mock(Observer.class));
-        viewModel.setQuery("foo");
+        search("foo");
         verify(repository).search("foo");
         reset(repository);
-        viewModel.setQuery("FOO");
+        when(repository.search(anyString())).thenAnswer(invocation -> searchResource());
+        search("FOO");
         verifyNoMoreInteractions(repository);
-        viewModel.setQuery("bar");
+        search("bar");
         verify(repository).search("bar");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void prefetchWithinDistance() {
+        PublishProcessor<Resource<Boolean>> nextPage = PublishProcessor.create();
+        when(repository.searchNextPage("foo")).thenReturn(nextPage);
+        showResults("foo", 30, 2);
+        viewModel.onListScrolled(10);
+        verify(repository, never()).searchNextPage("foo");
+        viewModel.onListScrolled(30 - 1 - PREFETCH_DISTANCE);
+        verify(repository).searchNextPage("foo");
+        // the page is still being fetched
+        viewModel.onListScrolled(29);
+        verify(repository, times(1)).searchNextPage("foo");
+    }
+
+    @Test
+    public void noPrefetchOnLastPage() {
+        showResults("foo", 30, null);
+        viewModel.onListScrolled(29);
+        verify(repository, never()).searchNextPage("foo");
+    }
+
+    @Test
+    public void prefetchDepth() {
+        PublishProcessor<Resource<Boolean>> page2 = PublishProcessor.create();
+        PublishProcessor<Resource<Boolean>> page3 = PublishProcessor.create();
+        when(repository.searchNextPage("foo")).thenReturn(page2, page3);
+        showResults("foo", 30, 2);
+        viewModel.onListScrolled(29);
+        verify(repository).searchNextPage("foo");
+        page2.onNext(Resource.success(true));
+        // the second page is chained to the first one
+        verify(repository, times(2)).searchNextPage("foo");
+        page3.onNext(Resource.success(true));
+        verify(repository, times(2)).searchNextPage("foo");
+    }
+
+    @Test
+    public void prefetchStopsAtLastPage() {
+        PublishProcessor<Resource<Boolean>> page2 = PublishProcessor.create();
+        when(repository.searchNextPage("foo")).thenReturn(page2);
+        showResults("foo", 30, 2);
+        viewModel.onListScrolled(29);
+        page2.onNext(Resource.success(false));
+        verify(repository, times(1)).searchNextPage("foo");
+    }
+
+    @Test
+    public void dropPrefetchedPagesOnQueryChange() {
+        when(repository.searchNextPage("foo")).thenReturn(PublishProcessor.create());
+        showResults("foo", 30, 2);
+        viewModel.onListScrolled(29);
+        search("bar");
+        verify(repository).dropSearchResults("foo", 30, 2);
+    }
+
+    @Test
+    public void dropPrefetchedPagesAfterPositionGap() {
+        when(repository.searchNextPage("foo")).thenReturn(PublishProcessor.create());
+        showResults("foo", 30, 2);
+        // a repo of an earlier page was already in the results and was not stored again
+        when(repository.nextSearchResultPosition("foo")).thenReturn(Single.just(31));
+        viewModel.onListScrolled(29);
+        search("bar");
+        verify(repository).dropSearchResults("foo", 31, 2);
+    }
+
+    @Test
+    public void prefetchStartsOnceThePositionIsRead() {
+        SingleSubject<Integer> position = SingleSubject.create();
+        when(repository.searchNextPage("foo")).thenReturn(PublishProcessor.create());
+        showResults("foo", 30, 2);
+        when(repository.nextSearchResultPosition("foo")).thenReturn(position);
+        viewModel.onListScrolled(28);
+        viewModel.onListScrolled(29);
+        verify(repository, times(1)).nextSearchResultPosition("foo");
+        verify(repository, never()).searchNextPage("foo");
+        position.onSuccess(30);
+        verify(repository).searchNextPage("foo");
+    }
+
+    @Test
+    public void keepPrefetchedPagesThatWereSeen() {
+        when(repository.searchNextPage("foo")).thenReturn(PublishProcessor.create());
+        MutableLiveData<PagedList<Repo>> list = showResults("foo", 30, 2);
+        viewModel.onListScrolled(29);
+        list.setValue(pagedList(60));
+        viewModel.onListScrolled(35);
+        search("bar");
+        verify(repository, never()).dropSearchResults(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void keepResultsWithoutPrefetch() {
+        showResults("foo", 30, 2);
+        viewModel.onListScrolled(5);
+        search("bar");
+        viewModel.onCleared();
+        verify(repository, never()).dropSearchResults(anyString(), anyInt(), anyInt());
+    }
+
+    /**
+     * Searches for the query and shows a list of the given size, whose search result continues
+     * with the given page.
+     */
+    private MutableLiveData<PagedList<Repo>> showResults(String query, int size,
+            Integer next) {
+        MutableLiveData<PagedList<Repo>> list = new MutableLiveData<>();
+        list.setValue(pagedList(size));
+        when(repository.searchResults(eq(query), any())).thenReturn(list);
+        when(repository.nextSearchResultPosition(query)).thenReturn(Single.just(size));
+        NetworkBoundResource<RepoSearchResult, ?> resource = searchResource();
+        doReturn(resource).when(repository).search(query);
+        viewModel.getRepos().observeForever(mock(Observer.class));
+        viewModel.getResults().observeForever(mock(Observer.class));
+        search(query);
+        ((MutableLiveData<Resource<RepoSearchResult>>) resource.asLiveData())
+                .setValue(Resource.success(new RepoSearchResult(query, 100, next)));
+        return list;
+    }
+
+    private static PagedList<Repo> pagedList(int size) {
+        PagedList<Repo> list = mock(PagedList.class);
+        when(list.size()).thenReturn(size);
+        return list;
+    }
+
+    /**
+     * Sets the query and lets the debounce period pass.
+     */
+    private void search(String query) {
+        viewModel.setQuery(query);
+        debounceScheduler.advanceTimeBy(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static NetworkBoundResource<RepoSearchResult, ?> searchResource() {
+        NetworkBoundResource<RepoSearchResult, ?> resource = mock(NetworkBoundResource.class);
+        when(resource.asLiveData()).thenReturn(new MutableLiveData<>());
+        return resource;
+    }
+}
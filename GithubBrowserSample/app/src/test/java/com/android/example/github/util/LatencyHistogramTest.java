@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class LatencyHistogramTest {
+    @Test
+    public void empty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.count(), is(0L));
+        assertThat(histogram.percentileMicros(0.5), is(0L));
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (long micros = 1; micros < 100_000; micros++) {
+            int bucket = LatencyHistogram.bucket(micros);
+            assertThat(LatencyHistogram.lowerBound(bucket) <= micros, is(true));
+            assertThat(micros - LatencyHistogram.lowerBound(bucket) <= micros / 4, is(true));
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1_000_000);
+        }
+        histogram.record(100_000_000);
+        assertThat(histogram.count(), is(100L));
+        assertThat(histogram.percentileMicros(0.5), is(896L));
+        assertThat(histogram.percentileMicros(0.99), is(896L));
+        assertThat(histogram.percentileMicros(1), is(98304L));
+    }
+
+    @Test
+    public void hugeDurationsGoToTheLastBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        assertThat(histogram.percentileMicros(1) > 0, is(true));
+    }
+}
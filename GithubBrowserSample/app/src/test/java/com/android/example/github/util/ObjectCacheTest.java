@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class ObjectCacheTest {
+    private ObjectCache<String, String> cache;
+
+    @Before
+    public void init() {
+        cache = new ObjectCache<>(2);
+    }
+
+    @Test
+    public void hitsAndMisses() {
+        assertThat(cache.get("a"), nullValue());
+        cache.put("a", "1");
+        assertThat(cache.get("a"), is("1"));
+        assertThat(cache.hitCount(), is(1L));
+        assertThat(cache.missCount(), is(1L));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+        assertThat(cache.size(), is(2));
+        assertThat(cache.get("b"), nullValue());
+        assertThat(cache.get("a"), is("1"));
+        assertThat(cache.get("c"), is("3"));
+    }
+
+    @Test
+    public void internReturnsCachedInstance() {
+        String cached = new String("1");
+        cache.put("a", cached);
+        assertThat(cache.intern("a", new String("1")), sameInstance(cached));
+    }
+
+    @Test
+    public void internReplacesChangedValue() {
+        cache.put("a", "1");
+        assertThat(cache.intern("a", "2"), is("2"));
+        assertThat(cache.get("a"), is("2"));
+    }
+
+    @Test
+    public void internNullRemoves() {
+        cache.put("a", "1");
+        assertThat(cache.intern("a", null), nullValue());
+        assertThat(cache.size(), is(0));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.util;
+
+import com.android.example.github.api.RepoSearchResponse;
+import com.android.example.github.vo.Repo;
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Okio;
+import retrofit2.Converter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class RepoSearchResponseConverterFactoryTest {
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private RepoSearchResponseConverterFactory factory;
+
+    private Gson gson;
+
+    @Before
+    public void init() {
+        gson = new Gson();
+        factory = new RepoSearchResponseConverterFactory(gson);
+    }
+
+    @Test
+    public void otherTypes() {
+        assertThat(factory.responseBodyConverter(Repo.class, new Annotation[0], null),
+                nullValue());
+    }
+
+    @Test
+    public void sameResultAsGson() throws IOException {
+        String json = readResource("search.json");
+        RepoSearchResponse streamed = convert(json);
+        RepoSearchResponse parsed = gson.fromJson(json, RepoSearchResponse.class);
+
+        assertThat(streamed.getTotal(), is(41));
+        assertThat(streamed.getTotal(), is(parsed.getTotal()));
+        List<Repo> items = streamed.getItems();
+        assertThat(items.size(), is(30));
+        assertThat(items.size(), is(parsed.getItems().size()));
+        int[] ids = streamed.getRepoIdArray();
+        assertThat(ids.length, is(30));
+        for (int i = 0; i < items.size(); i++) {
+            Repo repo = items.get(i);
+            Repo expected = parsed.getItems().get(i);
+            assertThat(ids[i], is(expected.id));
+            assertThat(repo.id, is(expected.id));
+            assertThat(repo.fullName, is(expected.fullName));
+            assertThat(repo.stars, is(expected.stars));
+            assertThat(repo.owner, is(expected.owner));
+        }
+        assertThat(streamed.getRepoIds(), is(parsed.getRepoIds()));
+    }
+
+    @Test
+    public void noItems() throws IOException {
+        RepoSearchResponse response = convert("{\"total_count\": 0, \"items\": []}");
+        assertThat(response.getTotal(), is(0));
+        assertThat(response.getItems().size(), is(0));
+        assertThat(response.getRepoIdArray().length, is(0));
+    }
+
+    @Test
+    public void nullItems() throws IOException {
+        RepoSearchResponse response = convert("{\"items\": null, \"total_count\": 3}");
+        assertThat(response.getTotal(), is(3));
+        assertThat(response.getItems().size(), is(0));
+    }
+
+    private RepoSearchResponse convert(String json) throws IOException {
+        //noinspection unchecked
+        Converter<ResponseBody, RepoSearchResponse> converter =
+                (Converter<ResponseBody, RepoSearchResponse>) factory.responseBodyConverter(
+                        RepoSearchResponse.class, new Annotation[0], null);
+        return converter.convert(ResponseBody.create(JSON, json));
+    }
+
+    private String readResource(String fileName) throws IOException {
+        InputStream inputStream = getClass().getClassLoader()
+                .getResourceAsStream("api-response/" + fileName);
+        return Okio.buffer(Okio.source(inputStream)).readUtf8();
+    }
+}
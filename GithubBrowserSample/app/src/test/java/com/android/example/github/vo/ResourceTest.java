@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.vo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(JUnit4.class)
+public class ResourceTest {
+    @Test
+    public void sameVersion() {
+        Resource<String> first = Resource.success("foo").withVersion(3);
+        assertThat(first.isSameVersion(Resource.success("bar").withVersion(3)), is(true));
+        assertThat(first.isSameVersion(Resource.success("foo").withVersion(4)), is(false));
+        assertThat(first.isSameVersion(Resource.loading("foo").withVersion(3)), is(false));
+        assertThat(first.isSameVersion(Resource.error("idk", "foo").withVersion(3)), is(false));
+        assertThat(first.isSameVersion(null), is(false));
+    }
+
+    @Test
+    public void stampedAfter() {
+        Resource<Object> first = Resource.loading((Object) Arrays.asList(1, 2))
+                .stampedAfter(null, false);
+        assertThat(first.version, is(1L));
+        // the same instance and data the source knows to be the same keep the version
+        assertThat(Resource.success(first.data).stampedAfter(first, false).version, is(1L));
+        assertThat(Resource.success((Object) Arrays.asList(1, 2)).stampedAfter(first, true).version,
+                is(1L));
+        assertThat(Resource.success((Object) Arrays.asList(1, 3)).stampedAfter(first, false)
+                .version, is(2L));
+        assertThat(Resource.success(null).stampedAfter(first, false).version, is(2L));
+
+        Resource<Object> empty = Resource.loading(null).stampedAfter(null, false);
+        assertThat(Resource.success(null).stampedAfter(empty, false).version, is(1L));
+    }
+
+    @Test
+    public void equalDataIsNotCompared() {
+        Resource<Object> first = Resource.loading((Object) Arrays.asList(1, 2))
+                .stampedAfter(null, false);
+        // equal but loaded again, only the source can tell it did not change
+        assertThat(Resource.success((Object) Arrays.asList(1, 2)).stampedAfter(first, false)
+                .version, is(2L));
+    }
+
+    @Test
+    public void versionIsNotPartOfEquality() {
+        Resource<Object> versioned = Resource.success((Object) Arrays.asList(1, 2)).withVersion(7);
+        assertThat(versioned.equals(Resource.success(Arrays.asList(1, 2))), is(true));
+        assertThat(versioned.withVersion(7), sameInstance(versioned));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.benchmark;
+
+import com.android.example.github.api.LinkHeader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares reading the next and last page numbers of a search page by scanning its {@code Link}
+ * header in place with the regular expressions {@code ApiResponse} used before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LinkHeaderBenchmark {
+    private static final Pattern LINK_PATTERN = Pattern
+            .compile("<([^>]*)>[\\s]*;[\\s]*rel=\"([a-zA-Z0-9]+)\"");
+    private static final Pattern PAGE_PATTERN = Pattern.compile("\\bpage=(\\d+)");
+
+    private String header;
+
+    @Setup
+    public void setup() {
+        header = SyntheticPayloads.searchLinkHeader("android%20architecture", 7, 34);
+    }
+
+    @Benchmark
+    public long regexMapAndParseInt() {
+        Map<String, String> links = new HashMap<>();
+        Matcher matcher = LINK_PATTERN.matcher(header);
+        while (matcher.find()) {
+            links.put(matcher.group(2), matcher.group(1));
+        }
+        return (long) regexPage(links.get(LinkHeader.NEXT)) << 32
+                | regexPage(links.get(LinkHeader.LAST));
+    }
+
+    @Benchmark
+    public long scanInPlace() {
+        return (long) LinkHeader.page(header, LinkHeader.NEXT) << 32
+                | LinkHeader.page(header, LinkHeader.LAST);
+    }
+
+    private static int regexPage(String url) {
+        Matcher matcher = PAGE_PATTERN.matcher(url);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : LinkHeader.NO_PAGE;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.benchmark;
+
+import com.android.example.github.api.RepoSearchResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures extracting the ids of a page of search results, which happens on every saved page.
+ * The ids cached by the response are cleared before each call so that the extraction is measured
+ * rather than the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RepoIdsBenchmark {
+    @Param({"30", "100"})
+    public int items;
+
+    private RepoSearchResponse response;
+
+    @Setup
+    public void setup() {
+        response = new RepoSearchResponse();
+        response.setItems(SyntheticPayloads.repos(items));
+    }
+
+    @Benchmark
+    public List<Integer> boxedIds() {
+        response.setRepoIds(null);
+        return response.getRepoIds();
+    }
+
+    @Benchmark
+    public int[] primitiveIds() {
+        response.setRepoIds(null);
+        return response.getRepoIdArray();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.benchmark;
+
+import com.android.example.github.db.TableGenerations;
+import com.android.example.github.vo.Repo;
+import com.android.example.github.vo.Resource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the duplicate check {@code NetworkBoundResource} runs on the main thread when a list as
+ * long as a search scrolled through several pages is reloaded from the database after a fetch
+ * that changed nothing: comparing the reloaded data element by element with
+ * {@link Resource#equals(Object)}, as it used to, against comparing the {@link TableGenerations}
+ * the data was read at and stamping it with {@link Resource#stampedAfter(Resource, boolean)}.
+ * <p>
+ * The same is measured for a reload whose last item changed, which equals only finds out at the
+ * end of the list and which the generations tell after the write that changed it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResourceEqualsBenchmark {
+    @Param({"100", "1000"})
+    public int items;
+
+    private Resource<List<Repo>> current;
+
+    // what the database dispatches when the list is loaded again: equal, but new instances
+    private Resource<List<Repo>> reloaded;
+
+    private Resource<List<Repo>> changedAtEnd;
+
+    // current, as the last value dispatched by a resource, and the generation it was read at
+    private Resource<List<Repo>> dispatched;
+
+    private long dispatchedGeneration;
+
+    private TableGenerations unchanged;
+
+    // after a write that changed the repo table
+    private TableGenerations written;
+
+    @Setup
+    public void setup() {
+        current = Resource.success(SyntheticPayloads.repos(items));
+        reloaded = Resource.success(SyntheticPayloads.repos(items));
+        List<Repo> changed = SyntheticPayloads.repos(items);
+        Repo last = changed.get(items - 1);
+        changed.set(items - 1, new Repo(last.id, last.name, last.fullName, last.description,
+                last.owner, last.stars + 1));
+        changedAtEnd = Resource.success(changed);
+
+        unchanged = new TableGenerations();
+        written = new TableGenerations();
+        dispatchedGeneration = unchanged.get(TableGenerations.REPO);
+        dispatched = current.stampedAfter(null, false);
+        written.changing(TableGenerations.REPO);
+        written.commit();
+    }
+
+    @Benchmark
+    public boolean reloadedEquals() {
+        return current.equals(reloaded);
+    }
+
+    @Benchmark
+    public boolean reloadedGeneration() {
+        boolean sameData = unchanged.get(TableGenerations.REPO) == dispatchedGeneration;
+        return reloaded.stampedAfter(dispatched, sameData).isSameVersion(dispatched);
+    }
+
+    @Benchmark
+    public boolean lastItemChangedEquals() {
+        return current.equals(changedAtEnd);
+    }
+
+    @Benchmark
+    public boolean lastItemChangedGeneration() {
+        boolean sameData = written.get(TableGenerations.REPO) == dispatchedGeneration;
+        return changedAtEnd.stampedAfter(dispatched, sameData).isSameVersion(dispatched);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.benchmark;
+
+import com.android.example.github.api.RepoSearchResponse;
+import com.android.example.github.util.RepoSearchResponseConverterFactory;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Compares the Gson converter followed by {@link RepoSearchResponse#getRepoIds()} with the single
+ * pass {@link RepoSearchResponseConverterFactory}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchResponseParsingBenchmark {
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    // GitHub returns 30 items per page by default and at most 100
+    @Param({"30", "100"})
+    public int items;
+
+    private byte[] payload;
+
+    private Converter<ResponseBody, RepoSearchResponse> gsonConverter;
+
+    private Converter<ResponseBody, RepoSearchResponse> streamingConverter;
+
+    @Setup
+    public void setup() {
+        payload = SyntheticPayloads.searchResponse(items).getBytes(StandardCharsets.UTF_8);
+        Gson gson = new Gson();
+        //noinspection unchecked
+        gsonConverter = (Converter<ResponseBody, RepoSearchResponse>) GsonConverterFactory
+                .create(gson)
+                .responseBodyConverter(RepoSearchResponse.class, NO_ANNOTATIONS, null);
+        //noinspection unchecked
+        streamingConverter = (Converter<ResponseBody, RepoSearchResponse>)
+                new RepoSearchResponseConverterFactory(gson)
+                        .responseBodyConverter(RepoSearchResponse.class, NO_ANNOTATIONS, null);
+    }
+
+    @Benchmark
+    public List<Integer> gsonTreeThenBoxedIds() throws IOException {
+        RepoSearchResponse response = gsonConverter.convert(ResponseBody.create(JSON, payload));
+        return response.getRepoIds();
+    }
+
+    @Benchmark
+    public int[] streamingWithPrimitiveIds() throws IOException {
+        RepoSearchResponse response = streamingConverter
+                .convert(ResponseBody.create(JSON, payload));
+        return response.getRepoIdArray();
+    }
+}
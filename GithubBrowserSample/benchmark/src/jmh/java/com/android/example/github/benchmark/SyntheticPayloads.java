@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.example.github.benchmark;
+
+import com.android.example.github.vo.Repo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds API payloads shaped and sized like real GitHub responses.
+ */
+final class SyntheticPayloads {
+    private SyntheticPayloads() {
+    }
+
+    /**
+     * A search response with {@code count} items, each carrying the full set of fields GitHub
+     * sends (most of which the app ignores), so parsing cost is comparable to production.
+     */
+    static String searchResponse(int count) {
+        StringBuilder sb = new StringBuilder(count * 3000);
+        sb.append("{\"total_count\":").append(count * 34)
+                .append(",\"incomplete_results\":false,\"items\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            appendRepo(sb, 1000000 + i, "owner" + (i % 7), "repo" + i);
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    /**
+     * The {@code Link} header GitHub sends with a page in the middle of a search.
+     */
+    static String searchLinkHeader(String query, int page, int lastPage) {
+        String url = "https://api.github.com/search/repositories?q=" + query + "&page=";
+        return "<" + url + (page + 1) + ">; rel=\"next\", "
+                + "<" + url + lastPage + ">; rel=\"last\", "
+                + "<" + url + 1 + ">; rel=\"first\", "
+                + "<" + url + (page - 1) + ">; rel=\"prev\"";
+    }
+
+    /**
+     * {@code count} repos, built from scratch on every call so that two lists are equal without
+     * sharing any instance.
+     */
+    static List<Repo> repos(int count) {
+        List<Repo> repos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = 1000000 + i;
+            String owner = "owner" + (i % 7);
+            String name = "repo" + i;
+            repos.add(new Repo(id, name, owner + "/" + name,
+                    "A synthetic repository used to measure " + name,
+                    new Repo.Owner(owner, "https://github.com/" + owner), id % 997));
+        }
+        return repos;
+    }
+
+    private static void appendRepo(StringBuilder sb, int id, String owner, String name) {
+        String fullName = owner + "/" + name;
+        String api = "https://api.github.com/repos/" + fullName;
+        sb.append("{\"id\":").append(id)
+                .append(",\"name\":\"").append(name)
+                .append("\",\"full_name\":\"").append(fullName)
+                .append("\",\"owner\":{\"login\":\"").append(owner)
+                .append("\",\"id\":").append(id / 3)
+                .append(",\"avatar_url\":\"https://avatars3.githubusercontent.com/u/").append(id / 3)
+                .append("?v=3\",\"gravatar_id\":\"\",\"url\":\"https://api.github.com/users/")
+                .append(owner)
+                .append("\",\"html_url\":\"https://github.com/").append(owner)
+                .append("\",\"type\":\"User\",\"site_admin\":false}")
+                .append(",\"private\":false,\"html_url\":\"https://github.com/").append(fullName)
+                .append("\",\"description\":\"A synthetic repository used to measure parsing of ")
+                .append(name).append(", long enough to look like a real description.\"")
+                .append(",\"fork\":false,\"url\":\"").append(api)
+                .append("\",\"forks_url\":\"").append(api).append("/forks")
+                .append("\",\"keys_url\":\"").append(api).append("/keys{/key_id}")
+                .append("\",\"collaborators_url\":\"").append(api)
+                .append("/collaborators{/collaborator}")
+                .append("\",\"teams_url\":\"").append(api).append("/teams")
+                .append("\",\"hooks_url\":\"").append(api).append("/hooks")
+                .append("\",\"issue_events_url\":\"").append(api).append("/issues/events{/number}")
+                .append("\",\"events_url\":\"").append(api).append("/events")
+                .append("\",\"contributors_url\":\"").append(api).append("/contributors")
+                .append("\",\"created_at\":\"2016-07-19T23:23:41Z\"")
+                .append(",\"updated_at\":\"2017-04-17T07:42:59Z\"")
+                .append(",\"pushed_at\":\"2016-07-19T23:24:54Z\"")
+                .append(",\"git_url\":\"git://github.com/").append(fullName).append(".git\"")
+                .append(",\"homepage\":null,\"size\":").append(id % 5000)
+                .append(",\"stargazers_count\":").append(id % 997)
+                .append(",\"watchers_count\":").append(id % 997)
+                .append(",\"language\":\"Java\",\"has_issues\":true,\"has_downloads\":true")
+                .append(",\"has_wiki\":true,\"has_pages\":false,\"forks_count\":").append(id % 31)
+                .append(",\"mirror_url\":null,\"open_issues_count\":").append(id % 13)
+                .append(",\"forks\":").append(id % 31)
+                .append(",\"open_issues\":").append(id % 13)
+                .append(",\"watchers\":").append(id % 997)
+                .append(",\"default_branch\":\"master\",\"score\":12.5}");
+    }
+}
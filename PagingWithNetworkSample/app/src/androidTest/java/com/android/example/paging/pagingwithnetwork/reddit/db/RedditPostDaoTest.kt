@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.paging.pagingwithnetwork.reddit.db
+
+import android.arch.paging.PositionalDataSource
+import android.arch.persistence.db.SupportSQLiteDatabase
+import android.arch.persistence.db.SupportSQLiteOpenHelper
+import android.arch.persistence.db.SupportSQLiteQuery
+import android.arch.persistence.db.framework.FrameworkSQLiteOpenHelperFactory
+import android.arch.persistence.room.Room
+import android.database.Cursor
+import android.support.test.InstrumentationRegistry
+import android.support.test.runner.AndroidJUnit4
+import android.util.Log
+import com.android.example.paging.pagingwithnetwork.reddit.vo.RedditPost
+import com.android.example.paging.pagingwithnetwork.repository.PostFactory
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.containsString
+import org.hamcrest.CoreMatchers.not
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class RedditPostDaoTest {
+    companion object {
+        private val TAG = "RedditPostDaoTest"
+        private val TABLE_SIZE = 100_000
+        private val PAGE_SIZE = 25
+        private val SAMPLES = 50
+    }
+
+    private lateinit var db: RedditDb
+    private val postFactory = PostFactory()
+    // the query plans of the queries on posts, while planOf records them
+    @Volatile
+    private var plans: MutableList<String>? = null
+
+    @Before
+    fun init() {
+        db = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(),
+                RedditDb::class.java)
+                .openHelperFactory(SupportSQLiteOpenHelper.Factory { configuration ->
+                    PlanRecordingOpenHelper(
+                            FrameworkSQLiteOpenHelperFactory().create(configuration))
+                })
+                .build()
+    }
+
+    @After
+    fun closeDb() {
+        db.close()
+    }
+
+    @Test
+    fun nextIndex() {
+        assertThat(db.posts().getNextIndexInSubreddit("foo"), `is`(0))
+        append("foo", 3)
+        append("bar", 1)
+        assertThat(db.posts().getNextIndexInSubreddit("foo"), `is`(3))
+        assertThat(db.posts().getNextIndexInSubreddit("bar"), `is`(1))
+    }
+
+    @Test
+    fun queriesUseIndex() {
+        append("foo", 100)
+        assertUsesIndex(planOf { db.posts().getNextIndexInSubreddit("foo") })
+        assertUsesIndex(planOf { db.posts().indexAtPosition("foo", 60) })
+        assertUsesIndex(planOf { db.posts().firstPosts("foo", 30) })
+        // the page the list loads when it is scrolled
+        val dataSource = db.posts().postsBySubreddit("foo").create()
+                as PositionalDataSource<RedditPost>
+        assertUsesIndex(planOf {
+            dataSource.loadRange(PositionalDataSource.LoadRangeParams(60, 30),
+                    object : PositionalDataSource.LoadRangeCallback<RedditPost>() {
+                        override fun onResult(data: List<RedditPost>) {
+                        }
+                    })
+        })
+    }
+
+    /**
+     * Benchmark, logs how long appending a page takes to an empty subreddit and to one with 100k
+     * posts. Without the (subreddit, indexInResponse) index, finding the next index reads every
+     * post of the subreddit and the second one is two orders of magnitude slower; the query plan
+     * is checked by [queriesUseIndex].
+     */
+    @Test
+    fun appendLatency() {
+        val empty = medianAppendNanos()
+        while (db.posts().getNextIndexInSubreddit("foo") < TABLE_SIZE) {
+            append("foo", 1000)
+        }
+        val full = medianAppendNanos()
+        Log.i(TAG, "append to empty subreddit: ${empty / 1000} us, to $TABLE_SIZE posts:"
+                + " ${full / 1000} us")
+    }
+
+    private fun medianAppendNanos(): Long {
+        val samples = LongArray(SAMPLES) {
+            val start = System.nanoTime()
+            append("foo", PAGE_SIZE)
+            System.nanoTime() - start
+        }
+        samples.sort()
+        return samples[SAMPLES / 2]
+    }
+
+    /**
+     * Appends posts the way DbRedditPostRepository does.
+     */
+    private fun append(subreddit: String, count: Int) {
+        db.runInTransaction {
+            val start = db.posts().getNextIndexInSubreddit(subreddit)
+            val posts = (0 until count).map { index ->
+                postFactory.createRedditPost(subreddit).apply {
+                    indexInResponse = start + index
+                }
+            }
+            db.posts().insert(posts)
+        }
+    }
+
+    private fun assertUsesIndex(plan: String) {
+        assertThat(plan, containsString("INDEX"))
+        assertThat(plan, not(containsString("TEMP B-TREE")))
+    }
+
+    /**
+     * Returns the query plans of the queries on posts that the block runs.
+     */
+    private fun planOf(block: () -> Unit): String {
+        val recorded = mutableListOf<String>()
+        plans = recorded
+        try {
+            block()
+        } finally {
+            plans = null
+        }
+        assertThat(recorded.isEmpty(), `is`(false))
+        return recorded.joinToString("\n")
+    }
+
+    private inner class PlanRecordingOpenHelper(private val delegate: SupportSQLiteOpenHelper)
+        : SupportSQLiteOpenHelper by delegate {
+        override fun getWritableDatabase(): SupportSQLiteDatabase =
+                PlanRecordingDatabase(delegate.writableDatabase)
+
+        override fun getReadableDatabase(): SupportSQLiteDatabase =
+                PlanRecordingDatabase(delegate.readableDatabase)
+    }
+
+    /**
+     * Explains the queries the DAO runs, with their arguments, before running them.
+     */
+    private inner class PlanRecordingDatabase(private val delegate: SupportSQLiteDatabase)
+        : SupportSQLiteDatabase by delegate {
+        override fun query(query: SupportSQLiteQuery): Cursor {
+            // the invalidation tracker queries its own table on another thread
+            if (query.sql.contains(" posts ")) {
+                plans?.add(explain(query))
+            }
+            return delegate.query(query)
+        }
+
+        private fun explain(query: SupportSQLiteQuery): String {
+            val explain = object : SupportSQLiteQuery by query {
+                override fun getSql() = "EXPLAIN QUERY PLAN ${query.sql}"
+            }
+            delegate.query(explain).use { cursor ->
+                val plan = StringBuilder()
+                while (cursor.moveToNext()) {
+                    plan.append(cursor.getString(cursor.getColumnIndex("detail"))).append('\n')
+                }
+                return plan.toString()
+            }
+        }
+    }
+}
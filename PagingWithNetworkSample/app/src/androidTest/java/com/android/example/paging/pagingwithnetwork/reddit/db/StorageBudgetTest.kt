@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.paging.pagingwithnetwork.reddit.db
+
+import android.support.test.InstrumentationRegistry
+import android.support.test.runner.AndroidJUnit4
+import com.android.example.paging.pagingwithnetwork.repository.PostFactory
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.Executor
+
+@RunWith(AndroidJUnit4::class)
+class StorageBudgetTest {
+    private lateinit var db: RedditDb
+    private val postFactory = PostFactory()
+    private var now = 0L
+
+    @Before
+    fun init() {
+        db = RedditDb.create(InstrumentationRegistry.getTargetContext(), useInMemory = true)
+    }
+
+    @After
+    fun closeDb() {
+        db.close()
+    }
+
+    private fun budget(maxPosts: Int, maxBytes: Long = Long.MAX_VALUE) =
+            StorageBudget(
+                    db = db,
+                    ioExecutor = Executor { command -> command.run() },
+                    maxPosts = maxPosts,
+                    maxBytes = maxBytes,
+                    clock = { now++ })
+
+    @Test
+    fun withinBudget() {
+        val budget = budget(maxPosts = 10)
+        open(budget, "foo", 5)
+        open(budget, "bar", 5)
+        assertThat(db.posts().count(), `is`(10))
+    }
+
+    @Test
+    fun evictsLeastRecentlyOpened() {
+        val budget = budget(maxPosts = 10)
+        open(budget, "foo", 5)
+        open(budget, "bar", 5)
+        open(budget, "foo", 0)
+        open(budget, "baz", 5)
+        assertThat(db.posts().getNextIndexInSubreddit("bar"), `is`(0))
+        assertThat(db.posts().getNextIndexInSubreddit("foo"), `is`(5))
+        assertThat(db.posts().count(), `is`(10))
+    }
+
+    @Test
+    fun keepsViewedSubreddit() {
+        val budget = budget(maxPosts = 10)
+        open(budget, "foo", 5)
+        open(budget, "bar", 25)
+        // the posts the user scrolled to stay, even over the budget
+        assertThat(db.posts().getNextIndexInSubreddit("foo"), `is`(0))
+        assertThat(db.posts().getNextIndexInSubreddit("bar"), `is`(25))
+    }
+
+    @Test
+    fun trimsTailOnceNoLongerViewed() {
+        val budget = budget(maxPosts = 10)
+        open(budget, "bar", 25)
+        open(budget, "foo", 4)
+        assertThat(db.posts().getNextIndexInSubreddit("bar"), `is`(6))
+        assertThat(db.posts().getNextIndexInSubreddit("foo"), `is`(4))
+    }
+
+    @Test
+    fun byteBudget() {
+        val budget = budget(maxPosts = Int.MAX_VALUE, maxBytes = 64 * 1024)
+        open(budget, "foo", 5000)
+        open(budget, "bar", 0)
+        val count = db.posts().count()
+        assertThat("$count posts left", count in 1..4999, `is`(true))
+    }
+
+    /**
+     * Opens the subreddit and appends posts to it the way DbRedditPostRepository does.
+     */
+    private fun open(budget: StorageBudget, subreddit: String, count: Int) {
+        budget.onSubredditOpened(subreddit)
+        db.runInTransaction {
+            val start = db.posts().getNextIndexInSubreddit(subreddit)
+            val posts = (0 until count).map { index ->
+                postFactory.createRedditPost(subreddit).apply {
+                    indexInResponse = start + index
+                }
+            }
+            db.posts().insert(posts)
+        }
+        budget.requestEviction()
+    }
+}
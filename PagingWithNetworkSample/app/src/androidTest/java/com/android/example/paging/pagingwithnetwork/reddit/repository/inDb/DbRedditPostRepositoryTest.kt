@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.paging.pagingwithnetwork.reddit.repository.inDb
+
+import android.arch.core.executor.testing.InstantTaskExecutorRule
+import android.support.test.InstrumentationRegistry
+import android.support.test.runner.AndroidJUnit4
+import com.android.example.paging.pagingwithnetwork.reddit.db.RedditDb
+import com.android.example.paging.pagingwithnetwork.reddit.repository.NetworkState
+import com.android.example.paging.pagingwithnetwork.reddit.vo.RedditPost
+import com.android.example.paging.pagingwithnetwork.repository.FakeRedditApi
+import com.android.example.paging.pagingwithnetwork.repository.PostFactory
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.Executor
+
+@RunWith(AndroidJUnit4::class)
+class DbRedditPostRepositoryTest {
+    @Suppress("unused")
+    @get:Rule // used to make all live data calls sync
+    val instantExecutor = InstantTaskExecutorRule()
+    private val fakeApi = FakeRedditApi()
+    private val postFactory = PostFactory()
+    private lateinit var db: RedditDb
+    private lateinit var repository: DbRedditPostRepository
+
+    @Before
+    fun init() {
+        db = RedditDb.create(InstrumentationRegistry.getTargetContext(), useInMemory = true)
+        repository = DbRedditPostRepository(
+                db = db,
+                redditApi = fakeApi,
+                ioExecutor = Executor { command -> command.run() })
+    }
+
+    @After
+    fun closeDb() {
+        db.close()
+    }
+
+    /**
+     * a refresh that returns the list in the same order only updates what changed
+     */
+    @Test
+    fun refreshInSameOrder() {
+        val posts = (0 until 3).map { postFactory.createRedditPost("foo") }
+        save(posts)
+        fakeApi.addPost(posts[0])
+        fakeApi.addPost(posts[1].copy(score = 20))
+        fakeApi.addPost(posts[2])
+        refresh("foo")
+        val loaded = db.posts().firstPosts("foo", 10)
+        assertThat(loaded.map { it.name }, `is`(posts.map { it.name }))
+        assertThat(loaded.map { it.indexInResponse }, `is`(listOf(0, 1, 2)))
+        assertThat(loaded[1].score, `is`(20))
+    }
+
+    /**
+     * a refresh that returns a different first page puts it in front of what was loaded before
+     */
+    @Test
+    fun refreshInNewOrder() {
+        val posts = (0 until 3).map { postFactory.createRedditPost("foo") }
+        save(posts)
+        val newPost = postFactory.createRedditPost("foo")
+        fakeApi.addPost(newPost)
+        fakeApi.addPost(posts[1])
+        refresh("foo")
+        val loaded = db.posts().firstPosts("foo", 10)
+        assertThat(loaded.map { it.name },
+                `is`(listOf(newPost, posts[1], posts[0], posts[2]).map { it.name }))
+        // the posts that were not in the page have not moved
+        assertThat(loaded[2].indexInResponse, `is`(0))
+        assertThat(loaded[3].indexInResponse, `is`(2))
+    }
+
+    private fun save(posts: List<RedditPost>) {
+        posts.forEachIndexed { index, post ->
+            post.indexInResponse = index
+        }
+        db.posts().insert(posts)
+    }
+
+    private fun refresh(subreddit: String) {
+        val listing = repository.postsOfSubreddit(subreddit, 10)
+        val states = arrayListOf<NetworkState?>()
+        listing.refreshState.observeForever {
+            states.add(it)
+        }
+        listing.refresh()
+        assertThat(states.last(), `is`(NetworkState.LOADED))
+    }
+}
@@ -19,17 +19,35 @@ import android.support.annotation.GuardedBy;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 /**
  * A helper class for {@link android.arch.paging.PagedList.BoundaryCallback BoundaryCallback}s and
  * {@link DataSource}s to help with tracking network requests.
  * <p>
  * It is designed to support 3 types of requests, {@link RequestType#INITIAL INITIAL},
- * {@link RequestType#BEFORE BEFORE} and {@link RequestType#AFTER AFTER} and runs only 1 request
- * for each of them via {@link #runIfNotRunning(RequestType, Request)}.
+ * {@link RequestType#BEFORE BEFORE} and {@link RequestType#AFTER AFTER}. Each type is a lane that
+ * runs only 1 request at a time via {@link #runIfNotRunning(RequestType, Request)}.
+ * <p>
+ * A lane can be allowed to run more requests at the same time with
+ * {@link #setMaxRunning(RequestType, int)}. Requests are then told apart by a key given to
+ * {@link #runIfNotRunning(RequestType, Object, Request)}, e.g. the item a page is loaded after, so
+ * that a request for the next page is not dropped while the previous one is still finishing, and
+ * a request for the same page is still only run once.
  * <p>
  * It tracks a {@link Status} and an {@code error} for each {@link RequestType}.
  * <p>
@@ -99,12 +117,29 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *     }
  * });
  * </pre>
+ * <p>
+ * Failed requests can be retried automatically by giving the helper a {@link RetryPolicy}. A
+ * request that is waiting for its next attempt is reported as running, and
+ * {@link #cancelRetries()} drops the pending attempts, e.g. when the list is refreshed. Each
+ * attempt is reported via {@link StatusReport#getLastAttemptFor(RequestType)}.
+ * <p>
+ * Listeners are called when a status or an error changes, and for every failed attempt, so that
+ * a retry being scheduled is seen even though the request keeps running. A successful attempt
+ * that does not change the status, e.g. in a lane where other requests are still running, is only
+ * readable via {@link #getStatusReport()}.
  */
 // THIS class is likely to be moved into the library in a future release. Feel free to copy it
 // from this sample.
 public class PagingRequestHelper {
     private final Object mLock = new Object();
     private final Executor mRetryService;
+    @NonNull
+    private final RetryPolicy mRetryPolicy;
+    // delays the automatic retries, which then run on mRetryService
+    @Nullable
+    private final ScheduledExecutorService mRetryTimer;
+    @GuardedBy("mLock")
+    private final Random mRandom = new Random();
     @GuardedBy("mLock")
     private final RequestQueue[] mRequestQueues = new RequestQueue[]
             {new RequestQueue(RequestType.INITIAL),
@@ -112,6 +147,11 @@ public class PagingRequestHelper {
                     new RequestQueue(RequestType.AFTER)};
     @NonNull
     final CopyOnWriteArrayList<Listener> mListeners = new CopyOnWriteArrayList<>();
+    // the latest report, written under mLock and read without it
+    @NonNull
+    private volatile StatusReport mStatusReport = new StatusReport(Status.SUCCESS, Status.SUCCESS,
+            Status.SUCCESS, new Throwable[RequestType.values().length],
+            new Attempt[RequestType.values().length]);
     /**
      * Creates a new PagingRequestHelper with the given {@link Executor} which is used to run
      * retry actions.
@@ -119,7 +159,23 @@ public class PagingRequestHelper {
      * @param retryService The {@link Executor} that can run the retry actions.
      */
     public PagingRequestHelper(@NonNull Executor retryService) {
+        this(retryService, RetryPolicy.NONE, null);
+    }
+    /**
+     * Creates a new PagingRequestHelper that retries failed requests automatically.
+     *
+     * @param retryService The {@link Executor} that can run the retry actions.
+     * @param retryPolicy  How many times and after which delays failed requests are retried.
+     */
+    public PagingRequestHelper(@NonNull Executor retryService, @NonNull RetryPolicy retryPolicy) {
+        this(retryService, retryPolicy, RetryTimer.INSTANCE);
+    }
+    @VisibleForTesting
+    PagingRequestHelper(@NonNull Executor retryService, @NonNull RetryPolicy retryPolicy,
+            @Nullable ScheduledExecutorService retryTimer) {
         mRetryService = retryService;
+        mRetryPolicy = retryPolicy;
+        mRetryTimer = retryTimer;
     }
     /**
      * Adds a new listener that will be notified when any request changes {@link Status state}.
@@ -140,6 +196,24 @@ public class PagingRequestHelper {
     public boolean removeListener(@NonNull Listener listener) {
         return mListeners.remove(listener);
     }
+    /**
+     * Sets how many requests of the given type may run at the same time. Defaults to 1.
+     * <p>
+     * Requests that run at the same time must be started with different keys via
+     * {@link #runIfNotRunning(RequestType, Object, Request)}.
+     *
+     * @param type       The type of the requests.
+     * @param maxRunning The number of requests that may run at the same time, at least 1.
+     */
+    @AnyThread
+    public void setMaxRunning(@NonNull RequestType type, int maxRunning) {
+        if (maxRunning < 1) {
+            throw new IllegalArgumentException("maxRunning must be at least 1");
+        }
+        synchronized (mLock) {
+            mRequestQueues[type.ordinal()].mMaxRunning = maxRunning;
+        }
+    }
     /**
      * Runs the given {@link Request} if no other requests in the given request type is already
      * running.
@@ -153,97 +227,187 @@ public class PagingRequestHelper {
     @SuppressWarnings("WeakerAccess")
     @AnyThread
     public boolean runIfNotRunning(@NonNull RequestType type, @NonNull Request request) {
-        boolean hasListeners = !mListeners.isEmpty();
-        StatusReport report = null;
+        return runIfNotRunning(type, null, request);
+    }
+    /**
+     * Runs the given {@link Request} unless a request with the same key is already running in the
+     * given request type, or as many requests as {@link #setMaxRunning(RequestType, int)} allows.
+     * <p>
+     * If run, the request will be run in the current thread.
+     *
+     * @param type    The type of the request.
+     * @param key     What the request loads, e.g. the item a page is loaded after.
+     * @param request The request to run.
+     * @return True if the request is run, false otherwise.
+     */
+    @SuppressWarnings("WeakerAccess")
+    @AnyThread
+    public boolean runIfNotRunning(@NonNull RequestType type, @Nullable Object key,
+            @NonNull Request request) {
+        final RequestWrapper wrapper = new RequestWrapper(request, this, type, key);
+        StatusReport report;
         synchronized (mLock) {
             RequestQueue queue = mRequestQueues[type.ordinal()];
-            if (queue.mRunning != null) {
+            if (queue.mRunning.size() >= queue.mMaxRunning || queue.mRunning.containsKey(key)) {
                 return false;
             }
-            queue.mRunning = request;
-            queue.mStatus = Status.RUNNING;
-            queue.mFailed = null;
-            queue.mLastError = null;
-            if (hasListeners) {
-                report = prepareStatusReportLocked();
-            }
+            queue.mRunning.put(key, wrapper);
+            queue.mFailed.remove(key);
+            report = updateStatusReportLocked();
         }
         if (report != null) {
             dispatchReport(report);
         }
-        final RequestWrapper wrapper = new RequestWrapper(request, this, type);
         wrapper.run();
         return true;
     }
+    /**
+     * Returns the current status of the requests, including the last attempts. Reading it does not
+     * block requests that are starting or finishing.
+     *
+     * @return The current status report.
+     */
+    @AnyThread
+    @NonNull
+    public StatusReport getStatusReport() {
+        return mStatusReport;
+    }
+    /**
+     * Publishes the current state of the queues.
+     *
+     * @return The new report, or null if the statuses and errors have not changed.
+     */
     @GuardedBy("mLock")
-    private StatusReport prepareStatusReportLocked() {
+    @Nullable
+    private StatusReport updateStatusReportLocked() {
         Throwable[] errors = new Throwable[]{
-                mRequestQueues[0].mLastError,
-                mRequestQueues[1].mLastError,
-                mRequestQueues[2].mLastError
+                mRequestQueues[0].getError(),
+                mRequestQueues[1].getError(),
+                mRequestQueues[2].getError()
+        };
+        Attempt[] attempts = new Attempt[]{
+                mRequestQueues[0].mLastAttempt,
+                mRequestQueues[1].mLastAttempt,
+                mRequestQueues[2].mLastAttempt
         };
-        return new StatusReport(
-                getStatusForLocked(RequestType.INITIAL),
-                getStatusForLocked(RequestType.BEFORE),
-                getStatusForLocked(RequestType.AFTER),
-                errors
+        StatusReport report = new StatusReport(
+                mRequestQueues[RequestType.INITIAL.ordinal()].getStatus(),
+                mRequestQueues[RequestType.BEFORE.ordinal()].getStatus(),
+                mRequestQueues[RequestType.AFTER.ordinal()].getStatus(),
+                errors,
+                attempts
         );
-    }
-    @GuardedBy("mLock")
-    private Status getStatusForLocked(RequestType type) {
-        return mRequestQueues[type.ordinal()].mStatus;
+        StatusReport previous = mStatusReport;
+        mStatusReport = report;
+        // another request starting or finishing in a busy lane does not change its status. The
+        // attempts are not compared, every finished request makes a new one.
+        return report.hasSameStatus(previous) ? null : report;
     }
     @AnyThread
     @VisibleForTesting
-    void recordResult(@NonNull RequestWrapper wrapper, @Nullable Throwable throwable) {
-        StatusReport report = null;
+    void recordResult(@NonNull final RequestWrapper wrapper, @Nullable Throwable throwable) {
+        StatusReport report;
         final boolean success = throwable == null;
-        boolean hasListeners = !mListeners.isEmpty();
         synchronized (mLock) {
             RequestQueue queue = mRequestQueues[wrapper.mType.ordinal()];
-            queue.mRunning = null;
-            queue.mLastError = throwable;
-            if (success) {
-                queue.mFailed = null;
-                queue.mStatus = Status.SUCCESS;
+            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - wrapper.mStartedAt);
+            boolean retry = !success && mRetryTimer != null
+                    && wrapper.mAttempt < mRetryPolicy.mMaxAttempts;
+            long retryDelay = retry
+                    ? mRetryPolicy.getDelayMillis(wrapper.mAttempt, mRandom.nextDouble()) : -1;
+            queue.mLastAttempt = new Attempt(wrapper.mAttempt, duration, throwable, retryDelay);
+            if (retry) {
+                // it keeps its place in the lane, so the same request is not started meanwhile
+                wrapper.mScheduledRetry = mRetryTimer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        mRetryService.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                runScheduledRetry(wrapper);
+                            }
+                        });
+                    }
+                }, retryDelay, TimeUnit.MILLISECONDS);
+            } else if (success) {
+                queue.mRunning.remove(wrapper.mKey);
+                // requests that failed before are behind this one or will be made again
+                queue.mFailed.clear();
             } else {
-                queue.mFailed = wrapper;
-                queue.mStatus = Status.FAILED;
+                queue.mRunning.remove(wrapper.mKey);
+                wrapper.mError = throwable;
+                queue.mFailed.put(wrapper.mKey, wrapper);
             }
-            if (hasListeners) {
-                report = prepareStatusReportLocked();
+            report = updateStatusReportLocked();
+            if (report == null && !success) {
+                // e.g. a retry was scheduled, the status stays running but the attempt is news
+                report = mStatusReport;
             }
         }
         if (report != null) {
             dispatchReport(report);
         }
     }
+    private void runScheduledRetry(@NonNull RequestWrapper wrapper) {
+        synchronized (mLock) {
+            if (wrapper.mScheduledRetry == null) {
+                // cancelled
+                return;
+            }
+            wrapper.mScheduledRetry = null;
+            wrapper.mAttempt++;
+        }
+        wrapper.run();
+    }
+    /**
+     * Cancels the automatic retries that are waiting for their delay and forgets the failed
+     * requests, e.g. because the list is being refreshed and they load data that is replaced.
+     * Requests that are running are not affected.
+     */
+    @AnyThread
+    public void cancelRetries() {
+        StatusReport report;
+        synchronized (mLock) {
+            for (RequestQueue queue : mRequestQueues) {
+                Iterator<RequestWrapper> running = queue.mRunning.values().iterator();
+                while (running.hasNext()) {
+                    RequestWrapper wrapper = running.next();
+                    if (wrapper.mScheduledRetry != null) {
+                        wrapper.mScheduledRetry.cancel(false);
+                        wrapper.mScheduledRetry = null;
+                        running.remove();
+                    }
+                }
+                queue.mFailed.clear();
+            }
+            report = updateStatusReportLocked();
+        }
+        if (report != null) {
+            dispatchReport(report);
+        }
+    }
     private void dispatchReport(StatusReport report) {
         for (Listener listener : mListeners) {
             listener.onStatusChange(report);
         }
     }
     /**
-     * Retries all failed requests.
+     * Retries all failed requests. A request that is waiting for an automatic retry is not failed.
      *
      * @return True if any request is retried, false otherwise.
      */
     public boolean retryAllFailed() {
-        final RequestWrapper[] toBeRetried = new RequestWrapper[RequestType.values().length];
-        boolean retried = false;
+        final List<RequestWrapper> toBeRetried = new ArrayList<>();
         synchronized (mLock) {
-            for (int i = 0; i < RequestType.values().length; i++) {
-                toBeRetried[i] = mRequestQueues[i].mFailed;
-                mRequestQueues[i].mFailed = null;
+            for (RequestQueue queue : mRequestQueues) {
+                toBeRetried.addAll(queue.mFailed.values());
+                queue.mFailed.clear();
             }
         }
         for (RequestWrapper failed : toBeRetried) {
-            if (failed != null) {
-                failed.retry(mRetryService);
-                retried = true;
-            }
+            failed.retry(mRetryService);
         }
-        return retried;
+        return !toBeRetried.isEmpty();
     }
     static class RequestWrapper implements Runnable {
         @NonNull
@@ -252,21 +416,34 @@ public class PagingRequestHelper {
         final PagingRequestHelper mHelper;
         @NonNull
         final RequestType mType;
+        @Nullable
+        final Object mKey;
+        // set when the request fails, guarded by the lock of the helper
+        @Nullable
+        Throwable mError;
+        // guarded by the lock of the helper
+        int mAttempt = 1;
+        // guarded by the lock of the helper
+        @Nullable
+        Future<?> mScheduledRetry;
+        volatile long mStartedAt;
         RequestWrapper(@NonNull Request request, @NonNull PagingRequestHelper helper,
-                @NonNull RequestType type) {
+                @NonNull RequestType type, @Nullable Object key) {
             mRequest = request;
             mHelper = helper;
             mType = type;
+            mKey = key;
         }
         @Override
         public void run() {
+            mStartedAt = System.nanoTime();
             mRequest.run(new Request.Callback(this, mHelper));
         }
         void retry(Executor service) {
             service.execute(new Runnable() {
                 @Override
                 public void run() {
-                    mHelper.runIfNotRunning(mType, mRequest);
+                    mHelper.runIfNotRunning(mType, mKey, mRequest);
                 }
             });
         }
@@ -355,12 +532,15 @@ public class PagingRequestHelper {
         public final Status after;
         @NonNull
         private final Throwable[] mErrors;
+        @NonNull
+        private final Attempt[] mAttempts;
         StatusReport(@NonNull Status initial, @NonNull Status before, @NonNull Status after,
-                @NonNull Throwable[] errors) {
+                @NonNull Throwable[] errors, @NonNull Attempt[] attempts) {
             this.initial = initial;
             this.before = before;
             this.after = after;
             this.mErrors = errors;
+            this.mAttempts = attempts;
         }
         /**
          * Convenience method to check if there are any running requests.
@@ -393,6 +573,23 @@ public class PagingRequestHelper {
         public Throwable getErrorFor(@NonNull RequestType type) {
             return mErrors[type.ordinal()];
         }
+        /**
+         * Returns the attempt that finished last for the given request type.
+         *
+         * @param type The request type for which the attempt should be returned.
+         * @return The last finished {@link Attempt} of a request with the given type or
+         * {@code null} if no such request has finished yet.
+         */
+        @Nullable
+        public Attempt getLastAttemptFor(@NonNull RequestType type) {
+            return mAttempts[type.ordinal()];
+        }
+        boolean hasSameStatus(@NonNull StatusReport other) {
+            return initial == other.initial
+                    && before == other.before
+                    && after == other.after
+                    && Arrays.equals(mErrors, other.mErrors);
+        }
         @Override
         public String toString() {
             return "StatusReport{"
@@ -400,6 +597,7 @@ public class PagingRequestHelper {
                     + ", before=" + before
                     + ", after=" + after
                     + ", mErrors=" + Arrays.toString(mErrors)
+                    + ", mAttempts=" + Arrays.toString(mAttempts)
                     + '}';
         }
         @Override
@@ -411,7 +609,8 @@ public class PagingRequestHelper {
             if (before != that.before) return false;
             if (after != that.after) return false;
             // Probably incorrect - comparing Object[] arrays with Arrays.equals
-            return Arrays.equals(mErrors, that.mErrors);
+            if (!Arrays.equals(mErrors, that.mErrors)) return false;
+            return Arrays.equals(mAttempts, that.mAttempts);
         }
         @Override
         public int hashCode() {
@@ -419,9 +618,128 @@ public class PagingRequestHelper {
             result = 31 * result + before.hashCode();
             result = 31 * result + after.hashCode();
             result = 31 * result + Arrays.hashCode(mErrors);
+            result = 31 * result + Arrays.hashCode(mAttempts);
+            return result;
+        }
+    }
+    /**
+     * The timing and outcome of one run of a request.
+     */
+    public static final class Attempt {
+        /**
+         * 1 for the first run of the request, incremented by every automatic retry.
+         */
+        public final int number;
+        /**
+         * How long it took for the request to record its result.
+         */
+        public final long durationMillis;
+        /**
+         * The error the attempt failed with, {@code null} if it succeeded.
+         */
+        @Nullable
+        public final Throwable error;
+        /**
+         * The delay until the next automatic attempt, or -1 if there is none.
+         */
+        public final long retryDelayMillis;
+        Attempt(int number, long durationMillis, @Nullable Throwable error,
+                long retryDelayMillis) {
+            this.number = number;
+            this.durationMillis = durationMillis;
+            this.error = error;
+            this.retryDelayMillis = retryDelayMillis;
+        }
+        @Override
+        public String toString() {
+            return "Attempt{"
+                    + "number=" + number
+                    + ", durationMillis=" + durationMillis
+                    + ", error=" + error
+                    + ", retryDelayMillis=" + retryDelayMillis
+                    + '}';
+        }
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Attempt that = (Attempt) o;
+            if (number != that.number) return false;
+            if (durationMillis != that.durationMillis) return false;
+            if (retryDelayMillis != that.retryDelayMillis) return false;
+            return error != null ? error.equals(that.error) : that.error == null;
+        }
+        @Override
+        public int hashCode() {
+            int result = number;
+            result = 31 * result + (int) (durationMillis ^ (durationMillis >>> 32));
+            result = 31 * result + (error != null ? error.hashCode() : 0);
+            result = 31 * result + (int) (retryDelayMillis ^ (retryDelayMillis >>> 32));
             return result;
         }
     }
+    /**
+     * Decides how often and when failed requests are retried without waiting for
+     * {@link #retryAllFailed()}.
+     * <p>
+     * The delay doubles after each attempt, up to a maximum. Half of it is random so that requests
+     * that failed at the same time, e.g. when the network went away, do not all retry at once.
+     */
+    public static final class RetryPolicy {
+        /**
+         * Never retries automatically.
+         */
+        public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+        final int mMaxAttempts;
+        final long mBaseDelayMillis;
+        final long mMaxDelayMillis;
+        /**
+         * @param maxAttempts     How many times a request is run before it is reported as failed,
+         *                        including the first run.
+         * @param baseDelayMillis The delay before the first retry.
+         * @param maxDelayMillis  The longest delay between two attempts.
+         */
+        public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be at least 1");
+            }
+            if (baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis) {
+                throw new IllegalArgumentException(
+                        "delays must satisfy 0 <= baseDelayMillis <= maxDelayMillis");
+            }
+            mMaxAttempts = maxAttempts;
+            mBaseDelayMillis = baseDelayMillis;
+            mMaxDelayMillis = maxDelayMillis;
+        }
+        /**
+         * @param attempt The attempt that failed, 1 for the first one.
+         * @param random  A random number in [0, 1).
+         * @return The delay before the next attempt.
+         */
+        long getDelayMillis(int attempt, double random) {
+            long delay = mBaseDelayMillis;
+            for (int i = 1; i < attempt && delay < mMaxDelayMillis; i++) {
+                delay *= 2;
+            }
+            delay = Math.min(delay, mMaxDelayMillis);
+            long fixed = delay / 2;
+            return fixed + (long) (random * (delay - fixed));
+        }
+    }
+    /**
+     * Holds the timer shared by the helpers that retry automatically, created on first use.
+     */
+    private static class RetryTimer {
+        static final ScheduledExecutorService INSTANCE =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        Thread thread = new Thread(runnable, "PagingRequestHelper retry timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
     /**
      * Listener interface to get notified by request status changes.
      */
@@ -475,16 +793,38 @@ public class PagingRequestHelper {
     class RequestQueue {
         @NonNull
         final RequestType mRequestType;
-        @Nullable
-        RequestWrapper mFailed;
-        @Nullable
-        Request mRunning;
-        @Nullable
-        Throwable mLastError;
+        // by key, in the order they failed
+        @NonNull
+        final LinkedHashMap<Object, RequestWrapper> mFailed = new LinkedHashMap<>();
+        // by key
         @NonNull
-        Status mStatus = Status.SUCCESS;
+        final Map<Object, RequestWrapper> mRunning = new HashMap<>();
+        int mMaxRunning = 1;
+        @Nullable
+        Attempt mLastAttempt;
         RequestQueue(@NonNull RequestType requestType) {
             mRequestType = requestType;
         }
+        @NonNull
+        Status getStatus() {
+            if (!mRunning.isEmpty()) {
+                return Status.RUNNING;
+            }
+            return mFailed.isEmpty() ? Status.SUCCESS : Status.FAILED;
+        }
+        /**
+         * @return The error of the request that failed last, if the queue has failed.
+         */
+        @Nullable
+        Throwable getError() {
+            if (getStatus() != Status.FAILED) {
+                return null;
+            }
+            Throwable last = null;
+            for (RequestWrapper failed : mFailed.values()) {
+                last = failed.mError;
+            }
+            return last;
+        }
     }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@ import android.content.Context
 import android.support.annotation.VisibleForTesting
 import com.android.example.paging.pagingwithnetwork.reddit.api.RedditApi
 import com.android.example.paging.pagingwithnetwork.reddit.db.RedditDb
+import com.android.example.paging.pagingwithnetwork.reddit.db.StorageBudget
 import com.android.example.paging.pagingwithnetwork.reddit.repository.RedditPostRepository
 import com.android.example.paging.pagingwithnetwork.reddit.repository.inDb.DbRedditPostRepository
 import com.android.example.paging.pagingwithnetwork.reddit.repository.inMemory.byItem.InMemoryByItemRepository
@@ -81,6 +82,11 @@ open class DefaultServiceLocator(val app: Application, val useInMemoryDb: Boolea
         RedditDb.create(app, useInMemoryDb)
     }
 
+    // shared by the repositories so that the budget covers the whole database
+    private val storageBudget by lazy {
+        StorageBudget(db, getDiskIOExecutor())
+    }
+
     private val api by lazy {
         RedditApi.create()
     }
@@ -96,7 +102,8 @@ open class DefaultServiceLocator(val app: Application, val useInMemoryDb: Boolea
             RedditPostRepository.Type.DB -> DbRedditPostRepository(
                     db = db,
                     redditApi = getRedditApi(),
-                    ioExecutor = getDiskIOExecutor())
+                    ioExecutor = getDiskIOExecutor(),
+                    storageBudget = storageBudget)
         }
     }
 
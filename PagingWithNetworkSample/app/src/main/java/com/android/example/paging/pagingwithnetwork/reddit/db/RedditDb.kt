@@ -21,13 +21,14 @@ import android.arch.persistence.room.Room
 import android.arch.persistence.room.RoomDatabase
 import android.content.Context
 import com.android.example.paging.pagingwithnetwork.reddit.vo.RedditPost
+import com.android.example.paging.pagingwithnetwork.reddit.vo.SubredditAccess
 
 /**
  * Database schema used by the DbRedditPostRepository
  */
 @Database(
-        entities = arrayOf(RedditPost::class),
-        version = 1,
+        entities = arrayOf(RedditPost::class, SubredditAccess::class),
+        version = 3,
         exportSchema = false
 )
 abstract class RedditDb : RoomDatabase() {
@@ -45,4 +46,6 @@ abstract class RedditDb : RoomDatabase() {
     }
 
     abstract fun posts(): RedditPostDao
+
+    abstract fun subredditAccess(): SubredditAccessDao
 }
\ No newline at end of file
@@ -31,9 +31,36 @@ interface RedditPostDao {
     @Query("SELECT * FROM posts WHERE subreddit = :subreddit ORDER BY indexInResponse ASC")
     fun postsBySubreddit(subreddit : String) : DataSource.Factory<Int, RedditPost>
 
+    @Query("SELECT * FROM posts WHERE subreddit = :subreddit ORDER BY indexInResponse ASC"
+            + " LIMIT :limit")
+    fun firstPosts(subreddit: String, limit: Int) : List<RedditPost>
+
     @Query("DELETE FROM posts WHERE subreddit = :subreddit")
-    fun deleteBySubreddit(subreddit: String)
+    fun deleteBySubreddit(subreddit: String) : Int
+
+    @Query("DELETE FROM posts WHERE subreddit = :subreddit AND indexInResponse >= :index")
+    fun deleteFromIndexInSubreddit(subreddit: String, index: Int)
+
+    @Query("SELECT COUNT(*) FROM posts")
+    fun count() : Int
+
+    @Query("SELECT COUNT(*) FROM posts WHERE subreddit = :subreddit")
+    fun countInSubreddit(subreddit: String) : Int
+
+    /**
+     * Returns the index of the post at the given position in the list of the subreddit, null if
+     * the list is shorter than that.
+     */
+    @Query("SELECT indexInResponse FROM posts WHERE subreddit = :subreddit"
+            + " ORDER BY indexInResponse ASC LIMIT 1 OFFSET :position")
+    fun indexAtPosition(subreddit: String, position: Int) : Int?
 
-    @Query("SELECT MAX(indexInResponse) + 1 FROM posts WHERE subreddit = :subreddit")
+    /**
+     * Returns the index after the last post of the subreddit, 0 if it has none. It is read from
+     * the end of the (subreddit, indexInResponse) index, so it does not depend on the number of
+     * posts.
+     */
+    @Query("SELECT indexInResponse + 1 FROM posts WHERE subreddit = :subreddit"
+            + " ORDER BY indexInResponse DESC LIMIT 1")
     fun getNextIndexInSubreddit(subreddit: String) : Int
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.paging.pagingwithnetwork.reddit.db
+
+import android.support.annotation.VisibleForTesting
+import android.support.annotation.WorkerThread
+import com.android.example.paging.pagingwithnetwork.reddit.vo.SubredditAccess
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Keeps the posts cached in the RedditDb within a number of rows and bytes.
+ * <p>
+ * When the cache is over budget, the subreddits that were opened least recently are removed
+ * first; the last one that has to go only loses the far end of its list. The subreddit that is
+ * being viewed is left alone, dropping the posts the user scrolled to would make the list jump
+ * and the boundary callback load them again. It can go over the budget until another subreddit
+ * is opened.
+ * <p>
+ * All work runs on the disk executor, and eviction requests that arrive while one is pending
+ * are merged into it.
+ */
+class StorageBudget(
+        private val db: RedditDb,
+        private val ioExecutor: Executor,
+        private val maxPosts: Int = DEFAULT_MAX_POSTS,
+        private val maxBytes: Long = DEFAULT_MAX_BYTES,
+        private val clock: () -> Long = System::currentTimeMillis) {
+    companion object {
+        private val DEFAULT_MAX_POSTS = 5000
+        private val DEFAULT_MAX_BYTES = 5L * 1024 * 1024
+    }
+
+    private val evictionPending = AtomicBoolean(false)
+
+    @Volatile
+    private var viewedSubreddit: String? = null
+
+    /**
+     * Records that the subreddit was opened, which makes it the one being viewed and, once another
+     * one is opened, the last one to be evicted.
+     */
+    fun onSubredditOpened(subreddit: String) {
+        viewedSubreddit = subreddit
+        ioExecutor.execute {
+            db.subredditAccess().insert(SubredditAccess(subreddit, clock()))
+        }
+        requestEviction()
+    }
+
+    /**
+     * Schedules an eviction pass, to be called after posts are written.
+     */
+    fun requestEviction() {
+        if (evictionPending.compareAndSet(false, true)) {
+            ioExecutor.execute {
+                evictionPending.set(false)
+                evict()
+            }
+        }
+    }
+
+    @VisibleForTesting
+    @WorkerThread
+    fun evict() {
+        val count = db.posts().count()
+        if (count == 0) {
+            return
+        }
+        // the byte budget is turned into a row budget using the average size of a post, which
+        // also accounts for the indices
+        val bytesPerPost = Math.max(1L, usedBytes() / count)
+        val budget = Math.min(maxPosts.toLong(), maxBytes / bytesPerPost).toInt()
+        if (count <= budget) {
+            return
+        }
+        val viewed = viewedSubreddit
+        db.runInTransaction {
+            var excess = count - budget
+            for (subreddit in db.subredditAccess().subredditsByLastAccess()) {
+                if (excess <= 0) {
+                    break
+                }
+                if (subreddit.equals(viewed, ignoreCase = true)) {
+                    continue
+                }
+                val posts = db.posts().countInSubreddit(subreddit)
+                if (posts <= excess) {
+                    db.posts().deleteBySubreddit(subreddit)
+                    db.subredditAccess().delete(subreddit)
+                } else {
+                    // the top of the list is what is shown first when it is opened again
+                    db.posts().indexAtPosition(subreddit, posts - excess)?.let {
+                        db.posts().deleteFromIndexInSubreddit(subreddit, it)
+                    }
+                }
+                excess -= Math.min(posts, excess)
+            }
+        }
+    }
+
+    /**
+     * Size of the database pages that are in use. Deleted rows give their pages back to the free
+     * list, so this shrinks after an eviction even though the file does not.
+     */
+    private fun usedBytes(): Long {
+        return (pragma("page_count") - pragma("freelist_count")) * pragma("page_size")
+    }
+
+    private fun pragma(name: String): Long {
+        db.query("PRAGMA $name", null).use { cursor ->
+            return if (cursor.moveToFirst()) cursor.getLong(0) else 0
+        }
+    }
+}
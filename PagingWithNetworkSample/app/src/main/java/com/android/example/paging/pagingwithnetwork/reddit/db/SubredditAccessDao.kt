@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.paging.pagingwithnetwork.reddit.db
+
+import android.arch.persistence.room.Dao
+import android.arch.persistence.room.Insert
+import android.arch.persistence.room.OnConflictStrategy
+import android.arch.persistence.room.Query
+import com.android.example.paging.pagingwithnetwork.reddit.vo.SubredditAccess
+
+@Dao
+interface SubredditAccessDao {
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    fun insert(access: SubredditAccess)
+
+    @Query("DELETE FROM subreddit_access WHERE subreddit = :subreddit")
+    fun delete(subreddit: String)
+
+    /**
+     * Returns the subreddits that have posts in the database, least recently opened first. The
+     * ones that were never recorded as opened come before all others.
+     */
+    @Query("SELECT p.subreddit FROM (SELECT DISTINCT subreddit FROM posts) p"
+            + " LEFT JOIN subreddit_access a ON a.subreddit = p.subreddit"
+            + " ORDER BY a.lastAccess ASC")
+    fun subredditsByLastAccess(): List<String>
+}
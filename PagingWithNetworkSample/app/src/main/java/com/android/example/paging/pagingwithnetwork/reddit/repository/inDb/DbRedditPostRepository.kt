@@ -23,6 +23,7 @@ import android.arch.paging.LivePagedListBuilder
 import android.support.annotation.MainThread
 import com.android.example.paging.pagingwithnetwork.reddit.api.RedditApi
 import com.android.example.paging.pagingwithnetwork.reddit.db.RedditDb
+import com.android.example.paging.pagingwithnetwork.reddit.db.StorageBudget
 import com.android.example.paging.pagingwithnetwork.reddit.repository.Listing
 import com.android.example.paging.pagingwithnetwork.reddit.repository.NetworkState
 import com.android.example.paging.pagingwithnetwork.reddit.repository.RedditPostRepository
@@ -40,9 +41,13 @@ class DbRedditPostRepository(
         val db: RedditDb,
         private val redditApi: RedditApi,
         private val ioExecutor: Executor,
-        private val networkPageSize: Int = DEFAULT_NETWORK_PAGE_SIZE) : RedditPostRepository {
+        private val networkPageSize: Int = DEFAULT_NETWORK_PAGE_SIZE,
+        private val storageBudget: StorageBudget = StorageBudget(db, ioExecutor))
+    : RedditPostRepository {
     companion object {
         private val DEFAULT_NETWORK_PAGE_SIZE = 10
+        // how much of the previous list is kept after a refresh, in network pages
+        private val PAGES_KEPT_AFTER_REFRESH = 10
     }
 
     /**
@@ -59,14 +64,51 @@ class DbRedditPostRepository(
                 db.posts().insert(items)
             }
         }
+        storageBudget.requestEviction()
     }
 
     /**
-     * When refresh is called, we simply run a fresh network request and when it arrives, clear
-     * the database table and insert all new items in a transaction.
+     * Merges the first page of a refresh into the list of the subreddit.
+     * <p>
+     * If the page starts the list in the same order as before, only the posts whose content
+     * changed are written. Otherwise the page is put in front of the list and the posts it moved
+     * leave their old place; every other post keeps its index, so the pages that the PagedList has
+     * loaded stay where they are.
+     *
+     * @return The index of the first post of the page.
+     */
+    private fun mergeFirstPage(subredditName: String, body: RedditApi.ListingResponse?): Int {
+        val posts = body!!.data.children.map { it.data }
+        var start = 0
+        db.runInTransaction {
+            val head = db.posts().firstPosts(subredditName, posts.size)
+            if (head.isNotEmpty() && head.map { it.name } == posts.map { it.name }) {
+                start = head[0].indexInResponse
+                posts.forEachIndexed { index, post ->
+                    post.indexInResponse = head[index].indexInResponse
+                }
+                db.posts().insert(posts.filterIndexed { index, post -> post != head[index] })
+            } else {
+                start = (head.firstOrNull()?.indexInResponse ?: 0) - posts.size
+                posts.forEachIndexed { index, post ->
+                    post.indexInResponse = start + index
+                }
+                db.posts().insert(posts)
+            }
+        }
+        return start
+    }
+
+    /**
+     * When refresh is called, we simply run a fresh network request and when it arrives, merge
+     * its items into the database in a transaction.
      * <p>
      * Since the PagedList already uses a database bound data source, it will automatically be
      * updated after the database transaction is finished.
+     * <p>
+     * The posts after the new first page are what was loaded before the refresh. They are kept so
+     * that the list does not jump back to the top, and the ones far down the list are dropped
+     * once the refresh is done.
      */
     @MainThread
     private fun refresh(subredditName: String): LiveData<NetworkState> {
@@ -83,12 +125,12 @@ class DbRedditPostRepository(
                             call: Call<RedditApi.ListingResponse>,
                             response: Response<RedditApi.ListingResponse>) {
                         ioExecutor.execute {
-                            db.runInTransaction {
-                                db.posts().deleteBySubreddit(subredditName)
-                                insertResultIntoDb(subredditName, response.body())
-                            }
+                            val start = mergeFirstPage(subredditName, response.body())
                             // since we are in bg thread now, post the result.
                             networkState.postValue(NetworkState.LOADED)
+                            db.posts().deleteFromIndexInSubreddit(subredditName,
+                                    start + networkPageSize * PAGES_KEPT_AFTER_REFRESH)
+                            storageBudget.requestEviction()
                         }
                     }
                 }
@@ -101,6 +143,7 @@ class DbRedditPostRepository(
      */
     @MainThread
     override fun postsOfSubreddit(subredditName: String, pageSize: Int): Listing<RedditPost> {
+        storageBudget.onSubredditOpened(subredditName)
         // create a boundary callback which will observe when the user reaches to the edges of
         // the list and update the database with extra data.
         val boundaryCallback = SubredditBoundaryCallback(
@@ -129,6 +172,8 @@ class DbRedditPostRepository(
                     boundaryCallback.helper.retryAllFailed()
                 },
                 refresh = {
+                    // pending retries would load pages of the list that is being replaced
+                    boundaryCallback.helper.cancelRetries()
                     refreshTrigger.value = null
                 },
                 refreshState = refreshState
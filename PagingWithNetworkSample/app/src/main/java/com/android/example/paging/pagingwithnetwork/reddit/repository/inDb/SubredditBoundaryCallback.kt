@@ -24,6 +24,7 @@ import com.android.example.paging.pagingwithnetwork.reddit.util.createStatusLive
 import com.android.example.paging.pagingwithnetwork.reddit.vo.RedditPost
 import retrofit2.Call
 import retrofit2.Callback
+import retrofit2.HttpException
 import retrofit2.Response
 import java.util.concurrent.Executor
 
@@ -41,8 +42,16 @@ class SubredditBoundaryCallback(
         private val ioExecutor: Executor,
         private val networkPageSize: Int)
     : PagedList.BoundaryCallback<RedditPost>() {
+    companion object {
+        // the page after the last item can start while the previous page is still finishing
+        private val AFTER_PREFETCH_DEPTH = 2
+        // up to 3 retries, after 0.5-1, 1-2 and 2-4 seconds
+        private val RETRY_POLICY = PagingRequestHelper.RetryPolicy(4, 1000, 8000)
+    }
 
-    val helper = PagingRequestHelper(ioExecutor)
+    val helper = PagingRequestHelper(ioExecutor, RETRY_POLICY).apply {
+        setMaxRunning(PagingRequestHelper.RequestType.AFTER, AFTER_PREFETCH_DEPTH)
+    }
     val networkState = helper.createStatusLiveData()
 
     /**
@@ -60,10 +69,14 @@ class SubredditBoundaryCallback(
 
     /**
      * User reached to the end of the list.
+     * <p>
+     * The request is keyed by the item it loads after: this callback is only called once for each
+     * new last item, so it must not be dropped because the request that inserted that item has not
+     * recorded its result yet. The same page is still only requested once.
      */
     @MainThread
     override fun onItemAtEndLoaded(itemAtEnd: RedditPost) {
-        helper.runIfNotRunning(PagingRequestHelper.RequestType.AFTER) {
+        helper.runIfNotRunning(PagingRequestHelper.RequestType.AFTER, itemAtEnd.name) {
             webservice.getTopAfter(
                     subreddit = subredditName,
                     after = itemAtEnd.name,
@@ -101,7 +114,12 @@ class SubredditBoundaryCallback(
             override fun onResponse(
                     call: Call<RedditApi.ListingResponse>,
                     response: Response<RedditApi.ListingResponse>) {
-                insertItemsIntoDb(response, it)
+                if (response.isSuccessful) {
+                    insertItemsIntoDb(response, it)
+                } else {
+                    // e.g. rate limited: there is nothing to insert and the request is retried
+                    it.recordFailure(HttpException(response))
+                }
             }
         }
     }
@@ -22,8 +22,10 @@ import android.arch.persistence.room.Index
 import android.arch.persistence.room.PrimaryKey
 import com.google.gson.annotations.SerializedName
 
+// the index keeps each subreddit's posts in list order, which serves the paged list and finding
+// the end of the list without sorting
 @Entity(tableName = "posts",
-        indices = arrayOf(Index(value = "subreddit", unique = false)))
+        indices = arrayOf(Index("subreddit", "indexInResponse")))
 data class RedditPost(
         @PrimaryKey
         @SerializedName("name")
@@ -18,7 +18,9 @@ package com.android.example.paging.pagingwithnetwork.repository
 
 import com.android.example.paging.pagingwithnetwork.reddit.api.RedditApi
 import com.android.example.paging.pagingwithnetwork.reddit.vo.RedditPost
+import okhttp3.ResponseBody
 import retrofit2.Call
+import retrofit2.Response
 import retrofit2.mock.Calls
 import java.io.IOException
 
@@ -29,6 +31,8 @@ class FakeRedditApi : RedditApi {
     // subreddits keyed by name
     private val model = mutableMapOf<String, SubReddit>()
     var failureMsg: String? = null
+    // the status of an unsuccessful response the server answers with, e.g. 503
+    var errorCode: Int? = null
     fun addPost(post: RedditPost) {
         val subreddit = model.getOrPut(post.subreddit) {
             SubReddit(items = arrayListOf())
@@ -56,6 +60,9 @@ class FakeRedditApi : RedditApi {
         failureMsg?.let {
             return Calls.failure(IOException(it))
         }
+        errorCode?.let {
+            return Calls.response(Response.error(it, ResponseBody.create(null, "")))
+        }
         val items = findPosts(subreddit, limit)
         val after = items.lastOrNull()?.data?.name
         val response = RedditApi.ListingResponse(
@@ -72,6 +79,9 @@ class FakeRedditApi : RedditApi {
         failureMsg?.let {
             return Calls.failure(IOException(it))
         }
+        errorCode?.let {
+            return Calls.response(Response.error(it, ResponseBody.create(null, "")))
+        }
         val items = findPosts(subreddit = subreddit,
                 limit = limit,
                 after = after)
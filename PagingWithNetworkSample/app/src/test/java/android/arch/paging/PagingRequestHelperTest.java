@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.arch.paging;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static android.arch.paging.PagingRequestHelper.RequestType.AFTER;
+import static android.arch.paging.PagingRequestHelper.RequestType.INITIAL;
+import static android.arch.paging.PagingRequestHelper.Status.FAILED;
+import static android.arch.paging.PagingRequestHelper.Status.RUNNING;
+import static android.arch.paging.PagingRequestHelper.Status.SUCCESS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith(JUnit4.class)
+public class PagingRequestHelperTest {
+    private final Executor mRetryService = Runnable::run;
+    private final PagingRequestHelper mHelper = new PagingRequestHelper(mRetryService);
+    private final List<PagingRequestHelper.Request.Callback> mCallbacks = new ArrayList<>();
+    private final PagingRequestHelper.Request mRequest = mCallbacks::add;
+
+    @Test
+    public void oneRequestPerType() {
+        assertThat(mHelper.runIfNotRunning(INITIAL, mRequest), is(true));
+        assertThat(mHelper.runIfNotRunning(INITIAL, mRequest), is(false));
+        assertThat(mHelper.runIfNotRunning(AFTER, mRequest), is(true));
+        assertThat(mHelper.getStatusReport().initial, is(RUNNING));
+
+        mCallbacks.get(0).recordSuccess();
+        assertThat(mHelper.getStatusReport().initial, is(SUCCESS));
+        assertThat(mHelper.runIfNotRunning(INITIAL, mRequest), is(true));
+    }
+
+    @Test
+    public void concurrentRequestsWithDifferentKeys() {
+        mHelper.setMaxRunning(AFTER, 2);
+        assertThat(mHelper.runIfNotRunning(AFTER, "a", mRequest), is(true));
+        assertThat(mHelper.runIfNotRunning(AFTER, "a", mRequest), is(false));
+        assertThat(mHelper.runIfNotRunning(AFTER, "b", mRequest), is(true));
+        assertThat(mHelper.runIfNotRunning(AFTER, "c", mRequest), is(false));
+
+        mCallbacks.get(0).recordSuccess();
+        assertThat(mHelper.getStatusReport().after, is(RUNNING));
+        assertThat(mHelper.runIfNotRunning(AFTER, "c", mRequest), is(true));
+    }
+
+    @Test
+    public void reportOnlyDispatchedOnChange() {
+        mHelper.setMaxRunning(AFTER, 2);
+        List<PagingRequestHelper.StatusReport> reports = new ArrayList<>();
+        mHelper.addListener(reports::add);
+        mHelper.runIfNotRunning(AFTER, "a", mRequest);
+        mHelper.runIfNotRunning(AFTER, "b", mRequest);
+        assertThat(reports.size(), is(1));
+        // the status is still running, the finished attempt can be read but is not dispatched
+        mCallbacks.get(0).recordSuccess();
+        assertThat(reports.size(), is(1));
+        assertThat(mHelper.getStatusReport().after, is(RUNNING));
+        assertThat(mHelper.getStatusReport().getLastAttemptFor(AFTER).number, is(1));
+        mCallbacks.get(1).recordSuccess();
+        assertThat(reports.size(), is(2));
+        assertThat(reports.get(1).after, is(SUCCESS));
+        assertThat(mHelper.getStatusReport(), sameInstance(reports.get(1)));
+    }
+
+    @Test
+    public void retryFailedRequestsWithTheirKeys() {
+        mHelper.setMaxRunning(AFTER, 2);
+        mHelper.runIfNotRunning(AFTER, "a", mRequest);
+        mHelper.runIfNotRunning(AFTER, "b", mRequest);
+        Exception error = new Exception("idk");
+        mCallbacks.get(0).recordFailure(error);
+        assertThat(mHelper.getStatusReport().after, is(RUNNING));
+        assertThat(mHelper.getStatusReport().getErrorFor(AFTER), nullValue());
+        mCallbacks.get(1).recordFailure(error);
+        assertThat(mHelper.getStatusReport().after, is(FAILED));
+        assertThat(mHelper.getStatusReport().getErrorFor(AFTER), sameInstance(error));
+
+        assertThat(mHelper.retryAllFailed(), is(true));
+        assertThat(mCallbacks.size(), is(4));
+        assertThat(mHelper.runIfNotRunning(AFTER, "a", mRequest), is(false));
+        assertThat(mHelper.runIfNotRunning(AFTER, "b", mRequest), is(false));
+        assertThat(mHelper.retryAllFailed(), is(false));
+    }
+
+    @Test
+    public void successClearsFailures() {
+        mHelper.setMaxRunning(AFTER, 2);
+        mHelper.runIfNotRunning(AFTER, "a", mRequest);
+        mHelper.runIfNotRunning(AFTER, "b", mRequest);
+        mCallbacks.get(0).recordFailure(new Exception("idk"));
+        mCallbacks.get(1).recordSuccess();
+        assertThat(mHelper.getStatusReport().after, is(SUCCESS));
+        assertThat(mHelper.retryAllFailed(), is(false));
+    }
+
+    @Test
+    public void retryWithBackoff() {
+        ScheduledExecutorService timer = timer(mock(ScheduledFuture.class));
+        PagingRequestHelper helper = new PagingRequestHelper(mRetryService,
+                new PagingRequestHelper.RetryPolicy(3, 1000, 1500), timer);
+        helper.runIfNotRunning(AFTER, "a", mRequest);
+        Exception error = new Exception("idk");
+
+        mCallbacks.get(0).recordFailure(error);
+        PagingRequestHelper.Attempt attempt = helper.getStatusReport().getLastAttemptFor(AFTER);
+        assertThat(attempt.number, is(1));
+        assertThat(attempt.error, sameInstance(error));
+        assertThat(attempt.retryDelayMillis >= 500 && attempt.retryDelayMillis < 1000, is(true));
+        // waiting for the retry counts as running, the same request is not started meanwhile
+        assertThat(helper.getStatusReport().after, is(RUNNING));
+        assertThat(helper.runIfNotRunning(AFTER, "a", mRequest), is(false));
+        assertThat(helper.retryAllFailed(), is(false));
+        runScheduled(timer, attempt.retryDelayMillis);
+        assertThat(mCallbacks.size(), is(2));
+
+        mCallbacks.get(1).recordFailure(error);
+        attempt = helper.getStatusReport().getLastAttemptFor(AFTER);
+        assertThat(attempt.number, is(2));
+        assertThat(attempt.retryDelayMillis >= 750 && attempt.retryDelayMillis < 1500, is(true));
+        runScheduled(timer, attempt.retryDelayMillis);
+
+        mCallbacks.get(2).recordFailure(error);
+        attempt = helper.getStatusReport().getLastAttemptFor(AFTER);
+        assertThat(attempt.number, is(3));
+        assertThat(attempt.retryDelayMillis, is(-1L));
+        assertThat(helper.getStatusReport().after, is(FAILED));
+        assertThat(helper.retryAllFailed(), is(true));
+        assertThat(mCallbacks.size(), is(4));
+    }
+
+    @Test
+    public void failedAttemptsAreDispatched() {
+        ScheduledExecutorService timer = timer(mock(ScheduledFuture.class));
+        PagingRequestHelper helper = new PagingRequestHelper(mRetryService,
+                new PagingRequestHelper.RetryPolicy(3, 1000, 1500), timer);
+        List<PagingRequestHelper.StatusReport> reports = new ArrayList<>();
+        helper.addListener(reports::add);
+        helper.runIfNotRunning(AFTER, "a", mRequest);
+        assertThat(reports.size(), is(1));
+
+        // the retry keeps the request running, the failed attempt is dispatched anyway
+        mCallbacks.get(0).recordFailure(new Exception("idk"));
+        assertThat(reports.size(), is(2));
+        assertThat(reports.get(1).after, is(RUNNING));
+        assertThat(reports.get(1).getLastAttemptFor(AFTER).number, is(1));
+        assertThat(reports.get(1).getLastAttemptFor(AFTER).retryDelayMillis > 0, is(true));
+
+        runScheduled(timer, reports.get(1).getLastAttemptFor(AFTER).retryDelayMillis);
+        mCallbacks.get(1).recordSuccess();
+        assertThat(reports.size(), is(3));
+        assertThat(reports.get(2).after, is(SUCCESS));
+    }
+
+    @Test
+    public void cancelRetries() {
+        ScheduledFuture<?> future = mock(ScheduledFuture.class);
+        ScheduledExecutorService timer = timer(future);
+        PagingRequestHelper helper = new PagingRequestHelper(mRetryService,
+                new PagingRequestHelper.RetryPolicy(3, 1000, 1000), timer);
+        helper.runIfNotRunning(AFTER, "a", mRequest);
+        mCallbacks.get(0).recordFailure(new Exception("idk"));
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        verify(timer).schedule(retry.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+
+        helper.cancelRetries();
+        assertThat(helper.getStatusReport().after, is(SUCCESS));
+        verify(future).cancel(false);
+        // a retry that fires anyway does not run the request
+        retry.getValue().run();
+        assertThat(mCallbacks.size(), is(1));
+        assertThat(helper.runIfNotRunning(AFTER, "a", mRequest), is(true));
+    }
+
+    @Test
+    public void retryPolicyDelays() {
+        PagingRequestHelper.RetryPolicy policy =
+                new PagingRequestHelper.RetryPolicy(10, 100, 1000);
+        assertThat(policy.getDelayMillis(1, 0), is(50L));
+        assertThat(policy.getDelayMillis(1, 0.99), is(99L));
+        assertThat(policy.getDelayMillis(3, 0), is(200L));
+        assertThat(policy.getDelayMillis(5, 0), is(500L));
+        assertThat(policy.getDelayMillis(9, 0.99), is(995L));
+    }
+
+    private static ScheduledExecutorService timer(ScheduledFuture<?> future) {
+        ScheduledExecutorService timer = mock(ScheduledExecutorService.class);
+        doReturn(future).when(timer)
+                .schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        return timer;
+    }
+
+    private static void runScheduled(ScheduledExecutorService timer, long delayMillis) {
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        verify(timer).schedule(retry.capture(), eq(delayMillis), eq(TimeUnit.MILLISECONDS));
+        retry.getValue().run();
+    }
+}
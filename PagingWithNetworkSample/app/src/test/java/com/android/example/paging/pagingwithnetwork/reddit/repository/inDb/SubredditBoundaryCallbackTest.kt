@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.paging.pagingwithnetwork.reddit.repository.inDb
+
+import android.arch.paging.PagingRequestHelper
+import com.android.example.paging.pagingwithnetwork.reddit.api.RedditApi
+import com.android.example.paging.pagingwithnetwork.repository.FakeRedditApi
+import com.android.example.paging.pagingwithnetwork.repository.PostFactory
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.instanceOf
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import retrofit2.HttpException
+import java.util.concurrent.Executor
+
+@RunWith(JUnit4::class)
+class SubredditBoundaryCallbackTest {
+    private val fakeApi = FakeRedditApi()
+    private val postFactory = PostFactory()
+    private val handled = arrayListOf<RedditApi.ListingResponse?>()
+    private val callback = SubredditBoundaryCallback(
+            subredditName = "foo",
+            webservice = fakeApi,
+            handleResponse = { _, response -> handled.add(response) },
+            ioExecutor = Executor { command -> command.run() },
+            networkPageSize = 10)
+
+    @After
+    fun cancelRetries() {
+        callback.helper.cancelRetries()
+    }
+
+    @Test
+    fun successfulResponseIsInserted() {
+        fakeApi.addPost(postFactory.createRedditPost("foo"))
+        callback.onZeroItemsLoaded()
+        assertThat(handled.size, `is`(1))
+        assertThat(callback.helper.statusReport.initial,
+                `is`(PagingRequestHelper.Status.SUCCESS))
+    }
+
+    /**
+     * an error response has no body to insert, it is a failed attempt that gets retried
+     */
+    @Test
+    fun errorResponseIsAFailure() {
+        fakeApi.errorCode = 503
+        callback.onZeroItemsLoaded()
+        assertThat(handled.size, `is`(0))
+        val attempt = callback.helper.statusReport
+                .getLastAttemptFor(PagingRequestHelper.RequestType.INITIAL)!!
+        assertThat(attempt.error, instanceOf(HttpException::class.java))
+        assertThat((attempt.error as HttpException).code(), `is`(503))
+        assertThat(attempt.retryDelayMillis > 0, `is`(true))
+    }
+}